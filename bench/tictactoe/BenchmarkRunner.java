@@ -0,0 +1,29 @@
+package tictactoe;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * Runs the benchmarks with the allocation profiler.
+ *
+ * <p>The arguments are passed to JMH, so for example a regular expression
+ * selects the benchmarks to run and {@code -p size=80x30} limits the parameters.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class BenchmarkRunner {
+    /**
+     * Main program entry point.
+     * @param args JMH command line options
+     * @throws Exception if the options are invalid or the benchmarks fail
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+}
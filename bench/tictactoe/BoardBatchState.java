@@ -0,0 +1,101 @@
+package tictactoe;
+
+import java.util.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Many game boards for the benchmarks that check them all at once.
+ *
+ * <p>Each game board is filled with randomly placed pieces of both players, using a
+ * fixed seed, and ends with a move of the computer. The boards are also copied into a
+ * {@code BatchVictoryChecker}, so the sizes are limited to its 64 squares.</p>
+ *
+ * @author Tapio Malmberg
+ */
+@State(Scope.Benchmark)
+public class BoardBatchState {
+    /**
+     * The size of the game boards as "width x height".
+     */
+    @Param({ "3x3", "5x5", "8x8" })
+    public String size;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    @Param({ "3", "5" })
+    public int numInARowToWin;
+
+    /**
+     * The number of game boards.
+     */
+    @Param({ "1024" })
+    public int count;
+
+    /**
+     * The kernel of the batch checker, "scalar" or "vector".
+     */
+    @Param({ "scalar", "vector" })
+    public String kernel;
+
+    /**
+     * The read-only views of the game boards.
+     */
+    public ImmutableGameBoard[] views;
+
+    /**
+     * The player who made the last move on each game board, always the computer.
+     */
+    public byte[] players;
+
+    /**
+     * The last move on each game board.
+     */
+    public Coordinate[] lastMoves;
+
+    /**
+     * The game boards stored as bits.
+     */
+    public BatchVictoryChecker checker;
+
+    /**
+     * Set by the batch benchmark for the boards the computer has won.
+     */
+    public boolean[] results;
+
+    /**
+     * Creates the game boards and fills them with pieces.
+     * @throws IllegalStateException if the vector kernel is requested but not available
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] widthAndHeight = size.split("x");
+        int width = Integer.parseInt(widthAndHeight[0]);
+        int height = Integer.parseInt(widthAndHeight[1]);
+        Random random = new Random(42);
+        WinKernel winKernel = kernel.equals("vector") ? BatchVictoryChecker.getVectorKernel() : new ScalarWinKernel();
+        if(winKernel == null)
+            throw new IllegalStateException("The vector kernel is not available; run the benchmarks with ./make.sh bench.");
+
+        views = new ImmutableGameBoard[count];
+        players = new byte[count];
+        lastMoves = new Coordinate[count];
+        results = new boolean[count];
+        checker = new BatchVictoryChecker(width, height, numInARowToWin, count, winKernel);
+        for (int i = 0; i < count; i++) {
+            GameBoard gameBoard = GameBoard.create(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if(random.nextBoolean())
+                        gameBoard.setSquare(x, y, random.nextBoolean() ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER);
+                }
+            }
+
+            lastMoves[i] = Coordinate.of(random.nextInt(width), random.nextInt(height));
+            gameBoard.setSquare(lastMoves[i], TicTacToeGame.COMPUTER);
+            views[i] = gameBoard.asImmutable();
+            players[i] = TicTacToeGame.COMPUTER;
+            checker.setBoard(i, views[i]);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package tictactoe;
+
+import java.util.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The game board shared by the benchmarks.
+ *
+ * <p>The game board is filled with randomly placed pieces of both players,
+ * using a fixed seed so that every run measures the same positions.</p>
+ *
+ * @author Tapio Malmberg
+ */
+@State(Scope.Benchmark)
+public class BoardState {
+    /**
+     * The size of the game board as "width x height".
+     */
+    @Param({ "3x3", "15x15", "80x30" })
+    public String size;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    @Param({ "3", "5" })
+    public int numInARowToWin;
+
+    /**
+     * The share of the squares that contain a piece.
+     */
+    @Param({ "0.1", "0.5", "0.9" })
+    public double fillRatio;
+
+    /**
+     * How the game board stores its squares: "bytes" or "bits".
+     */
+    @Param({ "bytes", "bits" })
+    public String storage;
+
+    /**
+     * The game board.
+     */
+    public GameBoard gameBoard;
+
+    /**
+     * The read-only view of the game board, as given to the computer players.
+     */
+    public ImmutableGameBoard view;
+
+    /**
+     * A square that contains a piece of the computer.
+     */
+    public Coordinate lastMove;
+
+    /**
+     * Creates the game board and fills it with pieces.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] widthAndHeight = size.split("x");
+        int width = Integer.parseInt(widthAndHeight[0]);
+        int height = Integer.parseInt(widthAndHeight[1]);
+
+        gameBoard = storage.equals("bits") ? new BitGameBoard(width, height) : new GameBoard(width, height);
+        view = gameBoard.asImmutable();
+
+        List<Coordinate> squares = new ArrayList<Coordinate>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                squares.add(Coordinate.of(x, y));
+            }
+        }
+        Collections.shuffle(squares, new Random(42));
+
+        // Leave at least one square empty for the computer players
+        int pieces = Math.min((int)(squares.size() * fillRatio), squares.size() - 1);
+        for (int i = 0; i < pieces; i++) {
+            byte piece = i % 2 == 0 ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER;
+            gameBoard.setSquare(squares.get(i), piece);
+            if(piece == TicTacToeGame.COMPUTER)
+                lastMove = squares.get(i);
+        }
+
+        if(lastMove == null) {
+            lastMove = squares.get(0);
+            gameBoard.setSquare(lastMove, TicTacToeGame.COMPUTER);
+        }
+    }
+}
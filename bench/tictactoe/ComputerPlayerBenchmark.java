@@ -0,0 +1,70 @@
+package tictactoe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for generating the moves of the computer players.
+ *
+ * @author Tapio Malmberg
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputerPlayerBenchmark {
+    /**
+     * A SmartComputer that is not notified of moves, so it examines the whole game board.
+     */
+    private final SmartComputer smartComputer = new SmartComputer();
+
+    /**
+     * A SmartComputer whose priorities have been calculated for the game board.
+     */
+    private final SmartComputer incrementalSmartComputer = new SmartComputer();
+
+    /**
+     * The random computer.
+     */
+    private final RandomComputer randomComputer = new RandomComputer();
+
+    /**
+     * Calculates the priorities of the incremental SmartComputer.
+     * @param state the game board
+     */
+    @Setup(Level.Trial)
+    public void setUp(BoardState state) {
+        incrementalSmartComputer.gameBoardReset(state.view, state.numInARowToWin);
+    }
+
+    /**
+     * Gets a move from a SmartComputer that examines the whole game board.
+     * @param state the game board
+     * @return the move
+     */
+    @Benchmark
+    public Coordinate smartComputerGetMove(BoardState state) {
+        return smartComputer.getMove(state.view, state.numInARowToWin);
+    }
+
+    /**
+     * Gets a move from a SmartComputer that uses its up to date priorities.
+     * @param state the game board
+     * @return the move
+     */
+    @Benchmark
+    public Coordinate smartComputerGetMoveIncremental(BoardState state) {
+        return incrementalSmartComputer.getMove(state.view, state.numInARowToWin);
+    }
+
+    /**
+     * Gets a move from a RandomComputer.
+     * @param state the game board
+     * @return the move
+     */
+    @Benchmark
+    public Coordinate randomComputerGetMove(BoardState state) {
+        return randomComputer.getMove(state.view, state.numInARowToWin);
+    }
+}
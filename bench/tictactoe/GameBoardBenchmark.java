@@ -0,0 +1,49 @@
+package tictactoe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for counting adjacent pieces on the game board.
+ *
+ * @author Tapio Malmberg
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBoardBenchmark {
+    /**
+     * Counts the adjacent pieces in every direction using coordinates.
+     * @param state the game board
+     * @return the total number of adjacent pieces
+     */
+    @Benchmark
+    public int getNumAdjacent(BoardState state) {
+        int total = 0;
+        for (Direction dir : Directions.ALL) {
+            total += state.view.getNumAdjacent(state.lastMove, dir, TicTacToeGame.COMPUTER, true);
+            total += state.view.getNumAdjacent(state.lastMove, dir.reverse(), TicTacToeGame.COMPUTER, false);
+        }
+        return total;
+    }
+
+    /**
+     * Counts the adjacent pieces in every direction using square indexes.
+     * @param state the game board
+     * @return the total number of adjacent pieces
+     */
+    @Benchmark
+    public int getNumAdjacentIndex(BoardState state) {
+        ImmutableGameBoard gameBoard = state.view;
+        int index = gameBoard.getIndex(state.lastMove.x, state.lastMove.y);
+        int total = 0;
+        for (Direction dir : Directions.ALL) {
+            int offset = gameBoard.getOffset(dir);
+            total += gameBoard.getNumAdjacent(index, offset, TicTacToeGame.COMPUTER, true);
+            total += gameBoard.getNumAdjacent(index, -offset, TicTacToeGame.COMPUTER, false);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,97 @@
+package tictactoe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures how the parallel search of {@code AlphaBetaComputer} scales with the number of threads.
+ *
+ * <p>Each benchmark call searches the same 15x15 position for a fixed time. The searched
+ * positions and the completed search depths are reported as counters, so the speedup of
+ * a thread count is its {@code nodes} rate divided by the rate of a single thread, and the
+ * {@code depth} rate divided by the call rate is the average completed depth.</p>
+ *
+ * @author Tapio Malmberg
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    /**
+     * The moves played before the search, alternating between the computer and the player.
+     */
+    private static final int[][] OPENING = {
+        { 7, 7 }, { 8, 8 }, { 8, 6 }, { 6, 8 }, { 9, 7 }, { 7, 9 }, { 6, 6 }, { 9, 9 }
+    };
+
+    /**
+     * The time limit of a search in milliseconds.
+     */
+    private static final long TIME_LIMIT = 100;
+
+    /**
+     * The number of search threads.
+     */
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    /**
+     * The searched game board.
+     */
+    private ImmutableGameBoard gameBoard;
+
+    /**
+     * The computer player being measured.
+     */
+    private AlphaBetaComputer computer;
+
+    /**
+     * The searched positions and completed depths, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SearchCounters {
+        /**
+         * The number of positions searched by all threads.
+         */
+        public long nodes;
+
+        /**
+         * The sum of the completed search depths.
+         */
+        public long depth;
+    }
+
+    /**
+     * Plays the opening and creates the computer player.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        GameBoard board = GameBoard.create(15, 15);
+        for (int i = 0; i < OPENING.length; i++) {
+            byte piece = i % 2 == 0 ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER;
+            board.setSquare(OPENING[i][0], OPENING[i][1], piece);
+        }
+
+        gameBoard = board.asImmutable();
+        computer = new AlphaBetaComputer(TIME_LIMIT, AlphaBetaComputer.DEFAULT_MAX_MOVES, new TranspositionTable(), threads);
+    }
+
+    /**
+     * Searches the position with a cleared transposition table.
+     * @param counters the counters the results are added to
+     * @return the move
+     */
+    @Benchmark
+    public Coordinate search(SearchCounters counters) {
+        // Every call must start from scratch, or the later calls would only read the table
+        computer.getTranspositionTable().clear();
+        Coordinate move = computer.getMove(gameBoard, 5);
+        counters.nodes += computer.getNodes();
+        counters.depth += computer.getCompletedDepth();
+        return move;
+    }
+}
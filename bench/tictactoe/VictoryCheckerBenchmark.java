@@ -0,0 +1,62 @@
+package tictactoe;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for checking whether the last move won the game.
+ *
+ * @author Tapio Malmberg
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VictoryCheckerBenchmark {
+    /**
+     * Checks for victory the same way as {@code TicTacToeGame}.
+     * @param state the game board
+     * @return true if the computer has won
+     */
+    @Benchmark
+    public boolean hasWon(BoardState state) {
+        return VictoryChecker.hasWon(state.view, TicTacToeGame.COMPUTER, state.lastMove, state.numInARowToWin);
+    }
+
+    /**
+     * Checks for victory through a new VictoryChecker object.
+     * @param state the game board
+     * @return true if the computer has won
+     */
+    @Benchmark
+    public boolean hasWonNewChecker(BoardState state) {
+        return new VictoryChecker(state.view, TicTacToeGame.COMPUTER, state.lastMove, state.numInARowToWin).hasWon();
+    }
+
+    /**
+     * Checks many game boards one at a time.
+     * @param state the game boards
+     * @return the number of game boards the computer has won
+     */
+    @Benchmark
+    public int hasWonEachBoard(BoardBatchState state) {
+        int won = 0;
+        for (int i = 0; i < state.count; i++) {
+            if(VictoryChecker.hasWon(state.views[i], state.players[i], state.lastMoves[i], state.numInARowToWin))
+                ++won;
+        }
+        return won;
+    }
+
+    /**
+     * Checks many game boards with one call to the batch checker.
+     * @param state the game boards
+     * @return the results of the game boards
+     */
+    @Benchmark
+    public boolean[] hasWonBatch(BoardBatchState state) {
+        state.checker.hasWon(state.players, state.lastMoves, state.count, state.results);
+        return state.results;
+    }
+}
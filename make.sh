@@ -5,4 +5,18 @@ fi
 
 javac -d bin -sourcepath src src/tictactoe/*.java
 javac -d bin -sourcepath src src/tictactoe/console/*.java
-javac -d bin -sourcepath src src/tictactoe/gui/*.java
\ No newline at end of file
+javac -d bin -sourcepath src src/tictactoe/gui/*.java
+javac -d bin -sourcepath src src/tictactoe/server/*.java
+
+if [ "$1" = "vector" ]; then
+    # The Vector API is an incubator module, so javac warns about it
+    javac -d bin -cp bin --add-modules jdk.incubator.vector vector/tictactoe/*.java
+fi
+
+if [ "$1" = "bench" ]; then
+    # JMH_CLASSPATH must list the JMH jars (jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3)
+    javac -d bench-bin -cp "$JMH_CLASSPATH" -sourcepath src:bench bench/tictactoe/*.java
+    javac -d bench-bin -cp bench-bin --add-modules jdk.incubator.vector vector/tictactoe/*.java
+    shift
+    java --add-modules jdk.incubator.vector -cp "bench-bin:$JMH_CLASSPATH" tictactoe.BenchmarkRunner "$@"
+fi
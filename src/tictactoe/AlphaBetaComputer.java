@@ -0,0 +1,676 @@
+package tictactoe;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code ComputerPlayer} that searches the game tree using negamax
+ * with alpha-beta pruning and iterative deepening.
+ *
+ * <p>The search is deepened one move at a time until the time limit
+ * for the move runs out. The best move of the deepest fully completed
+ * search is returned.</p>
+ *
+ * <p>The priorities calculated by {@code SmartComputer} are used both for
+ * ordering the moves and for evaluating the game boards at the end of the search.
+ * Only squares with a priority greater than zero are searched.</p>
+ *
+ * <p>The results of searched positions are stored in a {@code TranspositionTable},
+ * which is kept between moves as long as the game board size and the number
+ * of pieces in a row needed to win stay the same.</p>
+ *
+ * <p>With more than one thread, the search is run in parallel with Lazy SMP:
+ * helper threads search the same position with their own game boards and share
+ * only the transposition table, which they fill with results that the calling
+ * thread then finds instead of searching them again. Half of the helpers search
+ * one move deeper, and every helper starts from a different root move, so they
+ * do not all search the same positions in the same order.</p>
+ *
+ * <p>The search also stops early if the thread that calls {@code getMove} is interrupted,
+ * and the best move found so far is returned. The interrupt is left set for the caller.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class AlphaBetaComputer implements ComputerPlayer {
+    /**
+     * The default time limit for a move in milliseconds.
+     */
+    public static final long DEFAULT_TIME_LIMIT = 1000;
+
+    /**
+     * The default maximum number of moves searched in each position.
+     */
+    public static final int DEFAULT_MAX_MOVES = 12;
+
+    /**
+     * The score of a won game. Faster victories get higher scores.
+     */
+    private static final int WIN_SCORE = 1000000;
+
+    /**
+     * The maximum search depth, high enough to never be reached on any game board.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * How many positions are searched between checks of the time limit.
+     */
+    private static final int NODES_BETWEEN_TIME_CHECKS = 256;
+
+    /**
+     * The time limit for a move in milliseconds.
+     */
+    private final long timeLimit;
+
+    /**
+     * The maximum number of moves searched in each position.
+     */
+    private final int maxMoves;
+
+    /**
+     * The results of the searched positions, shared by the threads.
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * The number of threads.
+     */
+    private final int numThreads;
+
+    /**
+     * Runs the searches of the helper threads, or null if only one thread is used.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The width of the game board of the previous move, or zero before the first move.
+     */
+    private int width;
+
+    /**
+     * The height of the game board of the previous move.
+     */
+    private int height;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private int numInARowToWin;
+
+    /**
+     * The time when the search must be stopped, in {@code System.nanoTime} units.
+     */
+    private long deadline;
+
+    /**
+     * Set when the calling thread has finished searching, to stop the helper threads.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * The number of positions searched by all threads during the previous move.
+     */
+    private long nodes;
+
+    /**
+     * The time it took to find the previous move in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * The depth of the deepest fully completed search of the previous move.
+     */
+    private int completedDepth;
+
+    /**
+     * Creates a new AlphaBetaComputer with the default time limit.
+     */
+    public AlphaBetaComputer() {
+        this(DEFAULT_TIME_LIMIT, DEFAULT_MAX_MOVES);
+    }
+
+    /**
+     * Creates a new AlphaBetaComputer with the given time limit
+     * and a transposition table of the default size.
+     * @param timeLimit the time limit for a move in milliseconds, must be greater than zero
+     * @param maxMoves the maximum number of moves searched in each position, must be greater than zero
+     */
+    public AlphaBetaComputer(long timeLimit, int maxMoves) {
+        this(timeLimit, maxMoves, new TranspositionTable());
+    }
+
+    /**
+     * Creates a new AlphaBetaComputer with the given time limit and transposition table.
+     * @param timeLimit the time limit for a move in milliseconds, must be greater than zero
+     * @param maxMoves the maximum number of moves searched in each position, must be greater than zero
+     * @param transpositionTable the table for storing the results of searched positions
+     */
+    public AlphaBetaComputer(long timeLimit, int maxMoves, TranspositionTable transpositionTable) {
+        this(timeLimit, maxMoves, transpositionTable, 1);
+    }
+
+    /**
+     * Creates a new AlphaBetaComputer that searches with the given number of threads.
+     * @param timeLimit the time limit for a move in milliseconds, must be greater than zero
+     * @param maxMoves the maximum number of moves searched in each position, must be greater than zero
+     * @param transpositionTable the table for storing the results of searched positions
+     * @param numThreads the number of threads, including the thread that calls {@code getMove},
+     *                   must be greater than zero
+     */
+    public AlphaBetaComputer(long timeLimit, int maxMoves, TranspositionTable transpositionTable, int numThreads) {
+        if(timeLimit <= 0)
+            throw new IllegalArgumentException("The time limit must be greater than zero.");
+        if(maxMoves <= 0)
+            throw new IllegalArgumentException("The maximum number of moves must be greater than zero.");
+        if(numThreads <= 0)
+            throw new IllegalArgumentException("The number of threads must be greater than zero.");
+
+        this.timeLimit = timeLimit;
+        this.maxMoves = maxMoves;
+        this.transpositionTable = transpositionTable;
+        this.numThreads = numThreads;
+        this.executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads - 1, createThreadFactory()) : null;
+    }
+
+    /**
+     * Returns the best move found within the time limit.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the best move of the deepest completed search
+     */
+    @Override
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        long startTime = System.nanoTime();
+        this.deadline = startTime + timeLimit * 1000000;
+        prepareTranspositionTable(gameBoard, numInARowToWin);
+        this.numInARowToWin = numInARowToWin;
+        this.nodes = 0;
+        this.elapsedNanos = 0;
+        this.completedDepth = 0;
+        this.stopped = false;
+
+        Searcher searcher = new Searcher(gameBoard);
+        List<Coordinate> rootMoves = searcher.getOrderedMoves(TicTacToeGame.COMPUTER);
+        if(rootMoves.isEmpty())
+            return new SmartComputer().getMove(gameBoard, numInARowToWin);
+
+        List<Future<Long>> helpers = new ArrayList<Future<Long>>();
+        for (int i = 1; i < numThreads && rootMoves.size() > 1; i++) {
+            Searcher helper = new Searcher(gameBoard);
+            List<Coordinate> helperMoves = new ArrayList<Coordinate>(rootMoves);
+            Collections.rotate(helperMoves, -(i % helperMoves.size()));
+            int firstDepth = 1 + i % 2;
+            helpers.add(executor.submit(() -> helper.help(helperMoves, firstDepth)));
+        }
+
+        Coordinate bestMove = rootMoves.get(0);
+        for (int depth = 1; depth <= Math.min(MAX_DEPTH, searcher.emptySquares); depth++) {
+            Coordinate move = searcher.searchRoot(rootMoves, depth);
+            if(searcher.timeUp)
+                break;
+
+            bestMove = move;
+            completedDepth = depth;
+
+            // Searching deeper cannot change a forced result
+            if(Math.abs(searcher.bestScore) >= WIN_SCORE - MAX_DEPTH)
+                break;
+
+            // Search the best move first in the next iteration
+            rootMoves.remove(move);
+            rootMoves.add(0, move);
+        }
+
+        stopped = true;
+        nodes = searcher.nodes;
+        for (Future<Long> helper : helpers)
+            nodes += getResult(helper);
+
+        elapsedNanos = System.nanoTime() - startTime;
+        return bestMove;
+    }
+
+    /**
+     * Returns the depth of the deepest fully completed search of the previous move.
+     * @return the completed search depth
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Returns the transposition table used by this computer player.
+     * @return the transposition table
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Returns the number of positions searched by all threads for the previous move.
+     * @return the number of searched positions
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of positions per second searched by all threads for the previous move.
+     * @return the positions per second, or zero if no search was made
+     */
+    public double getNodesPerSecond() {
+        if(elapsedNanos <= 0)
+            return 0;
+
+        return nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the number of threads that search the moves.
+     * @return the number of threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Stops the helper threads once they have finished their current search.
+     */
+    @Override
+    public void close() {
+        if(executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * Prepares the transposition table for a new move.
+     * 
+     * <p>The table is cleared if the game board size or the number of pieces
+     * in a row needed to win has changed since the previous move.</p>
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    private void prepareTranspositionTable(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        boolean sameGame = width == gameBoard.getWidth()
+            && height == gameBoard.getHeight()
+            && this.numInARowToWin == numInARowToWin;
+
+        if(sameGame)
+            transpositionTable.newSearch();
+        else
+            transpositionTable.clear();
+
+        width = gameBoard.getWidth();
+        height = gameBoard.getHeight();
+    }
+
+    /**
+     * Converts a score for storing in the transposition table.
+     * 
+     * <p>Victory scores depend on the distance from the start of the search,
+     * so they are stored relative to the position instead.</p>
+     * @param score the score of the position
+     * @param ply the number of moves made since the start of the search
+     * @return the score to store
+     */
+    private static int scoreToTable(int score, int ply) {
+        if(score >= WIN_SCORE - MAX_DEPTH)
+            return score + ply;
+        if(score <= -WIN_SCORE + MAX_DEPTH)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * Converts a score read from the transposition table back to a search score.
+     * @param score the stored score
+     * @param ply the number of moves made since the start of the search
+     * @return the score of the position
+     */
+    private static int scoreFromTable(int score, int ply) {
+        if(score >= WIN_SCORE - MAX_DEPTH)
+            return score - ply;
+        if(score <= -WIN_SCORE + MAX_DEPTH)
+            return score + ply;
+        return score;
+    }
+
+    /**
+     * Counts the empty squares on the game board.
+     * @param gameBoard the game board
+     * @return the number of empty squares
+     */
+    private static int countEmptySquares(ImmutableGameBoard gameBoard) {
+        int count = 0;
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(gameBoard.getSquare(x, y) == TicTacToeGame.EMPTY)
+                    ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Waits for the search of a helper thread to end.
+     * 
+     * <p>The helper threads stop soon after the calling thread has finished, so an interrupt
+     * does not cut the wait short. It is set again once the helper thread has stopped.</p>
+     * @param result the result of the search
+     * @return the number of positions searched by the helper thread
+     */
+    private static long getResult(Future<Long> result) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The search failed.", e.getCause());
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the factory of the helper threads.
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "tictactoe-search-" + threadNumber.incrementAndGet());
+            // Closing the computer player stops the threads, but one that is not closed must not keep the program running
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Returns the opponent of the given player.
+     * @param player PLAYER or COMPUTER
+     * @return COMPUTER for PLAYER and PLAYER for COMPUTER
+     */
+    private static byte getOpponent(byte player) {
+        return player == TicTacToeGame.PLAYER ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER;
+    }
+
+    /**
+     * The search of a single thread, with its own game board.
+     */
+    private class Searcher {
+        /**
+         * Used for calculating the priorities of the squares.
+         */
+        private final SmartComputer scorer = new SmartComputer();
+
+        /**
+         * The game board the search is made on.
+         */
+        private final GameBoard gameBoard;
+
+        /**
+         * The number of empty squares left on the game board being searched.
+         */
+        private int emptySquares;
+
+        /**
+         * The number of positions searched during the current move.
+         */
+        private long nodes;
+
+        /**
+         * Set when the time limit has been exceeded or the search has been stopped.
+         */
+        private boolean timeUp;
+
+        /**
+         * The score of the best move found by the latest completed search.
+         */
+        private int bestScore;
+
+        /**
+         * Creates a new Searcher for the given position.
+         * @param gameBoard the game board, which is copied
+         */
+        Searcher(ImmutableGameBoard gameBoard) {
+            this.gameBoard = GameBoard.copyOf(gameBoard);
+            this.gameBoard.trackCandidateMoves(1);
+            this.emptySquares = countEmptySquares(gameBoard);
+        }
+
+        /**
+         * Searches deeper and deeper as a helper thread until the search is stopped.
+         * @param moves the moves of the computer to search
+         * @param firstDepth the depth of the first search
+         * @return the number of searched positions
+         */
+        long help(List<Coordinate> moves, int firstDepth) {
+            for (int depth = firstDepth; depth <= Math.min(MAX_DEPTH, emptySquares) && !timeUp; depth++)
+                searchRoot(moves, depth);
+
+            return nodes;
+        }
+
+        /**
+         * Searches all the given moves of the computer to the given depth.
+         * @param moves the moves to search, best first
+         * @param depth the search depth
+         * @return the best move, or null if the time limit was exceeded
+         */
+        private Coordinate searchRoot(List<Coordinate> moves, int depth) {
+            Coordinate bestMove = null;
+            int alpha = -WIN_SCORE - 1;
+            int beta = WIN_SCORE + 1;
+
+            for (Coordinate move : moves) {
+                int score = searchMove(move, TicTacToeGame.COMPUTER, depth, alpha, beta, 0);
+                if(timeUp)
+                    return null;
+
+                if(score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                }
+            }
+
+            bestScore = alpha;
+            return bestMove;
+        }
+
+        /**
+         * Makes the given move, searches the resulting position and undoes the move.
+         * @param move the move to make
+         * @param player the player who makes the move
+         * @param depth the remaining search depth, including this move
+         * @param alpha the lower bound of the score
+         * @param beta the upper bound of the score
+         * @param ply the number of moves made since the start of the search
+         * @return the score of the move for the player who made it
+         */
+        private int searchMove(Coordinate move, byte player, int depth, int alpha, int beta, int ply) {
+            int score;
+
+            gameBoard.setSquare(move, player);
+            --emptySquares;
+
+            if(VictoryChecker.hasWon(gameBoard, player, move, numInARowToWin))
+                score = WIN_SCORE - ply;
+            else if(emptySquares == 0)
+                score = 0;
+            else
+                score = -negamax(getOpponent(player), depth - 1, -beta, -alpha, ply + 1);
+
+            ++emptySquares;
+            gameBoard.setSquare(move, TicTacToeGame.EMPTY);
+
+            return score;
+        }
+
+        /**
+         * Searches the current position for the player who makes the next move.
+         * @param player the player who makes the next move
+         * @param depth the remaining search depth
+         * @param alpha the lower bound of the score
+         * @param beta the upper bound of the score
+         * @param ply the number of moves made since the start of the search
+         * @return the score of the position for the player
+         */
+        private int negamax(byte player, int depth, int alpha, int beta, int ply) {
+            if(++nodes % NODES_BETWEEN_TIME_CHECKS == 0 && isStopped())
+                timeUp = true;
+            if(timeUp)
+                return 0;
+
+            if(depth == 0)
+                return evaluate(player);
+
+            long key = gameBoard.getHash() ^ (player == TicTacToeGame.COMPUTER ? Zobrist.COMPUTER_TO_MOVE : 0);
+            long entry = transpositionTable.probe(key);
+            int hashMove = TranspositionTable.NO_MOVE;
+
+            if(entry != TranspositionTable.NOT_FOUND) {
+                hashMove = TranspositionTable.getMove(entry);
+                if(TranspositionTable.getDepth(entry) >= depth) {
+                    int score = scoreFromTable(TranspositionTable.getScore(entry), ply);
+                    switch(TranspositionTable.getBound(entry)) {
+                        case EXACT:
+                            return score;
+                        case LOWER:
+                            if(score >= beta)
+                                return score;
+                            break;
+                        case UPPER:
+                            if(score <= alpha)
+                                return score;
+                            break;
+                    }
+                }
+            }
+
+            List<Coordinate> moves = getOrderedMoves(player);
+            if(moves.isEmpty())
+                return evaluate(player);
+            moveToFront(moves, hashMove);
+
+            int originalAlpha = alpha;
+            int bestScore = -WIN_SCORE - 1;
+            Coordinate bestMove = null;
+
+            for (Coordinate move : moves) {
+                int score = searchMove(move, player, depth, alpha, beta, ply);
+                if(score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                }
+                if(score > alpha)
+                    alpha = score;
+                if(alpha >= beta)
+                    break;
+            }
+
+            if(!timeUp) {
+                TranspositionTable.Bound bound;
+                if(bestScore <= originalAlpha)
+                    bound = TranspositionTable.Bound.UPPER;
+                else if(bestScore >= beta)
+                    bound = TranspositionTable.Bound.LOWER;
+                else
+                    bound = TranspositionTable.Bound.EXACT;
+
+                transpositionTable.store(key, depth, scoreToTable(bestScore, ply), bound, getSquareIndex(bestMove));
+            }
+
+            return bestScore;
+        }
+
+        /**
+         * Evaluates the current position for the player who makes the next move.
+         *
+         * <p>The score is the difference between the highest priorities
+         * of the player and the opponent.</p>
+         * @param player the player who makes the next move
+         * @return the score of the position for the player
+         */
+        private int evaluate(byte player) {
+            byte opponent = getOpponent(player);
+
+            scorer.getPriorities(gameBoard, numInARowToWin, player, opponent);
+            int score = scorer.getMaxPriority();
+            scorer.getPriorities(gameBoard, numInARowToWin, opponent, player);
+
+            return score - scorer.getMaxPriority();
+        }
+
+        /**
+         * Tests whether this thread should stop searching.
+         * @return true if the time is up, the calling thread has finished or this thread has been interrupted
+         */
+        private boolean isStopped() {
+            return stopped || System.nanoTime() > deadline || Thread.currentThread().isInterrupted();
+        }
+
+        /**
+         * Returns the moves worth searching for the given player, highest priority first.
+         * @param player the player who makes the next move
+         * @return at most {@code maxMoves} moves that have a priority greater than zero
+         */
+        private List<Coordinate> getOrderedMoves(byte player) {
+            int[][] priorities = scorer.getPriorities(gameBoard, numInARowToWin, player, getOpponent(player));
+            CandidateMoves candidateMoves = gameBoard.getCandidateMoves();
+            List<Coordinate> moves = new ArrayList<Coordinate>(candidateMoves.size());
+
+            for (int i = 0; i < candidateMoves.size(); i++) {
+                Coordinate move = gameBoard.getCoordinate(candidateMoves.get(i));
+                if(priorities[move.y][move.x] > 0)
+                    moves.add(move);
+            }
+
+            // Equal priorities are tried in the same order as in SmartComputer
+            moves.sort((a, b) -> {
+                int difference = priorities[b.y][b.x] - priorities[a.y][a.x];
+                if(difference != 0)
+                    return difference;
+                return a.x != b.x ? a.x - b.x : a.y - b.y;
+            });
+
+            if(moves.size() > maxMoves)
+                return new ArrayList<Coordinate>(moves.subList(0, maxMoves));
+            else
+                return moves;
+        }
+
+        /**
+         * Moves the move with the given square index to the front of the list, if the list contains it.
+         * @param moves the list of moves
+         * @param squareIndex the square index of the move
+         */
+        private void moveToFront(List<Coordinate> moves, int squareIndex) {
+            if(squareIndex == TranspositionTable.NO_MOVE)
+                return;
+
+            for (int i = 1; i < moves.size(); i++) {
+                if(getSquareIndex(moves.get(i)) == squareIndex) {
+                    moves.add(0, moves.remove(i));
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the index of the square of the given move.
+         * @param move the move
+         * @return the square index, counted row by row
+         */
+        private int getSquareIndex(Coordinate move) {
+            return move.y * gameBoard.getWidth() + move.x;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package tictactoe;
+
+/**
+ * The number of archived moves a computer player agreed with in a {@code GameAnalyzer} run.
+ *
+ * <p>The moves are counted separately for the human player and the computer player
+ * of the archived games, since the computer moves were already chosen by an AI.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class AnalysisResult {
+    /**
+     * The number of analyzed moves, indexed by the player who made them.
+     */
+    private final long[] moves = new long[2];
+
+    /**
+     * The number of analyzed moves the computer player would also have made,
+     * indexed by the player who made them.
+     */
+    private final long[] agreements = new long[2];
+
+    /**
+     * The number of games analyzed, including the invalid ones.
+     */
+    private long games;
+
+    /**
+     * The number of games that were analyzed only up to an invalid move.
+     */
+    private long invalidGames;
+
+    /**
+     * The time it took to analyze the games in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Returns the number of games analyzed.
+     * @return the number of games, including the invalid ones
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games that contain an invalid move, such as
+     * a move on a square that is already taken or a move after the end of the game.
+     * The moves before the invalid move are still counted.
+     * @return the number of invalid games
+     */
+    public long getInvalidGames() {
+        return invalidGames;
+    }
+
+    /**
+     * Returns the number of analyzed moves.
+     * @return the moves of both players
+     */
+    public long getMoves() {
+        return moves[0] + moves[1];
+    }
+
+    /**
+     * Returns the number of analyzed moves of the given player.
+     * @param player {@code TicTacToeGame.PLAYER} or {@code TicTacToeGame.COMPUTER}
+     * @return the number of moves
+     */
+    public long getMoves(byte player) {
+        return moves[getSide(player)];
+    }
+
+    /**
+     * Returns the number of analyzed moves the computer player agreed with.
+     * @return the agreed moves of both players
+     */
+    public long getAgreements() {
+        return agreements[0] + agreements[1];
+    }
+
+    /**
+     * Returns the number of analyzed moves of the given player the computer player agreed with.
+     * @param player {@code TicTacToeGame.PLAYER} or {@code TicTacToeGame.COMPUTER}
+     * @return the number of agreed moves
+     */
+    public long getAgreements(byte player) {
+        return agreements[getSide(player)];
+    }
+
+    /**
+     * Returns the share of the analyzed moves the computer player agreed with.
+     * @return the agreement rate from 0 to 1, or zero if no moves were analyzed
+     */
+    public double getAgreementRate() {
+        return getRate(getAgreements(), getMoves());
+    }
+
+    /**
+     * Returns the share of the analyzed moves of the given player the computer player agreed with.
+     * @param player {@code TicTacToeGame.PLAYER} or {@code TicTacToeGame.COMPUTER}
+     * @return the agreement rate from 0 to 1, or zero if no moves were analyzed
+     */
+    public double getAgreementRate(byte player) {
+        return getRate(getAgreements(player), getMoves(player));
+    }
+
+    /**
+     * Returns the time it took to analyze the games.
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of moves analyzed per second.
+     * @return the moves per second, or zero if no time has been recorded
+     */
+    public double getMovesPerSecond() {
+        if(elapsedNanos <= 0)
+            return 0;
+
+        return getMoves() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the results as a table.
+     * @return the results as a multi-line string
+     */
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-15s %12s %12s %10s%n", "", "Moves", "Agreed", "Rate"));
+        appendRow(table, "Player moves", getMoves(TicTacToeGame.PLAYER), getAgreements(TicTacToeGame.PLAYER));
+        appendRow(table, "Computer moves", getMoves(TicTacToeGame.COMPUTER), getAgreements(TicTacToeGame.COMPUTER));
+        appendRow(table, "Total", getMoves(), getAgreements());
+        table.append(String.format("%d games (%d invalid) in %.2f s, %.1f moves/s",
+            games, invalidGames, elapsedNanos / 1e9, getMovesPerSecond()));
+
+        return table.toString();
+    }
+
+    /**
+     * Counts an analyzed move.
+     * @param player the player who made the move
+     * @param agreed true if the computer player would also have made the move
+     */
+    void addMove(byte player, boolean agreed) {
+        int side = getSide(player);
+        ++moves[side];
+        if(agreed)
+            ++agreements[side];
+    }
+
+    /**
+     * Counts an analyzed game.
+     * @param valid false if the game contains an invalid move
+     */
+    void addGame(boolean valid) {
+        ++games;
+        if(!valid)
+            ++invalidGames;
+    }
+
+    /**
+     * Adds the games and moves counted in the other result to this result.
+     * @param other the result to add
+     */
+    void addAll(AnalysisResult other) {
+        for (int i = 0; i < 2; i++) {
+            moves[i] += other.moves[i];
+            agreements[i] += other.agreements[i];
+        }
+        games += other.games;
+        invalidGames += other.invalidGames;
+    }
+
+    /**
+     * Sets the time it took to analyze the games.
+     * @param elapsedNanos the elapsed time in nanoseconds
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the array index of a player.
+     * @param player {@code TicTacToeGame.PLAYER} or {@code TicTacToeGame.COMPUTER}
+     * @return 0 for the player, 1 for the computer
+     */
+    private static int getSide(byte player) {
+        if(player != TicTacToeGame.PLAYER && player != TicTacToeGame.COMPUTER)
+            throw new IllegalArgumentException("Unknown player " + player + ".");
+        return player - TicTacToeGame.PLAYER;
+    }
+
+    /**
+     * Divides the agreed moves by all the moves.
+     * @param agreed the number of agreed moves
+     * @param all the number of all moves
+     * @return the rate, or zero if there are no moves
+     */
+    private static double getRate(long agreed, long all) {
+        return all == 0 ? 0 : (double)agreed / all;
+    }
+
+    /**
+     * Appends a row of the results table.
+     * @param table the table
+     * @param title the title of the row
+     * @param moves the number of moves
+     * @param agreed the number of agreed moves
+     */
+    private static void appendRow(StringBuilder table, String title, long moves, long agreed) {
+        table.append(String.format("%-15s %12d %12d %9.1f%%%n", title, moves, agreed, getRate(agreed, moves) * 100));
+    }
+}
@@ -0,0 +1,279 @@
+package tictactoe;
+
+/**
+ * Checks many game boards of the same size at once for a win by the last move.
+ *
+ * <p>The boards are stored as a structure of arrays: one {@code long} per board for the
+ * pieces of each player, with one bit per square, so that boards of at most 64 squares fit.
+ * The rows through the moves of all the boards are then checked by a {@code WinKernel}
+ * without branches that depend on the pieces. When the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} and the vector kernel has been compiled,
+ * several boards are checked at a time with the Vector API; otherwise the boards are
+ * checked one at a time by the scalar kernel.</p>
+ *
+ * <p>The checker is not thread-safe.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class BatchVictoryChecker {
+    /**
+     * The largest number of squares on a game board.
+     */
+    public static final int MAX_SQUARES = Long.SIZE;
+
+    /**
+     * The name of the kernel class that uses the Vector API.
+     */
+    private static final String VECTOR_KERNEL = "tictactoe.VectorWinKernel";
+
+    /**
+     * The vector kernel, or null if it is not available.
+     */
+    private static final WinKernel VECTOR = loadVectorKernel();
+
+    /**
+     * The width of the game boards.
+     */
+    private final int width;
+
+    /**
+     * The height of the game boards.
+     */
+    private final int height;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private final int numToWin;
+
+    /**
+     * The kernel that checks the rows.
+     */
+    private final WinKernel kernel;
+
+    /**
+     * The shift of each direction in {@code Directions.ALL}.
+     */
+    private final int[] shifts;
+
+    /**
+     * The starts of the rows that go through each square, indexed by (direction * number of squares + square).
+     */
+    private final long[] windows;
+
+    /**
+     * The pieces of the human player on each board.
+     */
+    private final long[] humanPieces;
+
+    /**
+     * The pieces of the computer player on each board.
+     */
+    private final long[] computerPieces;
+
+    /**
+     * The pieces of the player who made the move on each board, filled by {@code hasWon}.
+     */
+    private final long[] moverPieces;
+
+    /**
+     * The bit index of the move on each board, filled by {@code hasWon}.
+     */
+    private final int[] moveSquares;
+
+    /**
+     * Creates a new BatchVictoryChecker with empty boards,
+     * using the vector kernel if it is available.
+     * @param width the width of the game boards
+     * @param height the height of the game boards
+     * @param numToWin the number of pieces in a row needed to win
+     * @param capacity the number of boards
+     * @throws IllegalArgumentException if a size is not positive, the capacity is negative, or the boards have more than {@code MAX_SQUARES} squares
+     */
+    public BatchVictoryChecker(int width, int height, int numToWin, int capacity) {
+        this(width, height, numToWin, capacity, VECTOR != null ? VECTOR : new ScalarWinKernel());
+    }
+
+    /**
+     * Creates a new BatchVictoryChecker with empty boards and the given kernel.
+     * @param width the width of the game boards
+     * @param height the height of the game boards
+     * @param numToWin the number of pieces in a row needed to win
+     * @param capacity the number of boards
+     * @param kernel the kernel that checks the rows
+     * @throws IllegalArgumentException if a size is not positive, the capacity is negative, or the boards have more than {@code MAX_SQUARES} squares
+     */
+    BatchVictoryChecker(int width, int height, int numToWin, int capacity, WinKernel kernel) {
+        if(width <= 0 || height <= 0 || numToWin <= 0)
+            throw new IllegalArgumentException("The sizes must be positive.");
+        if(capacity < 0)
+            throw new IllegalArgumentException("The capacity must not be negative.");
+        if(width * height > MAX_SQUARES)
+            throw new IllegalArgumentException("The game boards can have at most " + MAX_SQUARES + " squares.");
+
+        this.width = width;
+        this.height = height;
+        this.numToWin = numToWin;
+        this.kernel = kernel;
+        this.humanPieces = new long[capacity];
+        this.computerPieces = new long[capacity];
+        this.moverPieces = new long[capacity];
+        this.moveSquares = new int[capacity];
+
+        int numSquares = width * height;
+        this.shifts = new int[Directions.ALL.length];
+        this.windows = new long[Directions.ALL.length * numSquares];
+        for (int d = 0; d < Directions.ALL.length; d++) {
+            // Rows are walked towards higher bit indexes, so that they can be found by shifting right
+            int dx = Directions.ALL[d].xVec;
+            int dy = Directions.ALL[d].yVec;
+            if(dy * width + dx < 0) {
+                dx = -dx;
+                dy = -dy;
+            }
+            shifts[d] = dy * width + dx;
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if(!isWithinBounds(x + (numToWin - 1) * dx, y + (numToWin - 1) * dy))
+                        continue;
+                    for (int k = 0; k < numToWin; k++)
+                        windows[d * numSquares + getBitIndex(x + k * dx, y + k * dy)] |= 1L << getBitIndex(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether boards are checked with the Vector API.
+     * @return true if the vector kernel is available
+     */
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Returns the vector kernel, or null if it is not available.
+     * @return the vector kernel or null
+     */
+    static WinKernel getVectorKernel() {
+        return VECTOR;
+    }
+
+    /**
+     * Returns the number of boards.
+     * @return the number of boards
+     */
+    public int getCapacity() {
+        return humanPieces.length;
+    }
+
+    /**
+     * Copies the pieces of a game board.
+     * @param board the index of the board
+     * @param gameBoard the game board to copy, of the same size
+     * @throws IllegalArgumentException if the game board has a different size
+     */
+    public void setBoard(int board, ImmutableGameBoard gameBoard) {
+        if(gameBoard.getWidth() != width || gameBoard.getHeight() != height)
+            throw new IllegalArgumentException("The game board must be " + width + "x" + height + ".");
+
+        long human = 0;
+        long computer = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte square = gameBoard.getSquare(x, y);
+                if(square == TicTacToeGame.PLAYER)
+                    human |= 1L << getBitIndex(x, y);
+                else if(square == TicTacToeGame.COMPUTER)
+                    computer |= 1L << getBitIndex(x, y);
+            }
+        }
+        humanPieces[board] = human;
+        computerPieces[board] = computer;
+    }
+
+    /**
+     * Sets the content of a square of a board.
+     * @param board the index of the board
+     * @param pos the coordinate of the square
+     * @param type the new content of the square (EMPTY, PLAYER or COMPUTER)
+     * @throws IllegalArgumentException if the coordinate is outside the board or the type is invalid
+     */
+    public void setSquare(int board, Coordinate pos, byte type) {
+        if(!isWithinBounds(pos.x, pos.y))
+            throw new IllegalArgumentException("The coordinate " + pos + " is outside the game board.");
+        if(type != TicTacToeGame.EMPTY && type != TicTacToeGame.PLAYER && type != TicTacToeGame.COMPUTER)
+            throw new IllegalArgumentException("Invalid square type " + type + ".");
+
+        long bit = 1L << getBitIndex(pos.x, pos.y);
+        humanPieces[board] = type == TicTacToeGame.PLAYER ? humanPieces[board] | bit : humanPieces[board] & ~bit;
+        computerPieces[board] = type == TicTacToeGame.COMPUTER ? computerPieces[board] | bit : computerPieces[board] & ~bit;
+    }
+
+    /**
+     * Empties a board.
+     * @param board the index of the board
+     */
+    public void clear(int board) {
+        humanPieces[board] = 0;
+        computerPieces[board] = 0;
+    }
+
+    /**
+     * Checks for the first boards whether the player won the game with the move made on it.
+     *
+     * <p>The pieces and moves are first gathered into arrays of the player who moved on each
+     * board, and all the rows through the moves are then checked by the kernel.</p>
+     * @param players the player who made the move on each board (PLAYER or COMPUTER)
+     * @param playedMoves the move made on each board
+     * @param count the number of boards to check, from the first one
+     * @param results set to true for the boards where the player has won with the move, and false for the others
+     * @throws IllegalArgumentException if the count is larger than the capacity, or a move is outside the board
+     */
+    public void hasWon(byte[] players, Coordinate[] playedMoves, int count, boolean[] results) {
+        if(count > humanPieces.length)
+            throw new IllegalArgumentException("Only " + humanPieces.length + " boards can be checked.");
+
+        for (int i = 0; i < count; i++) {
+            Coordinate move = playedMoves[i];
+            if(!isWithinBounds(move.x, move.y))
+                throw new IllegalArgumentException("The move " + move + " is outside the game board.");
+            moverPieces[i] = players[i] == TicTacToeGame.COMPUTER ? computerPieces[i] : humanPieces[i];
+            moveSquares[i] = getBitIndex(move.x, move.y);
+        }
+        kernel.hasWon(moverPieces, moveSquares, count, windows, width * height, shifts, numToWin, results);
+    }
+
+    /**
+     * Returns the bit index of a square.
+     * @param x the x coordinate of the square
+     * @param y the y coordinate of the square
+     * @return the bit index of the square
+     */
+    private int getBitIndex(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Checks if the given coordinate is within the boards.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the coordinate is within the boards
+     */
+    private boolean isWithinBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Loads the vector kernel, if it has been compiled and the Vector API is available.
+     * @return the vector kernel, or null if it could not be loaded
+     */
+    private static WinKernel loadVectorKernel() {
+        try {
+            return (WinKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * A game board that stores the pieces of each player as bits in {@code long} words.
+ *
+ * <p>The bits are in the order of the square indexes of the game board, so each
+ * row is followed by one extra bit that is always zero. Because of the extra bit,
+ * a row of pieces can be found by shifting the bits of a player and combining them
+ * with AND, without the row wrapping around from one side of the game board to the other.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class BitGameBoard extends GameBoard {
+    /**
+     * The number of bits in a word.
+     */
+    private static final int WORD_SIZE = 64;
+
+    /**
+     * The bits of the human player.
+     */
+    private final long[] playerBits;
+
+    /**
+     * The bits of the computer player.
+     */
+    private final long[] computerBits;
+
+    /**
+     * The extra bits after the rows, which are outside the game board.
+     */
+    private final long[] outsideBits;
+
+    /**
+     * Creates a new BitGameBoard with the given width and height.
+     * @param width the width of the game board, must be greater than zero
+     * @param height the height of the game board, must be greater than zero
+     */
+    public BitGameBoard(int width, int height) {
+        super(width, height, false);
+
+        int numWords = (getIndexCount() + WORD_SIZE - 1) / WORD_SIZE;
+        this.playerBits = new long[numWords];
+        this.computerBits = new long[numWords];
+        this.outsideBits = new long[numWords];
+
+        for (int y = 0; y < height; y++) {
+            int index = getIndex(width, y);
+            outsideBits[index / WORD_SIZE] |= 1L << (index % WORD_SIZE);
+        }
+    }
+
+    /**
+     * Returns the content of the square at the given square index.
+     * @param index a square index within the game board
+     * @return the content of the square at the index
+     */
+    @Override
+    public byte getSquare(int index) {
+        if(isSet(playerBits, index))
+            return TicTacToeGame.PLAYER;
+        if(isSet(computerBits, index))
+            return TicTacToeGame.COMPUTER;
+        return TicTacToeGame.EMPTY;
+    }
+
+    /**
+     * Stores the value of the square at the given square index.
+     * @param index a square index within the game board
+     * @param value EMPTY, PLAYER or COMPUTER
+     */
+    @Override
+    protected void storeSquare(int index, byte value) {
+        int word = index / WORD_SIZE;
+        long mask = 1L << (index % WORD_SIZE);
+
+        playerBits[word] &= ~mask;
+        computerBits[word] &= ~mask;
+
+        switch(value) {
+            case TicTacToeGame.EMPTY:
+                break;
+            case TicTacToeGame.PLAYER:
+                playerBits[word] |= mask;
+                break;
+            case TicTacToeGame.COMPUTER:
+                computerBits[word] |= mask;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported square value: " + value);
+        }
+    }
+
+    /**
+     * Sets every square of the game board to empty.
+     */
+    @Override
+    protected void clearSquares() {
+        Arrays.fill(playerBits, 0);
+        Arrays.fill(computerBits, 0);
+    }
+
+    /**
+     * Counts the number of adjacent pieces of the given type, starting from
+     * the given square index and moving by the given offset, up to the given maximum.
+     *
+     * <p>The extra bit after each row is never set, so the pieces of a player
+     * are counted without checking the bounds of each square.</p>
+     * @param startIndex the square index of the starting position
+     * @param offset the offset of the direction that will be moved to
+     * @param type the type of square contents that must be matched
+     * @param includeStartPos whether the starting position is included
+     * @param max the maximum number of pieces to count
+     * @return the number of adjacent pieces in the given direction, at most {@code max}
+     */
+    @Override
+    public int getNumAdjacent(int startIndex, int offset, byte type, boolean includeStartPos, int max) {
+        long[] bits = getBits(type);
+        if(bits == null)
+            return super.getNumAdjacent(startIndex, offset, type, includeStartPos, max);
+
+        int nAdjacent = 0;
+        int index = includeStartPos ? startIndex : startIndex + offset;
+        int indexCount = getIndexCount();
+
+        while(nAdjacent < max && index >= 0 && index < indexCount && isSet(bits, index)) {
+            ++nAdjacent;
+            index += offset;
+        }
+
+        return nAdjacent;
+    }
+
+    /**
+     * Encodes the squares next to the given square in the given direction as a
+     * {@code LinePatterns} pattern of two bits per square, the nearest square first.
+     *
+     * <p>The extra bits after the rows are marked, so the end of the game board
+     * is found without dividing the square indexes by the width of a row.</p>
+     * @param startIndex the square index of the square next to which the pattern starts
+     * @param offset the offset of the direction
+     * @param player the player whose pieces are encoded as {@code LinePatterns.PLAYER}
+     * @param length the number of squares in the pattern
+     * @return the pattern
+     */
+    @Override
+    public int getLinePattern(int startIndex, int offset, byte player, int length) {
+        int pattern = 0;
+        int index = startIndex + offset;
+        int indexCount = getIndexCount();
+        int i = 0;
+
+        for (; i < length && index >= 0 && index < indexCount && !isSet(outsideBits, index); i++, index += offset)
+            pattern |= getPatternCode(getSquare(index), player) << (2 * i);
+
+        for (; i < length; i++)
+            pattern |= LinePatterns.OUTSIDE << (2 * i);
+
+        return pattern;
+    }
+
+    /**
+     * Checks if there is a row of at least {@code length} pieces of the given type
+     * going through the given coordinate in the given direction.
+     *
+     * <p>The bits of the player are shifted by one step in the direction {@code length - 1}
+     * times and combined with AND, 64 squares at a time. A bit that is left set marks
+     * the start of a long enough row. Only the words that contain the possible starting
+     * positions of a row through {@code pos} are calculated.</p>
+     * @param pos the coordinate that the row must go through
+     * @param dir the direction of the row
+     * @param type PLAYER or COMPUTER
+     * @param length the minimum length of the row
+     * @return true if there is a long enough row through the coordinate
+     */
+    @Override
+    public boolean isRowThrough(Coordinate pos, Direction dir, byte type, int length) {
+        if(!isWithinBounds(pos) || length <= 0)
+            return false;
+
+        long[] bits = getBits(type);
+        if(bits == null)
+            return super.isRowThrough(pos, dir, type, length);
+
+        // A step backwards is the same line as a step forwards,
+        // so the shift is always made towards the higher bits
+        int shift = Math.abs(getOffset(dir));
+        int bit = getIndex(pos.x, pos.y);
+        int lastWord = -1;
+        long rowStarts = 0;
+
+        for (int i = 0; i < length; i++) {
+            int start = bit - i * shift;
+            if(start < 0)
+                break;
+
+            int word = start / WORD_SIZE;
+            if(word != lastWord) {
+                rowStarts = getRowStarts(bits, word, shift, length);
+                lastWord = word;
+            }
+
+            if((rowStarts & (1L << (start % WORD_SIZE))) != 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Calculates the word that has a bit set for each position in the given word
+     * where a row of {@code length} set bits with the given distance starts.
+     * @param bits the bits of a player
+     * @param word the index of the word
+     * @param shift the distance between the bits of the row
+     * @param length the length of the row
+     * @return the starting positions of rows in the word
+     */
+    private static long getRowStarts(long[] bits, int word, int shift, int length) {
+        long rowStarts = bits[word];
+        int firstBit = word * WORD_SIZE;
+
+        for (int i = 1; i < length && rowStarts != 0; i++) {
+            rowStarts &= getWordAt(bits, firstBit + i * shift);
+        }
+
+        return rowStarts;
+    }
+
+    /**
+     * Returns the 64 bits that start at the given bit index.
+     * Bits past the end of the game board are zero.
+     * @param bits the bits of a player
+     * @param firstBit the index of the first bit
+     * @return the 64 bits starting from {@code firstBit}
+     */
+    private static long getWordAt(long[] bits, int firstBit) {
+        int word = firstBit / WORD_SIZE;
+        int offset = firstBit % WORD_SIZE;
+        if(word >= bits.length)
+            return 0;
+
+        long result = bits[word] >>> offset;
+        if(offset != 0 && word + 1 < bits.length)
+            result |= bits[word + 1] << (WORD_SIZE - offset);
+
+        return result;
+    }
+
+    /**
+     * Returns the bits of the given player.
+     * @param type PLAYER or COMPUTER
+     * @return the bits of the player or null for any other type
+     */
+    private long[] getBits(byte type) {
+        switch(type) {
+            case TicTacToeGame.PLAYER:
+                return playerBits;
+            case TicTacToeGame.COMPUTER:
+                return computerBits;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Tests whether the bit at the given index is set.
+     * @param bits the bits to test
+     * @param bit the index of the bit
+     * @return true if the bit is set
+     */
+    private static boolean isSet(long[] bits, int bit) {
+        return (bits[bit / WORD_SIZE] & (1L << (bit % WORD_SIZE))) != 0;
+    }
+}
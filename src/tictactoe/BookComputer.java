@@ -0,0 +1,41 @@
+package tictactoe;
+
+/**
+ * A {@code ComputerPlayer} that plays the moves of an {@code OpeningBook}
+ * and lets another computer player make the moves that are not in the book.
+ *
+ * @author Tapio Malmberg
+ */
+public class BookComputer extends DelegatingComputer {
+    /**
+     * The opening book.
+     */
+    private final OpeningBook book;
+
+    /**
+     * Creates a new BookComputer.
+     * @param book the opening book
+     * @param computer the computer player used for the positions that are not in the book
+     */
+    public BookComputer(OpeningBook book, ComputerPlayer computer) {
+        super(computer);
+        this.book = book;
+    }
+
+    /**
+     * Returns the book move, or the move of the other computer player
+     * if the position is not in the book.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the coordinate of the move
+     */
+    @Override
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        Coordinate move = book.getMove(gameBoard, numInARowToWin);
+        // A hash collision could give a move that is not available
+        if(move != null && gameBoard.isWithinBounds(move) && gameBoard.getSquare(move) == TicTacToeGame.EMPTY)
+            return move;
+
+        return computer.getMove(gameBoard, numInARowToWin);
+    }
+}
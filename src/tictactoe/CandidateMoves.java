@@ -0,0 +1,249 @@
+package tictactoe;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The empty squares of a game board that are at most a given distance away
+ * from a piece, kept up to date as the pieces are placed and removed.
+ *
+ * <p>The distance is measured in king moves, so with distance 1 the candidates
+ * are the empty squares next to the pieces, including diagonally. A square gets
+ * a priority from {@code SmartComputer} only if it is next to a piece, so the
+ * computer players do not need to look at the other squares.</p>
+ *
+ * <p>The candidates are stored as square indexes in an array, so they can be
+ * gone through without creating objects. Placing or removing a piece takes time
+ * in proportion to the size of the neighborhood, not the size of the game board.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class CandidateMoves {
+    /**
+     * The position of a square that is not a candidate.
+     */
+    private static final int NOT_CANDIDATE = -1;
+
+    /**
+     * The game board.
+     */
+    private final ImmutableGameBoard gameBoard;
+
+    /**
+     * How far from the pieces the candidates can be.
+     */
+    private final int distance;
+
+    /**
+     * The number of pieces at most {@code distance} away from each square, indexed by square index.
+     */
+    private final int[] nearbyPieces;
+
+    /**
+     * The square indexes of the candidates, in no particular order.
+     */
+    private final int[] candidates;
+
+    /**
+     * The position of each square in {@code candidates}, or {@code NOT_CANDIDATE}, indexed by square index.
+     */
+    private final int[] positions;
+
+    /**
+     * The number of candidates.
+     */
+    private int size;
+
+    /**
+     * Creates a new CandidateMoves for the pieces already on the game board.
+     * @param gameBoard the game board, whose changes must be passed to {@code squareChanged}
+     * @param distance how far from the pieces the candidates can be, must be greater than zero
+     */
+    CandidateMoves(ImmutableGameBoard gameBoard, int distance) {
+        if(distance <= 0)
+            throw new IllegalArgumentException("The distance must be greater than zero.");
+
+        this.gameBoard = gameBoard;
+        this.distance = distance;
+        this.nearbyPieces = new int[gameBoard.getIndexCount()];
+        this.candidates = new int[gameBoard.getWidth() * gameBoard.getHeight()];
+        this.positions = new int[gameBoard.getIndexCount()];
+
+        reset();
+    }
+
+    /**
+     * Returns how far from the pieces the candidates can be.
+     * @return the distance in king moves
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the number of candidates.
+     * @return the number of candidates
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a candidate.
+     *
+     * <p>The order of the candidates changes when the game board changes.</p>
+     * @param i the position of the candidate, from 0 to {@code size() - 1}
+     * @return the square index of the candidate
+     */
+    public int get(int i) {
+        if(i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Position " + i + " is not within 0-" + (size - 1) + ".");
+
+        return candidates[i];
+    }
+
+    /**
+     * Checks if the square at the given square index is a candidate.
+     * @param index a square index within the game board
+     * @return true if the square is empty and close enough to a piece
+     */
+    public boolean contains(int index) {
+        return positions[index] != NOT_CANDIDATE;
+    }
+
+    /**
+     * Copies the candidates to the given array, which can be gone through while the game board changes.
+     * @param destination the array, which must have room for {@code size()} candidates
+     * @return the number of candidates copied
+     */
+    public int copyTo(int[] destination) {
+        return copyTo(destination, 0);
+    }
+
+    /**
+     * Copies the candidates to the given array, starting from the given position.
+     * @param destination the array, which must have room for {@code size()} candidates after the position
+     * @param position the position of the first copied candidate in the array
+     * @return the number of candidates copied
+     */
+    public int copyTo(int[] destination, int position) {
+        System.arraycopy(candidates, 0, destination, position, size);
+        return size;
+    }
+
+    /**
+     * Returns an iterator over the square indexes of the candidates.
+     *
+     * <p>The game board must not be changed while the iterator is used.</p>
+     * @return an iterator that does not box the square indexes
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            /**
+             * The position of the next candidate.
+             */
+            private int next;
+
+            /**
+             * Checks if there are more candidates.
+             * @return true if {@code nextInt} returns a candidate
+             */
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            /**
+             * Returns the next candidate.
+             * @return the square index of the candidate
+             */
+            @Override
+            public int nextInt() {
+                if(next >= size)
+                    throw new NoSuchElementException();
+
+                return candidates[next++];
+            }
+        };
+    }
+
+    /**
+     * Updates the candidates after a square of the game board has changed.
+     * @param x the x value of the square
+     * @param y the y value of the square
+     * @param wasEmpty whether the square was empty before the change
+     * @param isEmpty whether the square is empty after the change
+     */
+    void squareChanged(int x, int y, boolean wasEmpty, boolean isEmpty) {
+        if(wasEmpty == isEmpty)
+            return;
+
+        int index = gameBoard.getIndex(x, y);
+        if(!isEmpty)
+            remove(index);
+
+        int change = isEmpty ? -1 : 1;
+        for (int squareY = Math.max(0, y - distance); squareY <= Math.min(gameBoard.getHeight() - 1, y + distance); squareY++) {
+            for (int squareX = Math.max(0, x - distance); squareX <= Math.min(gameBoard.getWidth() - 1, x + distance); squareX++) {
+                int square = gameBoard.getIndex(squareX, squareY);
+                nearbyPieces[square] += change;
+                if(square == index)
+                    continue;
+
+                if(nearbyPieces[square] == 0)
+                    remove(square);
+                else if(nearbyPieces[square] == 1 && change == 1 && gameBoard.getSquare(square) == TicTacToeGame.EMPTY)
+                    add(square);
+            }
+        }
+
+        // The square of a removed piece is a candidate if other pieces are still near it
+        if(isEmpty && nearbyPieces[index] > 0)
+            add(index);
+    }
+
+    /**
+     * Recalculates the candidates from the contents of the game board.
+     */
+    void reset() {
+        size = 0;
+        Arrays.fill(nearbyPieces, 0);
+        Arrays.fill(positions, NOT_CANDIDATE);
+
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(gameBoard.getSquare(x, y) != TicTacToeGame.EMPTY)
+                    squareChanged(x, y, true, false);
+            }
+        }
+    }
+
+    /**
+     * Adds a square to the candidates, if it is not one already.
+     * @param index the square index of the square
+     */
+    private void add(int index) {
+        if(positions[index] != NOT_CANDIDATE)
+            return;
+
+        positions[index] = size;
+        candidates[size++] = index;
+    }
+
+    /**
+     * Removes a square from the candidates, if it is one.
+     * @param index the square index of the square
+     */
+    private void remove(int index) {
+        int position = positions[index];
+        if(position == NOT_CANDIDATE)
+            return;
+
+        // The last candidate takes the place of the removed one
+        int last = candidates[--size];
+        candidates[position] = last;
+        positions[last] = position;
+        positions[index] = NOT_CANDIDATE;
+    }
+}
@@ -0,0 +1,86 @@
+package tictactoe;
+
+/**
+ * The canonical orientation of a game board, shared by all of its rotations and reflections.
+ *
+ * <p>Caches and books keyed by {@code hash} store each position only once, instead of
+ * once for each of its up to eight orientations. Moves are stored in the canonical
+ * orientation with {@code toCanonical} and turned back with {@code toOriginal}.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class CanonicalPosition {
+    /**
+     * The hash of the game board in the canonical orientation.
+     */
+    public final long hash;
+
+    /**
+     * The symmetry that turns the game board into the canonical orientation.
+     */
+    public final Symmetry symmetry;
+
+    /**
+     * The width of the game board.
+     */
+    private final int width;
+
+    /**
+     * The height of the game board.
+     */
+    private final int height;
+
+    /**
+     * Creates a new CanonicalPosition.
+     * @param hash the hash of the game board in the canonical orientation
+     * @param symmetry the symmetry that turns the game board into the canonical orientation
+     * @param width the width of the game board
+     * @param height the height of the game board
+     */
+    private CanonicalPosition(long hash, Symmetry symmetry, int width, int height) {
+        this.hash = hash;
+        this.symmetry = symmetry;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Finds the canonical orientation of the given game board.
+     *
+     * <p>The canonical orientation is the one with the smallest hash. The hashes
+     * of every orientation are calculated in a single pass over the game board.</p>
+     * @param gameBoard the game board
+     * @return the canonical position of the game board
+     */
+    public static CanonicalPosition of(ImmutableGameBoard gameBoard) {
+        int width = gameBoard.getWidth();
+        int height = gameBoard.getHeight();
+        long[] hashes = Symmetry.getHashes(gameBoard);
+
+        Symmetry canonical = Symmetry.IDENTITY;
+        for (Symmetry symmetry : Symmetry.VALUES) {
+            if(symmetry.isSymmetryOf(width, height) && hashes[symmetry.ordinal()] < hashes[canonical.ordinal()])
+                canonical = symmetry;
+        }
+
+        return new CanonicalPosition(hashes[canonical.ordinal()], canonical, width, height);
+    }
+
+    /**
+     * Turns a coordinate of the game board into the canonical orientation.
+     * @param pos a coordinate in the original orientation
+     * @return the coordinate in the canonical orientation
+     */
+    public Coordinate toCanonical(Coordinate pos) {
+        return symmetry.apply(pos, width, height);
+    }
+
+    /**
+     * Turns a coordinate in the canonical orientation back into the original orientation.
+     * @param pos a coordinate in the canonical orientation
+     * @return the coordinate in the original orientation
+     */
+    public Coordinate toOriginal(Coordinate pos) {
+        return symmetry.inverse().apply(pos, width, height);
+    }
+}
@@ -3,9 +3,12 @@ package tictactoe;
 /**
  * Interface for generating a move for the computer player.
  *
+ * <p>A computer player that runs threads of its own stops them when it is closed,
+ * so the code that creates a computer player should close it once it is no longer used.</p>
+ *
  * @author Tapio Malmberg
  */
-public interface ComputerPlayer {
+public interface ComputerPlayer extends AutoCloseable {
     /**
      * Calculates a valid move based on the game board and
      * the number of pieces in a row needed to win.
@@ -14,4 +17,13 @@ public interface ComputerPlayer {
      * @return the coordinate of the calculated move
      */
     Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin);
+
+    /**
+     * Stops the threads of the computer player and releases its other resources.
+     * The computer player must not be used after it has been closed.
+     * The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+    }
 }
\ No newline at end of file
@@ -6,6 +6,24 @@ package tictactoe;
  * @author Tapio Malmberg
  */
 public class Coordinate {
+    /**
+     * The size of the side of the area whose coordinates are cached.
+     */
+    private static final int CACHE_SIZE = 128;
+
+    /**
+     * The cached coordinates, indexed by [y * CACHE_SIZE + x].
+     */
+    private static final Coordinate[] CACHE = new Coordinate[CACHE_SIZE * CACHE_SIZE];
+
+    static {
+        for (int y = 0; y < CACHE_SIZE; y++) {
+            for (int x = 0; x < CACHE_SIZE; x++) {
+                CACHE[y * CACHE_SIZE + x] = new Coordinate(x, y);
+            }
+        }
+    }
+
     /**
      * The X value.
      */
@@ -26,6 +44,22 @@ public class Coordinate {
         this.y = y;
     }
 
+    /**
+     * Returns a Coordinate at ({@code x}, {@code y}).
+     * 
+     * <p>Coordinates that are on game boards of normal size
+     * are cached, so no new object is created for them.</p>
+     * @param x the x value of the coordinate
+     * @param y the y value of the coordinate
+     * @return a coordinate at ({@code x}, {@code y})
+     */
+    public static Coordinate of(int x, int y) {
+        if(x >= 0 && x < CACHE_SIZE && y >= 0 && y < CACHE_SIZE)
+            return CACHE[y * CACHE_SIZE + x];
+        else
+            return new Coordinate(x, y);
+    }
+
     /**
      * Returns true if the coordinates have the same x and y values.
      * @param other the coordinate to compare to
@@ -54,6 +88,6 @@ public class Coordinate {
      * @return the coordinate of the new position
      */
     public Coordinate move(Direction dir, int times) {
-        return new Coordinate(x + dir.xVec * times, y + dir.yVec * times);
+        return of(x + dir.xVec * times, y + dir.yVec * times);
     }
 }
\ No newline at end of file
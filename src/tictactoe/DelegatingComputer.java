@@ -0,0 +1,62 @@
+package tictactoe;
+
+/**
+ * A {@code ComputerPlayer} that lets another computer player make some or all of its moves.
+ *
+ * <p>Changes to the game board are passed on to the other computer player, if it listens
+ * to moves, so it stays up to date also while it is not asked for moves. Closing this
+ * computer player closes the other one.</p>
+ *
+ * @author Tapio Malmberg
+ */
+abstract class DelegatingComputer implements ComputerPlayer, MoveListener {
+    /**
+     * The other computer player.
+     */
+    protected final ComputerPlayer computer;
+
+    /**
+     * The other computer player as a MoveListener, or null if it does not listen to moves.
+     */
+    private final MoveListener moveListener;
+
+    /**
+     * Creates a new DelegatingComputer.
+     * @param computer the other computer player
+     */
+    protected DelegatingComputer(ComputerPlayer computer) {
+        this.computer = computer;
+        this.moveListener = computer instanceof MoveListener ? (MoveListener)computer : null;
+    }
+
+    /**
+     * Passes the change on to the other computer player.
+     * @param gameBoard the game board
+     * @param pos the coordinate of the square that was changed
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    @Override
+    public void squareChanged(ImmutableGameBoard gameBoard, Coordinate pos, int numInARowToWin) {
+        if(moveListener != null)
+            moveListener.squareChanged(gameBoard, pos, numInARowToWin);
+    }
+
+    /**
+     * Passes the reset on to the other computer player.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    @Override
+    public void gameBoardReset(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        if(moveListener != null)
+            moveListener.gameBoardReset(gameBoard, numInARowToWin);
+    }
+
+    /**
+     * Closes the other computer player.
+     */
+    @Override
+    public void close() {
+        computer.close();
+    }
+}
@@ -16,6 +16,11 @@ class Direction {
      */
     public final int yVec;
 
+    /**
+     * The direction with the x and y vectors reversed.
+     */
+    private final Direction reversed;
+
     /**
      * Creates a new Direction with the given x and y vectors.
      * @param xVec the x vector
@@ -24,13 +29,26 @@ class Direction {
     public Direction(int xVec, int yVec) {
         this.xVec = xVec;
         this.yVec = yVec;
+        this.reversed = new Direction(this);
+    }
+
+    /**
+     * Creates the reverse of the given Direction.
+     * @param reversed the direction to reverse
+     */
+    private Direction(Direction reversed) {
+        this.xVec = -reversed.xVec;
+        this.yVec = -reversed.yVec;
+        this.reversed = reversed;
     }
 
     /**
      * Returns a {@code Direction} with the x and y vectors reversed.
+     * 
+     * <p>The reversed direction is created only once, together with this direction.</p>
      * @return the reversed direction
      */
     public Direction reverse() {
-        return new Direction(-xVec, -yVec);
+        return reversed;
     }
 }
\ No newline at end of file
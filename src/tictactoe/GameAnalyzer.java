@@ -0,0 +1,456 @@
+package tictactoe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Replays archived games and compares every move with the move a computer player would make.
+ *
+ * <p>The games are read as {@code MoveLog} game records from a stream, one at a time,
+ * and handed to worker threads through a bounded queue, so the memory use does not
+ * depend on the number of games. Each worker has its own computer players and game
+ * boards, which are reused between games, and replays the moves of a game through
+ * {@code GameBoard} and {@code VictoryChecker}. Computer players always make moves
+ * with the {@code COMPUTER} pieces, so, like in {@code SelfPlayGame}, both sides of a
+ * game have their own game board and computer player.</p>
+ *
+ * <p>A line of results is written for each game as soon as it has been analyzed,
+ * so the lines are not in the order of the games. The lines have the number of the
+ * game in the stream, the state at its end, and the agreed and analyzed moves of the
+ * player and the computer, separated by commas.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class GameAnalyzer {
+    /**
+     * The first line written to the results.
+     */
+    public static final String RESULTS_HEADER = "game,result,player agreed,player moves,computer agreed,computer moves";
+
+    /**
+     * The result written for a game with an invalid move.
+     */
+    public static final String INVALID_GAME = "INVALID";
+
+    /**
+     * The number of games waiting in the queue for each worker thread.
+     * A few games per thread keep the threads busy while the stream is read.
+     */
+    private static final int QUEUE_SIZE_PER_THREAD = 4;
+
+    /**
+     * Marks the end of the games in the queue.
+     */
+    private static final ArchivedGame END = new ArchivedGame(-1, null);
+
+    /**
+     * Creates the computer player whose moves are compared with the archived moves.
+     */
+    private final Supplier<? extends ComputerPlayer> analyst;
+
+    /**
+     * The number of worker threads.
+     */
+    private final int numThreads;
+
+    /**
+     * Creates a new GameAnalyzer.
+     * @param analyst creates a new instance of the computer player whose moves are compared,
+     *                which is closed once its worker thread has ended
+     * @param numThreads the number of worker threads, must be greater than zero
+     */
+    public GameAnalyzer(Supplier<? extends ComputerPlayer> analyst, int numThreads) {
+        if(numThreads <= 0)
+            throw new IllegalArgumentException("The number of threads must be greater than zero.");
+
+        this.analyst = analyst;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Analyzes every game record in the stream.
+     *
+     * <p>The records are read on the calling thread, which should give a buffered stream.
+     * The results writer is shared by the worker threads, so it should be buffered too.
+     * It is not closed.</p>
+     * @param records the stream of game records, read until its end
+     * @param results the writer the results of each game are written to
+     * @return the results of all the games
+     * @throws IOException if reading a record or writing the results fails
+     */
+    public AnalysisResult analyze(InputStream records, Writer results) throws IOException {
+        long startTime = System.nanoTime();
+        results.write(RESULTS_HEADER);
+        results.write(System.lineSeparator());
+
+        BlockingQueue<ArchivedGame> queue = new ArrayBlockingQueue<ArchivedGame>(numThreads * QUEUE_SIZE_PER_THREAD);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, createThreadFactory());
+        List<Future<AnalysisResult>> futures = new ArrayList<Future<AnalysisResult>>();
+        AnalysisResult result = new AnalysisResult();
+
+        try {
+            List<Worker> workers = new ArrayList<Worker>();
+            for (int i = 0; i < numThreads; i++) {
+                Worker worker = new Worker(queue, results);
+                workers.add(worker);
+                futures.add(executor.submit(worker));
+            }
+
+            try {
+                readGames(records, queue, workers);
+            } finally {
+                // The workers stop at the end marker, also when reading failed
+                for (int i = 0; i < numThreads; i++)
+                    putUninterruptibly(queue, END);
+            }
+
+            for (Future<AnalysisResult> future : futures)
+                result.addAll(getResult(future));
+        } finally {
+            executor.shutdown();
+        }
+
+        results.flush();
+        result.setElapsedNanos(System.nanoTime() - startTime);
+        return result;
+    }
+
+    /**
+     * Reads the game records and puts them into the queue, until the stream ends or a worker fails.
+     * @param records the stream of game records
+     * @param queue the queue of the workers
+     * @param workers the workers
+     * @throws IOException if reading a record fails
+     */
+    private static void readGames(InputStream records, BlockingQueue<ArchivedGame> queue, List<Worker> workers) throws IOException {
+        long number = 0;
+        MoveLog log;
+        while((log = MoveLog.read(records)) != null) {
+            putUninterruptibly(queue, new ArchivedGame(number++, log));
+            // A failed worker still empties the queue, but there is no point in reading further
+            for (Worker worker : workers) {
+                if(worker.failed)
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Puts a game into the queue, waiting for space.
+     *
+     * <p>The workers keep taking games from the queue, so an interrupt does not
+     * cut the wait short. It is set again once the game is in the queue.</p>
+     * @param queue the queue
+     * @param game the game
+     */
+    private static void putUninterruptibly(BlockingQueue<ArchivedGame> queue, ArchivedGame game) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                queue.put(game);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Waits for the result of a worker.
+     *
+     * <p>The worker ends once it has taken the end marker, so an interrupt does not
+     * cut the wait short. It is set again once the result is available.</p>
+     * @param future the future of the worker
+     * @return the result of the worker
+     * @throws IOException if the worker failed to write the results
+     */
+    private static AnalysisResult getResult(Future<AnalysisResult> future) throws IOException {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if(cause instanceof IOException)
+                        throw (IOException)cause;
+                    if(cause instanceof RuntimeException)
+                        throw (RuntimeException)cause;
+                    if(cause instanceof Error)
+                        throw (Error)cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the factory of the worker threads.
+     * @return a thread factory that creates named daemon threads
+     */
+    private static ThreadFactory createThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "tictactoe-analysis-" + threadNumber.incrementAndGet());
+            // A computer player may keep a worker busy after a failure, which must not keep the program running
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A game record and its number in the stream.
+     */
+    private static class ArchivedGame {
+        /**
+         * The number of the game in the stream, counted from 0.
+         */
+        final long number;
+
+        /**
+         * The moves of the game.
+         */
+        final MoveLog log;
+
+        /**
+         * Creates a new ArchivedGame.
+         * @param number the number of the game in the stream
+         * @param log the moves of the game
+         */
+        ArchivedGame(long number, MoveLog log) {
+            this.number = number;
+            this.log = log;
+        }
+    }
+
+    /**
+     * Takes games from the queue and analyzes them until it takes the end marker.
+     */
+    private class Worker implements Callable<AnalysisResult> {
+        /**
+         * The queue the games are taken from.
+         */
+        private final BlockingQueue<ArchivedGame> queue;
+
+        /**
+         * The writer the results of each game are written to. Guarded by itself.
+         */
+        private final Writer results;
+
+        /**
+         * The results of the games analyzed by this worker.
+         */
+        private final AnalysisResult result = new AnalysisResult();
+
+        /**
+         * The game boards of the player and the computer of the archived game,
+         * where the pieces of that side are {@code COMPUTER} pieces.
+         */
+        private final GameBoard[] gameBoards = new GameBoard[2];
+
+        /**
+         * The read-only views of the game boards.
+         */
+        private final ImmutableGameBoard[] gameBoardViews = new ImmutableGameBoard[2];
+
+        /**
+         * The computer players that choose the moves of the player and the computer of the archived game.
+         */
+        private final ComputerPlayer[] analysts = new ComputerPlayer[2];
+
+        /**
+         * The computer players as MoveListeners, or null for the ones that do not listen to moves.
+         */
+        private final MoveListener[] moveListeners = new MoveListener[2];
+
+        /**
+         * The agreed and analyzed moves of the current game, indexed by side.
+         */
+        private final int[] gameAgreements = new int[2], gameMoves = new int[2];
+
+        /**
+         * The line of results of the current game.
+         */
+        private final StringBuilder line = new StringBuilder();
+
+        /**
+         * Set when the worker has failed. The worker keeps emptying the queue until the end marker.
+         */
+        volatile boolean failed;
+
+        /**
+         * Creates a new Worker.
+         * @param queue the queue the games are taken from
+         * @param results the writer the results of each game are written to
+         */
+        Worker(BlockingQueue<ArchivedGame> queue, Writer results) {
+            this.queue = queue;
+            this.results = results;
+            for (int i = 0; i < 2; i++) {
+                analysts[i] = analyst.get();
+                if(analysts[i] instanceof MoveListener)
+                    moveListeners[i] = (MoveListener)analysts[i];
+            }
+        }
+
+        /**
+         * Analyzes games until the end marker.
+         * @return the results of the games analyzed by this worker
+         * @throws IOException if writing the results fails
+         */
+        @Override
+        public AnalysisResult call() throws IOException {
+            boolean done = false;
+            try {
+                ArchivedGame game;
+                while((game = takeUninterruptibly()) != END) {
+                    analyzeGame(game);
+                }
+
+                done = true;
+                return result;
+            } finally {
+                if(!done) {
+                    failed = true;
+                    // The reader must not wait for space in a queue that nobody empties
+                    while(takeUninterruptibly() != END) { }
+                }
+                for (ComputerPlayer player : analysts)
+                    player.close();
+            }
+        }
+
+        /**
+         * Replays a game, asks the computer player for its move before every move,
+         * and writes the line of results.
+         * @param game the game
+         * @throws IOException if writing the results fails
+         */
+        private void analyzeGame(ArchivedGame game) throws IOException {
+            MoveLog log = game.log;
+            int numInARowToWin = log.getNumInARowToWin();
+            reset(log.getWidth(), log.getHeight(), numInARowToWin);
+
+            GameState state = GameState.READY_FOR_NEXT_MOVE;
+            boolean valid = true;
+            for (int i = 0; i < log.getPly(); i++) {
+                Coordinate move = Coordinate.of(log.getX(i), log.getY(i));
+                byte player = log.getPlayer(i);
+                int side = player - TicTacToeGame.PLAYER;
+                if(state != GameState.READY_FOR_NEXT_MOVE || gameBoards[side].getSquare(move) != TicTacToeGame.EMPTY) {
+                    valid = false;
+                    break;
+                }
+
+                Coordinate choice = analysts[side].getMove(gameBoardViews[side], numInARowToWin);
+                boolean agreed = move.equals(choice);
+                result.addMove(player, agreed);
+                ++gameMoves[side];
+                if(agreed)
+                    ++gameAgreements[side];
+
+                makeMove(side, move, numInARowToWin);
+                if(VictoryChecker.hasWon(gameBoards[side], TicTacToeGame.COMPUTER, move, numInARowToWin))
+                    state = player == TicTacToeGame.PLAYER ? GameState.PLAYER_WON : GameState.COMPUTER_WON;
+                else if(i + 1 == log.getWidth() * log.getHeight())
+                    state = GameState.DRAW_GAME;
+            }
+
+            result.addGame(valid);
+            writeLine(game.number, valid ? state.toString() : INVALID_GAME);
+        }
+
+        /**
+         * Creates or empties the game boards for a game and notifies the computer players.
+         * @param width the width of the game board
+         * @param height the height of the game board
+         * @param numInARowToWin the number of pieces in a row needed to win
+         */
+        private void reset(int width, int height, int numInARowToWin) {
+            for (int i = 0; i < 2; i++) {
+                // Most archived games have the same size, so a game board is only created when it changes
+                if(gameBoards[i] == null || gameBoards[i].getWidth() != width || gameBoards[i].getHeight() != height) {
+                    gameBoards[i] = GameBoard.create(width, height);
+                    gameBoards[i].trackCandidateMoves(1);
+                    gameBoardViews[i] = gameBoards[i].asImmutable();
+                } else {
+                    gameBoards[i].fillBoard(TicTacToeGame.EMPTY);
+                }
+
+                gameAgreements[i] = 0;
+                gameMoves[i] = 0;
+                if(moveListeners[i] != null)
+                    moveListeners[i].gameBoardReset(gameBoardViews[i], numInARowToWin);
+            }
+        }
+
+        /**
+         * Sets a move on both game boards and notifies the computer players.
+         * @param side 0 if the player made the move, 1 if the computer made it
+         * @param move the move
+         * @param numInARowToWin the number of pieces in a row needed to win
+         */
+        private void makeMove(int side, Coordinate move, int numInARowToWin) {
+            for (int i = 0; i < 2; i++) {
+                gameBoards[i].setSquare(move, i == side ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER);
+                if(moveListeners[i] != null)
+                    moveListeners[i].squareChanged(gameBoardViews[i], move, numInARowToWin);
+            }
+        }
+
+        /**
+         * Writes the line of results of the current game.
+         * @param number the number of the game in the stream
+         * @param state the state at the end of the game, or {@code INVALID_GAME}
+         * @throws IOException if writing fails
+         */
+        private void writeLine(long number, String state) throws IOException {
+            line.setLength(0);
+            line.append(number).append(',').append(state);
+            for (int i = 0; i < 2; i++)
+                line.append(',').append(gameAgreements[i]).append(',').append(gameMoves[i]);
+            line.append(System.lineSeparator());
+
+            synchronized(results) {
+                results.append(line);
+            }
+        }
+
+        /**
+         * Takes the next game from the queue, waiting for one to arrive.
+         *
+         * <p>The reader always ends the queue with the end marker, so an interrupt does not
+         * cut the wait short. It is set again once a game has been taken.</p>
+         * @return the game, or {@code END}
+         */
+        private ArchivedGame takeUninterruptibly() {
+            boolean interrupted = false;
+            try {
+                while(true) {
+                    try {
+                        return queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if(interrupted)
+                    Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package tictactoe;
 
+import java.util.Arrays;
+
 /**
  * Represents a 2D game board that can be edited.
  *
  * @author Tapio Malmberg
  */
 class GameBoard extends ImmutableGameBoard {
+    /**
+     * The Zobrist hash of the pieces on the game board.
+     */
+    private long hash;
+
+    /**
+     * The candidate moves kept up to date with the game board, or null if they are not tracked.
+     */
+    private CandidateMoves candidateMoves;
+
     /**
      * Creates a new GameBoard with the given width and height.
      * @param width the width of the game board, must be greater than zero
@@ -15,11 +27,64 @@ class GameBoard extends ImmutableGameBoard {
         super(width, height);
     }
 
+    /**
+     * Creates a new GameBoard with the given width and height.
+     * 
+     * <p>Subclasses that store the squares in some other way do not
+     * store the squares in this class and override the methods that access them.</p>
+     * @param width the width of the game board, must be greater than zero
+     * @param height the height of the game board, must be greater than zero
+     * @param storeSquares whether the squares are stored in {@code ImmutableGameBoard}
+     */
+    protected GameBoard(int width, int height, boolean storeSquares) {
+        super(width, height, storeSquares);
+    }
+
+    /**
+     * Creates a new empty game board with the given width and height.
+     * 
+     * <p>Large game boards store the pieces as bits,
+     * which makes checking for victory faster.</p>
+     * @param width the width of the game board, must be greater than zero
+     * @param height the height of the game board, must be greater than zero
+     * @return a new empty game board
+     */
+    public static GameBoard create(int width, int height) {
+        if(TicTacToeGame.isLargeGameBoard(width, height))
+            return new BitGameBoard(width, height);
+        else
+            return new GameBoard(width, height);
+    }
+
+    /**
+     * Creates a new game board that has the same contents as the given game board.
+     * @param other the game board to copy
+     * @return a new game board that can be edited without affecting {@code other}
+     */
+    public static GameBoard copyOf(ImmutableGameBoard other) {
+        GameBoard copy = create(other.getWidth(), other.getHeight());
+        for (int y = 0; y < other.getHeight(); y++) {
+            for (int x = 0; x < other.getWidth(); x++) {
+                copy.setSquare(x, y, other.getSquare(x, y));
+            }
+        }
+
+        return copy;
+    }
+
     /**
      * Fills the whole game board with the given value.
      * @param value the value that the game board will be filled with
      */
     public void fillBoard(byte value) {
+        if(value == TicTacToeGame.EMPTY) {
+            clearSquares();
+            hash = 0;
+            if(candidateMoves != null)
+                candidateMoves.reset();
+            return;
+        }
+
         for (int x = 0; x < getWidth(); x++) {
             for (int y = 0; y < getHeight(); y++) {
                 setSquare(x, y, value);
@@ -43,7 +108,73 @@ class GameBoard extends ImmutableGameBoard {
      * @param value the value that the square will be set to
      */
     public void setSquare(int x, int y, byte value) {
-        board[y][x] = value;
+        checkBounds(x, y);
+        int index = getIndex(x, y);
+        byte oldValue = getSquare(index);
+        hash ^= Zobrist.getKey(x, y, oldValue) ^ Zobrist.getKey(x, y, value);
+        storeSquare(index, value);
+
+        if(candidateMoves != null)
+            candidateMoves.squareChanged(x, y, oldValue == TicTacToeGame.EMPTY, value == TicTacToeGame.EMPTY);
+    }
+
+    /**
+     * Returns the Zobrist hash of the pieces on the game board.
+     * 
+     * <p>The hash is updated every time a square is changed.</p>
+     * @return the hash of the game board
+     */
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Starts keeping track of the empty squares near the pieces on the game board.
+     * 
+     * <p>The candidate moves are updated every time a square is changed.
+     * If they are already tracked with the same distance, the existing ones are returned.</p>
+     * @param distance how far from the pieces the candidates can be, must be greater than zero
+     * @return the candidate moves of this game board
+     */
+    public CandidateMoves trackCandidateMoves(int distance) {
+        if(candidateMoves == null || candidateMoves.getDistance() != distance)
+            candidateMoves = new CandidateMoves(this, distance);
+
+        return candidateMoves;
+    }
+
+    /**
+     * Returns the candidate moves of this game board.
+     * @return the candidate moves, or null if they are not tracked
+     */
+    @Override
+    public CandidateMoves getCandidateMoves() {
+        return candidateMoves;
+    }
+
+    /**
+     * Stores the value of the square at the given square index.
+     * 
+     * <p>Subclasses that store the squares in some other way override this
+     * instead of {@code setSquare}, which keeps the hash up to date.</p>
+     * @param index a square index within the game board
+     * @param value the value that the square will be set to
+     */
+    protected void storeSquare(int index, byte value) {
+        squares[index] = value;
+    }
+
+    /**
+     * Sets every square of the game board to empty.
+     */
+    protected void clearSquares() {
+        Arrays.fill(squares, TicTacToeGame.EMPTY);
+
+        // Restore the indexes between the rows
+        for (int y = 0; y < getHeight(); y++) {
+            squares[getIndex(getWidth(), y)] = OUT_OF_BOUNDS;
+        }
     }
 
     /**
@@ -51,6 +182,6 @@ class GameBoard extends ImmutableGameBoard {
      * @return this game board as an immutable game board
      */
     public ImmutableGameBoard asImmutable() {
-        return new ImmutableGameBoard(this);
+        return new GameBoardView(this);
     }
 }
\ No newline at end of file
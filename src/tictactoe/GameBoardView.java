@@ -0,0 +1,93 @@
+package tictactoe;
+
+/**
+ * A read-only view of a game board.
+ * 
+ * <p>All the methods that access the squares are delegated to the viewed
+ * game board, so the view reflects any changes made to it.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class GameBoardView extends ImmutableGameBoard {
+    /**
+     * The game board that is viewed.
+     */
+    private final ImmutableGameBoard gameBoard;
+
+    /**
+     * Creates a new read-only view of the given game board.
+     * @param gameBoard the game board to view
+     */
+    public GameBoardView(ImmutableGameBoard gameBoard) {
+        super(gameBoard.getWidth(), gameBoard.getHeight(), false);
+        this.gameBoard = gameBoard;
+    }
+
+    /**
+     * Returns the content of the square at the given square index of the viewed game board.
+     * @param index a square index within the game board
+     * @return the content of the square at the index
+     */
+    @Override
+    public byte getSquare(int index) {
+        return gameBoard.getSquare(index);
+    }
+
+    /**
+     * Returns the Zobrist hash of the viewed game board.
+     * @return the hash of the game board
+     */
+    @Override
+    public long getHash() {
+        return gameBoard.getHash();
+    }
+
+    /**
+     * Returns the candidate moves of the viewed game board.
+     * @return the candidate moves, or null if they are not tracked
+     */
+    @Override
+    public CandidateMoves getCandidateMoves() {
+        return gameBoard.getCandidateMoves();
+    }
+
+    /**
+     * Counts the number of adjacent pieces on the viewed game board.
+     * @param startIndex the square index of the starting position
+     * @param offset the offset of the direction that will be moved to
+     * @param type the type of square contents that must be matched
+     * @param includeStartPos whether the starting position is included
+     * @param max the maximum number of pieces to count
+     * @return the number of adjacent pieces in the given direction, at most {@code max}
+     */
+    @Override
+    public int getNumAdjacent(int startIndex, int offset, byte type, boolean includeStartPos, int max) {
+        return gameBoard.getNumAdjacent(startIndex, offset, type, includeStartPos, max);
+    }
+
+    /**
+     * Encodes the squares next to the given square on the viewed game board as a line pattern.
+     * @param startIndex the square index of the square before the pattern
+     * @param offset the offset of the direction of the pattern
+     * @param player the player whose pieces are encoded as {@code LinePatterns.PLAYER}
+     * @param length the number of squares in the pattern
+     * @return the line pattern
+     */
+    @Override
+    public int getLinePattern(int startIndex, int offset, byte player, int length) {
+        return gameBoard.getLinePattern(startIndex, offset, player, length);
+    }
+
+    /**
+     * Checks if there is a long enough row through the given coordinate on the viewed game board.
+     * @param pos the coordinate that the row must go through
+     * @param dir the direction of the row
+     * @param type the type of square contents that must be matched
+     * @param length the minimum length of the row
+     * @return true if there is a long enough row through the coordinate
+     */
+    @Override
+    public boolean isRowThrough(Coordinate pos, Direction dir, byte type, int length) {
+        return gameBoard.isRowThrough(pos, dir, type, length);
+    }
+}
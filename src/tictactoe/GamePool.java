@@ -0,0 +1,520 @@
+package tictactoe;
+
+/**
+ * Many Tic-Tac-Toe games of the same size, kept in shared arrays and addressed by game id.
+ *
+ * <p>A {@code TicTacToeGame} has its own game board, move log and computer player, which
+ * cost hundreds of bytes even for a 3x3 game. A pool stores each game in two bits per
+ * square of a shared {@code long} array, the squares of its last round in one {@code int}
+ * and its state in one {@code byte}, so that a 3x3 game takes 17 bytes and a 15x15 game
+ * 73 bytes, including the id on the free list.
+ * The moves of a game are played on one game board shared by all the games, into which
+ * the game is copied when it is not already there, and the games share one computer player.
+ * A computer player that is a {@code MoveListener} is told that the game board was reset
+ * whenever another game is copied into it.</p>
+ *
+ * <p>Only the last round of a game can be undone, and undone rounds cannot be redone.
+ * Games that need the whole move history should use {@code TicTacToeGame}.
+ * The pool is not thread-safe.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class GamePool {
+    /**
+     * The largest number of squares on the game board. The squares of the last round are
+     * stored in 16 bits each, and the largest value means that there is no move.
+     */
+    public static final int MAX_SQUARES = TicTacToeGame.MAX_SQUARES;
+
+    /**
+     * The number of squares stored in one element of the squares array.
+     */
+    private static final int SQUARES_PER_WORD = Long.SIZE / 2;
+
+    /**
+     * The low bit of every square in a word.
+     */
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    /**
+     * The stored value of a square of the last round when there is no move.
+     */
+    private static final int NO_MOVE = MAX_SQUARES;
+
+    /**
+     * The game states, indexed by ordinal.
+     */
+    private static final GameState[] GAME_STATES = GameState.values();
+
+    /**
+     * The width of the game boards.
+     */
+    private final int width;
+
+    /**
+     * The height of the game boards.
+     */
+    private final int height;
+
+    /**
+     * The number of pieces needed in a row to win.
+     */
+    private final int numInARowToWin;
+
+    /**
+     * The computer player of every game.
+     */
+    private final ComputerPlayer computerPlayer;
+
+    /**
+     * The computer player as a MoveListener, or null if it does not want to be notified of moves.
+     */
+    private final MoveListener moveListener;
+
+    /**
+     * The number of elements of the squares array used by one game.
+     */
+    private final int wordsPerGame;
+
+    /**
+     * The squares of the games, two bits per square, indexed by
+     * [id * wordsPerGame + square / SQUARES_PER_WORD], where square is y * width + x.
+     */
+    private final long[] squares;
+
+    /**
+     * The squares of the last round of each game, the move of the player in the low 16 bits
+     * and the move of the computer in the high 16 bits, or {@code NO_MOVE}.
+     */
+    private final int[] lastRounds;
+
+    /**
+     * The state of each game after its last move, as an ordinal of {@code GameState}.
+     */
+    private final byte[] states;
+
+    /**
+     * Set for the ids of the games in use.
+     */
+    private final long[] used;
+
+    /**
+     * The ids of the free games, used as a stack.
+     */
+    private final int[] freeIds;
+
+    /**
+     * The number of free games.
+     */
+    private int numFree;
+
+    /**
+     * The game board the moves are played on.
+     */
+    private final GameBoard gameBoard;
+
+    /**
+     * The read-only view of the game board given to the computer player.
+     */
+    private final ImmutableGameBoard gameBoardView;
+
+    /**
+     * The id of the game on the game board, or -1 if it has no game.
+     */
+    private int loadedId = -1;
+
+    /**
+     * The number of pieces on the game board.
+     */
+    private int loadedPieces;
+
+    /**
+     * Creates a new GamePool with room for the given number of games.
+     * @param width the width of the game boards
+     * @param height the height of the game boards
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param computer the computer player of every game
+     * @param capacity the largest number of games in use at the same time
+     * @throws IllegalArgumentException if the size, the number of pieces to win or the capacity is not valid
+     */
+    public GamePool(int width, int height, int numInARowToWin, ComputerPlayer computer, int capacity) {
+        if(width < TicTacToeGame.MIN_WIDTH)
+            throw new IllegalArgumentException("Width must be " + TicTacToeGame.MIN_WIDTH + " or greater.");
+        if(height < TicTacToeGame.MIN_HEIGHT)
+            throw new IllegalArgumentException("Height must be " + TicTacToeGame.MIN_HEIGHT + " or greater.");
+        if((long)width * height > MAX_SQUARES)
+            throw new IllegalArgumentException("The game board cannot have more than " + MAX_SQUARES + " squares.");
+        if(numInARowToWin < TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL)
+            throw new IllegalArgumentException("The number of game pieces in a row needed to win has to be at least " + TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL +".");
+        if(capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be greater than zero.");
+
+        this.width = width;
+        this.height = height;
+        this.numInARowToWin = numInARowToWin;
+        this.computerPlayer = computer;
+        this.moveListener = computer instanceof MoveListener ? (MoveListener)computer : null;
+        this.wordsPerGame = (width * height + SQUARES_PER_WORD - 1) / SQUARES_PER_WORD;
+        if((long)capacity * wordsPerGame > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("The games do not fit in an array.");
+
+        this.squares = new long[capacity * wordsPerGame];
+        this.lastRounds = new int[capacity];
+        this.states = new byte[capacity];
+        this.used = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+        this.freeIds = new int[capacity];
+
+        // The ids are pushed in reverse, so the first ids are used first
+        for (int id = capacity - 1; id >= 0; id--)
+            freeIds[numFree++] = id;
+
+        this.gameBoard = GameBoard.create(width, height);
+        this.gameBoard.trackCandidateMoves(1);
+        this.gameBoardView = gameBoard.asImmutable();
+    }
+
+    /**
+     * Returns the width of the game boards.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the game boards.
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of pieces in a row needed to win.
+     * @return the number of pieces
+     */
+    public int getNumInARowToWin() {
+        return numInARowToWin;
+    }
+
+    /**
+     * Returns the largest number of games in use at the same time.
+     * @return the capacity given to the constructor
+     */
+    public int getCapacity() {
+        return freeIds.length;
+    }
+
+    /**
+     * Returns the number of games in use.
+     * @return the number of games started and not released
+     */
+    public int getSize() {
+        return freeIds.length - numFree;
+    }
+
+    /**
+     * Starts a new game.
+     * @param computerStarts decides whether the computer gets to make the first move
+     * @return the id of the game, or -1 if the pool is full
+     */
+    public int newGame(boolean computerStarts) {
+        if(numFree == 0)
+            return -1;
+
+        int id = freeIds[--numFree];
+        used[id / Long.SIZE] |= 1L << id;
+        reset(id, computerStarts);
+        return id;
+    }
+
+    /**
+     * Ends a game and frees its id for a new game.
+     * @param id the id of the game
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public void release(int id) {
+        checkId(id);
+        used[id / Long.SIZE] &= ~(1L << id);
+        freeIds[numFree++] = id;
+        if(loadedId == id)
+            loadedId = -1;
+    }
+
+    /**
+     * Resets a game.
+     * @param id the id of the game
+     * @param computerStarts decides whether the computer gets to make the first move
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public void reset(int id, boolean computerStarts) {
+        checkId(id);
+        for (int i = id * wordsPerGame; i < (id + 1) * wordsPerGame; i++)
+            squares[i] = 0;
+        lastRounds[id] = NO_MOVE << 16 | NO_MOVE;
+        setState(id, GameState.READY_FOR_NEXT_MOVE);
+        if(loadedId == id)
+            loadedId = -1;
+
+        // The first move cannot end the game
+        if(computerStarts) {
+            load(id);
+            setLastRound(id, NO_MOVE, makeComputerMove(id));
+        }
+    }
+
+    /**
+     * Plays a round of Tic-Tac-Toe with moves by both the human player and the computer.
+     * @param id the id of the game
+     * @param playerMove the move made by the human player
+     * @return the current state of the game, or {@code INVALID_PLAYER_MOVE} if the move
+     *         is not on an empty square or the game has already ended
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public GameState playARound(int id, Coordinate playerMove) {
+        checkId(id);
+        if(playerMove == null || !gameBoard.isWithinBounds(playerMove)
+                || getSquare(id, playerMove.x, playerMove.y) != TicTacToeGame.EMPTY
+                || getState(id) != GameState.READY_FOR_NEXT_MOVE)
+            return GameState.INVALID_PLAYER_MOVE;
+
+        load(id);
+        int playerSquare = playerMove.y * width + playerMove.x;
+        setSquare(id, playerSquare, TicTacToeGame.PLAYER);
+        setLastRound(id, playerSquare, NO_MOVE);
+
+        GameState state = setState(id, getState(TicTacToeGame.PLAYER, playerMove));
+        if(state != GameState.READY_FOR_NEXT_MOVE)
+            return state;
+
+        int computerSquare = makeComputerMove(id);
+        setLastRound(id, playerSquare, computerSquare);
+        return setState(id, getState(TicTacToeGame.COMPUTER, toCoordinate(computerSquare)));
+    }
+
+    /**
+     * Checks if the last round of a game can be undone.
+     *
+     * <p>The first move of the computer is not undoable, since the player could not move before it.</p>
+     * @param id the id of the game
+     * @return true if the last round can be undone
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public boolean canUndo(int id) {
+        checkId(id);
+        return getPlayerSquare(id) != NO_MOVE;
+    }
+
+    /**
+     * Undoes the last round of a game, the move of the human and the answer of the computer.
+     * @param id the id of the game
+     * @return returns {@code INVALID_PLAYER_MOVE} if no undo is available
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public GameState undo(int id) {
+        if(!canUndo(id))
+            return GameState.INVALID_PLAYER_MOVE;
+
+        setSquare(id, getPlayerSquare(id), TicTacToeGame.EMPTY);
+        if(getComputerSquare(id) != NO_MOVE)
+            setSquare(id, getComputerSquare(id), TicTacToeGame.EMPTY);
+        lastRounds[id] = NO_MOVE << 16 | NO_MOVE;
+        return setState(id, GameState.READY_FOR_NEXT_MOVE);
+    }
+
+    /**
+     * Returns the current state of a game, as decided by its last move.
+     * @param id the id of the game
+     * @return {@code READY_FOR_NEXT_MOVE}, {@code PLAYER_WON}, {@code COMPUTER_WON} or {@code DRAW_GAME}
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public GameState getState(int id) {
+        checkId(id);
+        return GAME_STATES[states[id]];
+    }
+
+    /**
+     * Returns the contents of a square of a game.
+     * @param id the id of the game
+     * @param x the x coordinate of the square
+     * @param y the y coordinate of the square
+     * @return {@code TicTacToeGame.EMPTY}, {@code PLAYER} or {@code COMPUTER}
+     * @throws IllegalArgumentException if the game is not in use
+     * @throws IndexOutOfBoundsException if the square is not within the game board
+     */
+    public byte getSquare(int id, int x, int y) {
+        checkId(id);
+        if(x < 0 || x >= width || y < 0 || y >= height)
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is not within the game board.");
+
+        return getSquare(id, y * width + x);
+    }
+
+    /**
+     * Returns the last move made by the human player that can be undone.
+     * @param id the id of the game
+     * @return the last move made by the human player or null if there is none
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public Coordinate getLastPlayerMove(int id) {
+        checkId(id);
+        return toCoordinate(getPlayerSquare(id));
+    }
+
+    /**
+     * Returns the last move made by the computer, after the last move of the human player
+     * or as the first move of the game.
+     * @param id the id of the game
+     * @return the last move made by the computer or null if there is none
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    public Coordinate getLastComputerMove(int id) {
+        checkId(id);
+        return toCoordinate(getComputerSquare(id));
+    }
+
+    /**
+     * Copies a game onto the game board, unless it is already there,
+     * and tells the computer player that the game board was reset.
+     * @param id the id of the game
+     */
+    private void load(int id) {
+        if(loadedId == id)
+            return;
+
+        gameBoard.fillBoard(TicTacToeGame.EMPTY);
+        loadedPieces = 0;
+        int base = id * wordsPerGame;
+        for (int w = 0; w < wordsPerGame; w++) {
+            // Only the squares that have a piece are visited
+            long pieces = (squares[base + w] | squares[base + w] >>> 1) & LOW_BITS;
+            while(pieces != 0) {
+                int bit = Long.numberOfTrailingZeros(pieces);
+                int square = w * SQUARES_PER_WORD + bit / 2;
+                gameBoard.setSquare(square % width, square / width, (byte)(squares[base + w] >>> bit & 3));
+                ++loadedPieces;
+                pieces &= pieces - 1;
+            }
+        }
+
+        loadedId = id;
+        if(moveListener != null)
+            moveListener.gameBoardReset(gameBoardView, numInARowToWin);
+    }
+
+    /**
+     * Gets a move from the computer player and sets it on the game, which must be on the game board.
+     * @param id the id of the game
+     * @return the square of the move
+     */
+    private int makeComputerMove(int id) {
+        Coordinate computerMove = computerPlayer.getMove(gameBoardView, numInARowToWin);
+        if(gameBoard.getSquare(computerMove) != TicTacToeGame.EMPTY)
+            throw new IllegalStateException("The computer player returned a position that is already taken.");
+
+        int square = computerMove.y * width + computerMove.x;
+        setSquare(id, square, TicTacToeGame.COMPUTER);
+        return square;
+    }
+
+    /**
+     * Checks if the last move ended the game on the game board.
+     * @param player the player who made the move
+     * @param playedMove the move
+     * @return the state of the game after the move
+     */
+    private GameState getState(byte player, Coordinate playedMove) {
+        if(VictoryChecker.hasWon(gameBoardView, player, playedMove, numInARowToWin))
+            return player == TicTacToeGame.PLAYER ? GameState.PLAYER_WON : GameState.COMPUTER_WON;
+        return loadedPieces == width * height ? GameState.DRAW_GAME : GameState.READY_FOR_NEXT_MOVE;
+    }
+
+    /**
+     * Returns the contents of a square of a game.
+     * @param id the id of the game
+     * @param square the square, y * width + x
+     * @return {@code TicTacToeGame.EMPTY}, {@code PLAYER} or {@code COMPUTER}
+     */
+    private byte getSquare(int id, int square) {
+        long word = squares[id * wordsPerGame + square / SQUARES_PER_WORD];
+        return (byte)(word >>> (2 * (square % SQUARES_PER_WORD)) & 3);
+    }
+
+    /**
+     * Sets the contents of a square of a game, and of the game board if the game is on it.
+     * @param id the id of the game
+     * @param square the square, y * width + x
+     * @param value {@code TicTacToeGame.EMPTY}, {@code PLAYER} or {@code COMPUTER}
+     */
+    private void setSquare(int id, int square, byte value) {
+        int index = id * wordsPerGame + square / SQUARES_PER_WORD;
+        int shift = 2 * (square % SQUARES_PER_WORD);
+        squares[index] = squares[index] & ~(3L << shift) | (long)value << shift;
+
+        if(loadedId == id) {
+            Coordinate pos = Coordinate.of(square % width, square / width);
+            gameBoard.setSquare(pos, value);
+            loadedPieces += value == TicTacToeGame.EMPTY ? -1 : 1;
+            if(moveListener != null)
+                moveListener.squareChanged(gameBoardView, pos, numInARowToWin);
+        }
+    }
+
+    /**
+     * Stores the state of a game.
+     * @param id the id of the game
+     * @param state the state after the last move
+     * @return the state
+     */
+    private GameState setState(int id, GameState state) {
+        states[id] = (byte)state.ordinal();
+        return state;
+    }
+
+    /**
+     * Stores the squares of the last round of a game.
+     * @param id the id of the game
+     * @param playerSquare the square of the move of the player, or {@code NO_MOVE}
+     * @param computerSquare the square of the move of the computer, or {@code NO_MOVE}
+     */
+    private void setLastRound(int id, int playerSquare, int computerSquare) {
+        lastRounds[id] = computerSquare << 16 | playerSquare;
+    }
+
+    /**
+     * Returns the square of the move of the player in the last round of a game.
+     * @param id the id of the game
+     * @return the square, or {@code NO_MOVE}
+     */
+    private int getPlayerSquare(int id) {
+        return lastRounds[id] & 0xFFFF;
+    }
+
+    /**
+     * Returns the square of the move of the computer in the last round of a game.
+     * @param id the id of the game
+     * @return the square, or {@code NO_MOVE}
+     */
+    private int getComputerSquare(int id) {
+        return lastRounds[id] >>> 16;
+    }
+
+    /**
+     * Converts a square into a coordinate.
+     * @param square the square, y * width + x, or {@code NO_MOVE}
+     * @return the coordinate of the square, or null for {@code NO_MOVE}
+     */
+    private Coordinate toCoordinate(int square) {
+        return square == NO_MOVE ? null : Coordinate.of(square % width, square / width);
+    }
+
+    /**
+     * Checks that a game is in use.
+     * @param id the id of the game
+     * @throws IllegalArgumentException if the game is not in use
+     */
+    private void checkId(int id) {
+        if(id < 0 || id >= freeIds.length || (used[id / Long.SIZE] & 1L << id) == 0)
+            throw new IllegalArgumentException("Game " + id + " is not in use.");
+    }
+}
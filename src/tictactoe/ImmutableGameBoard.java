@@ -3,13 +3,50 @@ package tictactoe;
 /**
  * Represents a read-only 2D game board.
  *
+ * <p>Besides (x, y) coordinates, the squares can be accessed with square indexes.
+ * The squares are numbered row by row, and each row is followed by one index that
+ * is outside the game board. Moving one step in a direction is done by adding the
+ * offset of the direction to the index, and a move past the left or the right edge
+ * of the game board always ends outside the game board.</p>
+ *
  * @author Tapio Malmberg
  */
 public class ImmutableGameBoard {
     /**
-     * The squares of the game board.
+     * The value of the indexes between the rows, which are outside the game board.
+     */
+    protected static final byte OUT_OF_BOUNDS = -1;
+
+    /**
+     * The {@code LinePatterns} codes of the squares, indexed by {@code player << 2 | square},
+     * so that encoding random squares does not depend on branch prediction.
+     */
+    private static final int[] PATTERN_CODES = {
+        0, 0, 0, 0,
+        LinePatterns.EMPTY, LinePatterns.PLAYER, LinePatterns.OPPONENT, 0,
+        LinePatterns.EMPTY, LinePatterns.OPPONENT, LinePatterns.PLAYER, 0
+    };
+
+    /**
+     * The squares of the game board, indexed by square index,
+     * or null if a subclass stores the squares in some other way.
+     */
+    protected byte[] squares;
+
+    /**
+     * The width of the game board.
+     */
+    private final int width;
+
+    /**
+     * The height of the game board.
+     */
+    private final int height;
+
+    /**
+     * The difference of the indexes of two vertically adjacent squares.
      */
-    protected byte[][] board;
+    private final int stride;
 
     /**
      * Creates a new ImmutableGameBoard with the given width and height.
@@ -17,21 +54,34 @@ public class ImmutableGameBoard {
      * @param height the height of the game board, must be greater than zero
      */
     public ImmutableGameBoard(int width, int height) {
+        this(width, height, true);
+    }
+
+    /**
+     * Creates a new ImmutableGameBoard with the given width and height.
+     *
+     * <p>Subclasses that store the squares in some other way do not
+     * store the squares in this class and override the methods that access them.</p>
+     * @param width the width of the game board, must be greater than zero
+     * @param height the height of the game board, must be greater than zero
+     * @param storeSquares whether the squares are stored in this class
+     */
+    protected ImmutableGameBoard(int width, int height, boolean storeSquares) {
         if(width <= 0)
             throw new IllegalArgumentException("Width must be greater than zero.");
         if(height <= 0)
             throw new IllegalArgumentException("Height must be greater than zero.");
 
-        board = new byte[height][width];
-    }
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
 
-    /**
-     * Creates a new ImmutableGameBoard from an ImmutableGameBoard
-     * subclass without copying data.
-     * @param other the other ImmutableGameBoard
-     */
-    protected ImmutableGameBoard(ImmutableGameBoard other) {
-        board = other.board;
+        if(storeSquares) {
+            squares = new byte[height * stride];
+            for (int y = 0; y < height; y++) {
+                squares[y * stride + width] = OUT_OF_BOUNDS;
+            }
+        }
     }
 
     /**
@@ -39,7 +89,7 @@ public class ImmutableGameBoard {
      * @return the width of the game board
      */
     public int getWidth() {
-        return board[0].length;
+        return width;
     }
 
     /**
@@ -47,7 +97,43 @@ public class ImmutableGameBoard {
      * @return the height of the game board
      */
     public int getHeight() {
-        return board.length;
+        return height;
+    }
+
+    /**
+     * Returns the square index of the given (x, y) coordinate.
+     * @param x the x value of the coordinate, must be within the game board
+     * @param y the y value of the coordinate, must be within the game board
+     * @return the square index
+     */
+    public int getIndex(int x, int y) {
+        return y * stride + x;
+    }
+
+    /**
+     * Returns the coordinate of the given square index.
+     * @param index a square index within the game board
+     * @return the coordinate of the square
+     */
+    public Coordinate getCoordinate(int index) {
+        return Coordinate.of(index % stride, index / stride);
+    }
+
+    /**
+     * Returns the number added to a square index for moving one step in the given direction.
+     * @param dir the direction
+     * @return the offset of the direction
+     */
+    public int getOffset(Direction dir) {
+        return dir.yVec * stride + dir.xVec;
+    }
+
+    /**
+     * Returns the number of square indexes, including the indexes between the rows.
+     * @return one more than the largest square index
+     */
+    public int getIndexCount() {
+        return height * stride;
     }
 
     /**
@@ -66,7 +152,16 @@ public class ImmutableGameBoard {
      * @return true if the given coordinate is within the game board
      */
     public boolean isWithinBounds(int x, int y) {
-        return (x >= 0 && x < getWidth()) && (y >= 0 && y < getHeight());
+        return (x >= 0 && x < width) && (y >= 0 && y < height);
+    }
+
+    /**
+     * Checks if the given square index is within the game board.
+     * @param index the square index to test
+     * @return true if the index is the index of a square on the game board
+     */
+    public boolean isWithinBounds(int index) {
+        return index >= 0 && index < getIndexCount() && index % stride != width;
     }
 
     /**
@@ -83,15 +178,52 @@ public class ImmutableGameBoard {
      * @param x the x value of the coordinate
      * @param y the y value of the coordinate
      * @return the content of the square at the coordinate
+     * @throws IndexOutOfBoundsException if the coordinate is not within the game board
      */
     public byte getSquare(int x, int y) {
-        return board[y][x];
+        checkBounds(x, y);
+        return getSquare(getIndex(x, y));
+    }
+
+    /**
+     * Returns the content of the square at the given square index.
+     * @param index a square index within the game board
+     * @return the content of the square at the index
+     */
+    public byte getSquare(int index) {
+        return squares[index];
+    }
+
+    /**
+     * Returns the Zobrist hash of the pieces on the game board.
+     *
+     * <p>Game boards that have the same pieces at the same squares
+     * have the same hash.</p>
+     * @return the hash of the game board
+     */
+    public long getHash() {
+        long hash = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                hash ^= Zobrist.getKey(x, y, getSquare(x, y));
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns the empty squares near the pieces on the game board, if they are kept track of.
+     * @return the candidate moves, or null if they are not tracked
+     */
+    public CandidateMoves getCandidateMoves() {
+        return null;
     }
 
     /**
      * Counts the number of adjacent pieces of the given type in the given direction,
      * starting from the given coordinate.
-     * 
+     *
      * <p>If {@code includeStartPos} is set to true, the starting position
      * is included in the count.</p>
      * @param startPos the Coordinate of the starting position
@@ -101,14 +233,149 @@ public class ImmutableGameBoard {
      * @return the number of adjacent pieces in the given direction
      */
     public int getNumAdjacent(Coordinate startPos, Direction dir, byte type, boolean includeStartPos) {
+        if(!includeStartPos) {
+            // The square next to an outside square may still be within the game board
+            int x = startPos.x + dir.xVec;
+            int y = startPos.y + dir.yVec;
+            if(!isWithinBounds(x, y))
+                return 0;
+
+            return getNumAdjacent(getIndex(x, y), getOffset(dir), type, true);
+        }
+
+        if(!isWithinBounds(startPos))
+            return 0;
+
+        return getNumAdjacent(getIndex(startPos.x, startPos.y), getOffset(dir), type, true);
+    }
+
+    /**
+     * Counts the number of adjacent pieces of the given type, starting from
+     * the given square index and moving by the given offset.
+     *
+     * <p>If {@code includeStartPos} is set to true, the starting position
+     * is included in the count.</p>
+     * @param startIndex the square index of the starting position
+     * @param offset the offset of the direction that will be moved to
+     * @param type the type of square contents that must be matched
+     * @param includeStartPos whether the starting position is included
+     * @return the number of adjacent pieces in the given direction
+     */
+    public int getNumAdjacent(int startIndex, int offset, byte type, boolean includeStartPos) {
+        return getNumAdjacent(startIndex, offset, type, includeStartPos, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Counts the number of adjacent pieces of the given type, starting from
+     * the given square index and moving by the given offset, up to the given maximum.
+     *
+     * <p>If {@code includeStartPos} is set to true, the starting position
+     * is included in the count.</p>
+     * @param startIndex the square index of the starting position
+     * @param offset the offset of the direction that will be moved to
+     * @param type the type of square contents that must be matched
+     * @param includeStartPos whether the starting position is included
+     * @param max the maximum number of pieces to count
+     * @return the number of adjacent pieces in the given direction, at most {@code max}
+     */
+    public int getNumAdjacent(int startIndex, int offset, byte type, boolean includeStartPos, int max) {
         int nAdjacent = 0;
-        Coordinate pos = includeStartPos ? startPos : startPos.move(dir);
+        int index = includeStartPos ? startIndex : startIndex + offset;
 
-        while(isWithinBounds(pos) && getSquare(pos) == type) {
-            ++nAdjacent;
-            pos = pos.move(dir);
+        if(squares != null) {
+            // The indexes between the rows never match the type
+            while(nAdjacent < max && index >= 0 && index < squares.length && squares[index] == type) {
+                ++nAdjacent;
+                index += offset;
+            }
+        } else {
+            while(nAdjacent < max && isWithinBounds(index) && getSquare(index) == type) {
+                ++nAdjacent;
+                index += offset;
+            }
         }
 
         return nAdjacent;
     }
-}
\ No newline at end of file
+
+    /**
+     * Encodes the squares next to the given square in the given direction as a
+     * {@code LinePatterns} pattern of two bits per square, the nearest square first.
+     *
+     * <p>Every square after the first square outside the game board is also
+     * encoded as being outside the game board.</p>
+     * @param startIndex the square index of the square next to which the pattern starts
+     * @param offset the offset of the direction
+     * @param player the player whose pieces are encoded as {@code LinePatterns.PLAYER}
+     * @param length the number of squares in the pattern
+     * @return the pattern
+     */
+    public int getLinePattern(int startIndex, int offset, byte player, int length) {
+        int pattern = 0;
+        int index = startIndex + offset;
+        int i = 0;
+
+        if(squares != null) {
+            for (; i < length; i++, index += offset) {
+                // The indexes between the rows are outside the game board
+                if(index < 0 || index >= squares.length || squares[index] == OUT_OF_BOUNDS)
+                    break;
+                pattern |= getPatternCode(squares[index], player) << (2 * i);
+            }
+        } else {
+            for (; i < length && isWithinBounds(index); i++, index += offset)
+                pattern |= getPatternCode(getSquare(index), player) << (2 * i);
+        }
+
+        for (; i < length; i++)
+            pattern |= LinePatterns.OUTSIDE << (2 * i);
+
+        return pattern;
+    }
+
+    /**
+     * Returns the {@code LinePatterns} code of the contents of a square.
+     * @param square the contents of the square
+     * @param player the player whose pieces are encoded as {@code LinePatterns.PLAYER}
+     * @return the code of the square
+     */
+    static int getPatternCode(byte square, byte player) {
+        return PATTERN_CODES[player << 2 | square];
+    }
+
+    /**
+     * Checks if there is a row of at least {@code length} pieces of the given type
+     * going through the given coordinate in the given direction.
+     * @param pos the coordinate that the row must go through
+     * @param dir the direction of the row
+     * @param type the type of square contents that must be matched
+     * @param length the minimum length of the row
+     * @return true if there is a long enough row through the coordinate
+     */
+    public boolean isRowThrough(Coordinate pos, Direction dir, byte type, int length) {
+        if(!isWithinBounds(pos))
+            return false;
+
+        int index = getIndex(pos.x, pos.y);
+        int offset = getOffset(dir);
+
+        // Forwards, start position included
+        int nAdjacent = getNumAdjacent(index, offset, type, true);
+
+        // Backwards, start position excluded
+        nAdjacent += getNumAdjacent(index, -offset, type, false);
+
+        return nAdjacent >= length;
+    }
+
+    /**
+     * Checks that the given (x, y) coordinate is within the game board.
+     * @param x the x value of the coordinate
+     * @param y the y value of the coordinate
+     * @throws IndexOutOfBoundsException if the coordinate is not within the game board
+     */
+    protected void checkBounds(int x, int y) {
+        if(!isWithinBounds(x, y))
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is not within the game board.");
+    }
+}
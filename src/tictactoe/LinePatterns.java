@@ -0,0 +1,189 @@
+package tictactoe;
+
+/**
+ * A table of the priorities calculated by {@code SmartComputer} for every pattern
+ * of pieces on a line through an empty square.
+ *
+ * <p>The pattern is made of the {@code numInARowToWin - 1} squares on both sides of
+ * the square, two bits per square. Those are the only squares that can affect the
+ * priority as long as neither player has won: a longer row of pieces would already
+ * win the game, and more space than a winning row needs does not change anything.
+ * Looking the priority up replaces up to eight scans along the line.</p>
+ *
+ * <p>A table is built the first time it is needed and shared by every game with the
+ * same number of pieces in a row needed to win. The table grows by a factor of 16
+ * for every extra piece, so long rows are left to {@code SmartComputer}.</p>
+ *
+ * @author Tapio Malmberg
+ */
+final class LinePatterns {
+    /**
+     * The code of an empty square in a pattern.
+     */
+    static final int EMPTY = 0;
+
+    /**
+     * The code of a piece of the player who makes the next move.
+     */
+    static final int PLAYER = 1;
+
+    /**
+     * The code of a piece of the opponent.
+     */
+    static final int OPPONENT = 2;
+
+    /**
+     * The code of a square outside the game board.
+     */
+    static final int OUTSIDE = 3;
+
+    /**
+     * The largest number of pieces in a row needed to win that has a table.
+     * Its table has 2^20 entries.
+     */
+    static final int MAX_IN_A_ROW_TO_WIN = 6;
+
+    /**
+     * The tables built so far, indexed by the number of pieces in a row needed to win.
+     */
+    private static final LinePatterns[] TABLES = new LinePatterns[MAX_IN_A_ROW_TO_WIN + 1];
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private final int numInARowToWin;
+
+    /**
+     * The number of squares in a pattern on each side of the square.
+     */
+    private final int sideLength;
+
+    /**
+     * The priority of each pattern, indexed by the forward pattern
+     * followed by the backward pattern.
+     */
+    private final short[] priorities;
+
+    /**
+     * Creates the table for the given number of pieces in a row.
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    private LinePatterns(int numInARowToWin) {
+        this.numInARowToWin = numInARowToWin;
+        this.sideLength = numInARowToWin - 1;
+        this.priorities = new short[1 << (4 * sideLength)];
+
+        // Every square after a square outside the game board is outside too,
+        // so only the patterns where the game board ends somewhere are filled in
+        for (int forward = 0; forward <= sideLength; forward++) {
+            for (int backward = 0; backward <= sideLength; backward++)
+                fill(forward, backward);
+        }
+    }
+
+    /**
+     * Returns the table for the given number of pieces in a row, building it if needed.
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the table, or null if the rows are too long for a table
+     */
+    static LinePatterns of(int numInARowToWin) {
+        if(numInARowToWin < TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL || numInARowToWin > MAX_IN_A_ROW_TO_WIN)
+            return null;
+
+        // The fields are final, so a table seen by another thread is always complete
+        LinePatterns table = TABLES[numInARowToWin];
+        return table != null ? table : build(numInARowToWin);
+    }
+
+    /**
+     * Builds the table for the given number of pieces in a row, unless another thread already has.
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the table
+     */
+    private static synchronized LinePatterns build(int numInARowToWin) {
+        if(TABLES[numInARowToWin] == null)
+            TABLES[numInARowToWin] = new LinePatterns(numInARowToWin);
+
+        return TABLES[numInARowToWin];
+    }
+
+    /**
+     * Returns the priority of an empty square in the given direction,
+     * the same as {@code SmartComputer.calculateLinePriority} when neither player has won.
+     * @param gameBoard the game board
+     * @param index the square index of the empty square
+     * @param offset the offset of the direction
+     * @param player the player who makes the next move
+     * @return the priority of the square in the direction
+     */
+    int getPriority(ImmutableGameBoard gameBoard, int index, int offset, byte player) {
+        int forward = gameBoard.getLinePattern(index, offset, player, sideLength);
+        int backward = gameBoard.getLinePattern(index, -offset, player, sideLength);
+        return priorities[forward << (2 * sideLength) | backward];
+    }
+
+    /**
+     * Fills in the priorities of the patterns where the game board ends
+     * after the given numbers of squares.
+     * @param forward the number of squares within the game board forwards
+     * @param backward the number of squares within the game board backwards
+     */
+    private void fill(int forward, int backward) {
+        // The square is on a game board of one row that ends where the pattern does
+        int width = backward + 1 + forward;
+        GameBoard gameBoard = GameBoard.create(width, 1);
+        int index = gameBoard.getIndex(backward, 0);
+        int numPatterns = 1;
+        for (int i = 0; i < width - 1; i++)
+            numPatterns *= 3;
+
+        for (int pattern = 0; pattern < numPatterns; pattern++) {
+            int forwardPattern = getOutsidePattern(forward);
+            int backwardPattern = getOutsidePattern(backward);
+            int remaining = pattern;
+            for (int i = 0; i < width - 1; i++) {
+                int code = remaining % 3;
+                remaining /= 3;
+
+                int x = i < forward ? backward + 1 + i : backward - 1 - (i - forward);
+                gameBoard.setSquare(x, 0, toPiece(code));
+                if(i < forward)
+                    forwardPattern |= code << (2 * i);
+                else
+                    backwardPattern |= code << (2 * (i - forward));
+            }
+
+            priorities[forwardPattern << (2 * sideLength) | backwardPattern] = (short)SmartComputer.calculateLinePriority(
+                gameBoard, index, 1, numInARowToWin, TicTacToeGame.COMPUTER, TicTacToeGame.PLAYER);
+        }
+    }
+
+    /**
+     * Returns the pattern of the squares outside the game board on one side.
+     * @param length the number of squares within the game board on the side
+     * @return the pattern with the remaining squares set to {@code OUTSIDE}
+     */
+    private int getOutsidePattern(int length) {
+        int pattern = 0;
+        for (int i = length; i < sideLength; i++)
+            pattern |= OUTSIDE << (2 * i);
+
+        return pattern;
+    }
+
+    /**
+     * Returns the piece of a square in the patterns used when building the table.
+     * @param code {@code EMPTY}, {@code PLAYER} or {@code OPPONENT}
+     * @return the square contents, where the computer is the player who makes the next move
+     */
+    private static byte toPiece(int code) {
+        switch(code) {
+            case PLAYER:
+                return TicTacToeGame.COMPUTER;
+            case OPPONENT:
+                return TicTacToeGame.PLAYER;
+            default:
+                return TicTacToeGame.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,620 @@
+package tictactoe;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code ComputerPlayer} that uses Monte Carlo tree search.
+ *
+ * <p>Moves are selected with the UCT formula, and the positions at the end of the
+ * tree are evaluated by playing the game to the end with random moves. Only the
+ * squares next to the pieces on the game board are considered, which keeps the
+ * search focused on large game boards.</p>
+ *
+ * <p>The search is run in parallel with root parallelism: every thread builds
+ * its own tree from the same position with its own copy of the game board, and
+ * the visit counts of the moves are added up at the end. The threads share
+ * nothing but the playout budget, so they never wait for each other.</p>
+ *
+ * <p>Interrupting the thread that calls {@code getMove} stops the search early,
+ * and the most visited move so far is returned.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class MonteCarloComputer implements ComputerPlayer {
+    /**
+     * The default time limit for a move in milliseconds.
+     */
+    public static final long DEFAULT_TIME_LIMIT = 1000;
+
+    /**
+     * The exploration constant of the UCT formula.
+     */
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * How far from the pieces on the game board the considered moves can be.
+     */
+    private static final int NEIGHBORHOOD = 1;
+
+    /**
+     * The maximum number of moves in a playout. Longer playouts are counted as draws.
+     */
+    private static final int MAX_PLAYOUT_MOVES = 64;
+
+    /**
+     * The number of threads.
+     */
+    private final int numThreads;
+
+    /**
+     * The time limit for a move in milliseconds.
+     */
+    private final long timeLimit;
+
+    /**
+     * The maximum number of playouts for a move.
+     */
+    private final long maxPlayouts;
+
+    /**
+     * Runs the searches of the threads other than the calling thread,
+     * or null if only one thread is used.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates the seeds of the random number generators of the threads.
+     */
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    /**
+     * The number of playouts made for the previous move.
+     */
+    private long playouts;
+
+    /**
+     * The time it took to find the previous move in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Creates a new MonteCarloComputer that uses every processor for the default time.
+     */
+    public MonteCarloComputer() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TIME_LIMIT, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new MonteCarloComputer.
+     * @param numThreads the number of threads, must be greater than zero
+     * @param timeLimit the time limit for a move in milliseconds, must be greater than zero
+     * @param maxPlayouts the maximum number of playouts for a move, must be greater than zero
+     */
+    public MonteCarloComputer(int numThreads, long timeLimit, long maxPlayouts) {
+        if(numThreads <= 0)
+            throw new IllegalArgumentException("The number of threads must be greater than zero.");
+        if(timeLimit <= 0)
+            throw new IllegalArgumentException("The time limit must be greater than zero.");
+        if(maxPlayouts <= 0)
+            throw new IllegalArgumentException("The maximum number of playouts must be greater than zero.");
+
+        this.numThreads = numThreads;
+        this.timeLimit = timeLimit;
+        this.maxPlayouts = maxPlayouts;
+        this.executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads - 1, createThreadFactory()) : null;
+    }
+
+    /**
+     * Returns the move that was visited the most times by the searches of all threads.
+     *
+     * <p>A move that wins immediately, or blocks an immediate win of the player,
+     * is returned without searching.</p>
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the coordinate of the selected move
+     */
+    @Override
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + timeLimit * 1000000;
+        playouts = 0;
+        elapsedNanos = 0;
+
+        Searcher first = new Searcher(gameBoard, numInARowToWin, seeds.nextLong());
+        int[] rootMoves = first.getRootMoves();
+        if(rootMoves.length == 0)
+            return getMiddlePositionOrRandomMove(gameBoard, numInARowToWin);
+
+        int forcedMove = first.getForcedMove(rootMoves);
+        if(forcedMove >= 0)
+            return toCoordinate(forcedMove, gameBoard.getWidth());
+
+        AtomicLong playoutBudget = new AtomicLong(maxPlayouts);
+        List<Future<long[]>> results = new ArrayList<Future<long[]>>();
+        for (int i = 1; i < numThreads; i++) {
+            Searcher searcher = new Searcher(gameBoard, numInARowToWin, seeds.nextLong());
+            results.add(executor.submit(() -> searcher.search(rootMoves, deadline, playoutBudget)));
+        }
+
+        long[] visits = first.search(rootMoves, deadline, playoutBudget);
+        // Stops the other threads if the search of this thread was interrupted
+        playoutBudget.set(0);
+        for (Future<long[]> result : results) {
+            long[] threadVisits = getResult(result);
+            for (int i = 0; i < visits.length; i++)
+                visits[i] += threadVisits[i];
+        }
+
+        int best = 0;
+        for (int i = 0; i < visits.length; i++) {
+            playouts += visits[i];
+            if(visits[i] > visits[best])
+                best = i;
+        }
+
+        elapsedNanos = System.nanoTime() - startTime;
+        return toCoordinate(rootMoves[best], gameBoard.getWidth());
+    }
+
+    /**
+     * Returns the number of playouts made for the previous move.
+     * @return the number of playouts
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Returns the number of playouts per second made for the previous move.
+     * @return the playouts per second, or zero if no playouts were made
+     */
+    public double getPlayoutsPerSecond() {
+        if(elapsedNanos <= 0)
+            return 0;
+
+        return playouts * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the number of threads that search the moves.
+     * @return the number of threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Stops the search threads once they have finished their current search.
+     */
+    @Override
+    public void close() {
+        if(executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * Waits for the search of a thread to end.
+     * 
+     * <p>The other threads stop soon after the calling thread has finished, so an interrupt
+     * does not cut the wait short. It is set again once the thread has stopped.</p>
+     * @param result the result of the search
+     * @return the visits of the root moves
+     */
+    private static long[] getResult(Future<long[]> result) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The search failed.", e.getCause());
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the coordinate of a square index.
+     * @param square the square index, counted row by row
+     * @param width the width of the game board
+     * @return the coordinate of the square
+     */
+    private static Coordinate toCoordinate(int square, int width) {
+        return Coordinate.of(square % width, square / width);
+    }
+
+    /**
+     * Either returns the middle square of the game board,
+     * or if it is taken, a random square utilizing RandomComputer.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the middle square or a random square
+     */
+    private static Coordinate getMiddlePositionOrRandomMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        Coordinate middle = Coordinate.of(gameBoard.getWidth() / 2, gameBoard.getHeight() / 2);
+
+        if(gameBoard.getSquare(middle) == TicTacToeGame.EMPTY)
+            return middle;
+        else
+            return new RandomComputer().getMove(gameBoard, numInARowToWin);
+    }
+
+    /**
+     * Creates the factory of the search threads.
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "tictactoe-mcts-" + threadNumber.incrementAndGet());
+            // Closing the computer player stops the threads, but one that is not closed must not keep the program running
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Returns the opponent of the given player.
+     * @param player PLAYER or COMPUTER
+     * @return COMPUTER for PLAYER and PLAYER for COMPUTER
+     */
+    private static byte getOpponent(byte player) {
+        return player == TicTacToeGame.PLAYER ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER;
+    }
+
+    /**
+     * A node of the search tree.
+     */
+    private static class Node {
+        /**
+         * The move that leads to this node as a square index, counted row by row.
+         */
+        final int square;
+
+        /**
+         * The player who made the move.
+         */
+        final byte player;
+
+        /**
+         * The children, or null if the node has not been expanded.
+         */
+        Node[] children;
+
+        /**
+         * The number of playouts made through this node.
+         */
+        int visits;
+
+        /**
+         * The sum of the results of the playouts for the player who made the move:
+         * 1 for a win, 0.5 for a draw and 0 for a loss.
+         */
+        double score;
+
+        /**
+         * Whether the game ends with the move.
+         */
+        boolean terminal;
+
+        /**
+         * The winner if the game ends with the move, or {@code EMPTY} for a draw.
+         */
+        byte winner;
+
+        /**
+         * Creates a new Node.
+         * @param square the move that leads to this node as a square index
+         * @param player the player who made the move
+         */
+        Node(int square, byte player) {
+            this.square = square;
+            this.player = player;
+        }
+    }
+
+    /**
+     * The search of a single thread, with its own game board and search tree.
+     */
+    private static class Searcher {
+        /**
+         * The game board the moves are made on.
+         */
+        private final GameBoard gameBoard;
+
+        /**
+         * The width of the game board.
+         */
+        private final int width;
+
+        /**
+         * The height of the game board.
+         */
+        private final int height;
+
+        /**
+         * The number of pieces in a row needed to win.
+         */
+        private final int numInARowToWin;
+
+        /**
+         * The empty squares near the pieces on the game board.
+         */
+        private final CandidateMoves candidateMoves;
+
+        /**
+         * Generates the random moves of the playouts.
+         */
+        private final SplittableRandom random;
+
+        /**
+         * The squares of the pieces on the game board, in the order they were placed.
+         */
+        private final int[] pieces;
+
+        /**
+         * The number of pieces on the game board.
+         */
+        private int numPieces;
+
+        /**
+         * The number of pieces on the game board when the search started.
+         */
+        private final int numStartPieces;
+
+        /**
+         * The nodes selected during the current playout, starting from the root.
+         */
+        private final Node[] path;
+
+        /**
+         * Creates a new Searcher for the given position.
+         * @param gameBoard the game board, which is copied
+         * @param numInARowToWin the number of pieces in a row needed to win
+         * @param seed the seed of the random number generator
+         */
+        Searcher(ImmutableGameBoard gameBoard, int numInARowToWin, long seed) {
+            this.gameBoard = GameBoard.copyOf(gameBoard);
+            this.candidateMoves = this.gameBoard.trackCandidateMoves(NEIGHBORHOOD);
+            this.width = gameBoard.getWidth();
+            this.height = gameBoard.getHeight();
+            this.numInARowToWin = numInARowToWin;
+            this.random = new SplittableRandom(seed);
+            this.pieces = new int[width * height];
+            this.path = new Node[width * height + 1];
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if(gameBoard.getSquare(x, y) != TicTacToeGame.EMPTY)
+                        pieces[numPieces++] = y * width + x;
+                }
+            }
+            this.numStartPieces = numPieces;
+        }
+
+        /**
+         * Returns the moves considered for the computer in the current position.
+         * @return the square indexes of the empty squares next to the pieces
+         */
+        int[] getRootMoves() {
+            Node root = new Node(-1, TicTacToeGame.PLAYER);
+            expand(root);
+
+            int[] moves = new int[root.children.length];
+            for (int i = 0; i < moves.length; i++)
+                moves[i] = root.children[i].square;
+
+            return moves;
+        }
+
+        /**
+         * Returns a move that wins immediately, or a move that blocks an immediate win of the player.
+         * @param moves the moves considered for the computer
+         * @return the square index of the move, or -1 if there is none
+         */
+        int getForcedMove(int[] moves) {
+            for (byte player : new byte[] { TicTacToeGame.COMPUTER, TicTacToeGame.PLAYER }) {
+                for (int square : moves) {
+                    Coordinate move = toCoordinate(square, width);
+                    gameBoard.setSquare(move, player);
+                    boolean won = VictoryChecker.hasWon(gameBoard, player, move, numInARowToWin);
+                    gameBoard.setSquare(move, TicTacToeGame.EMPTY);
+                    if(won)
+                        return square;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Searches until the deadline, until the playout budget has been used up
+         * or until this thread is interrupted.
+         * @param rootMoves the moves considered for the computer, in the order of {@code getRootMoves}
+         * @param deadline the time when the search must be stopped, in {@code System.nanoTime} units
+         * @param playoutBudget the number of playouts left for all threads
+         * @return the number of visits of each root move
+         */
+        long[] search(int[] rootMoves, long deadline, AtomicLong playoutBudget) {
+            Node root = new Node(-1, TicTacToeGame.PLAYER);
+            root.children = new Node[rootMoves.length];
+            for (int i = 0; i < rootMoves.length; i++)
+                root.children[i] = new Node(rootMoves[i], TicTacToeGame.COMPUTER);
+
+            Thread thread = Thread.currentThread();
+            while(System.nanoTime() < deadline && playoutBudget.getAndDecrement() > 0 && !thread.isInterrupted())
+                searchOnce(root);
+
+            long[] visits = new long[rootMoves.length];
+            for (int i = 0; i < visits.length; i++)
+                visits[i] = root.children[i].visits;
+
+            return visits;
+        }
+
+        /**
+         * Selects a path down the tree, expands it, makes a playout
+         * and updates the nodes on the path with the result.
+         * @param root the root of the tree
+         */
+        private void searchOnce(Node root) {
+            int pathLength = 0;
+            path[pathLength++] = root;
+
+            Node node = root;
+            while(!node.terminal) {
+                if(node.children == null) {
+                    // Nodes are expanded when they are visited the second time
+                    if(node.visits == 0)
+                        break;
+                    expand(node);
+                    if(node.children.length == 0)
+                        break;
+                }
+
+                node = select(node);
+                path[pathLength++] = node;
+                playMove(node.square, node.player);
+
+                if(VictoryChecker.hasWon(gameBoard, node.player, toCoordinate(node.square, width), numInARowToWin)) {
+                    node.terminal = true;
+                    node.winner = node.player;
+                } else if(numPieces == pieces.length) {
+                    node.terminal = true;
+                    node.winner = TicTacToeGame.EMPTY;
+                }
+            }
+
+            byte winner = node.terminal ? node.winner : playout(getOpponent(node.player));
+
+            for (int i = 0; i < pathLength; i++) {
+                Node pathNode = path[i];
+                ++pathNode.visits;
+                if(winner == pathNode.player)
+                    pathNode.score += 1;
+                else if(winner == TicTacToeGame.EMPTY)
+                    pathNode.score += 0.5;
+            }
+
+            undoMoves();
+        }
+
+        /**
+         * Selects the child with the highest UCT value. Children that have not been visited are selected first.
+         * @param node the node whose child is selected
+         * @return the selected child
+         */
+        private Node select(Node node) {
+            double logVisits = Math.log(node.visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for (Node child : node.children) {
+                if(child.visits == 0)
+                    return child;
+
+                double value = child.score / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if(value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * Adds a child for every empty square next to the pieces on the game board.
+         * @param node the node to expand, which must be the current position
+         */
+        private void expand(Node node) {
+            byte player = getOpponent(node.player);
+            int[] squares = new int[candidateMoves.size()];
+            int numSquares = candidateMoves.copyTo(squares);
+            for (int i = 0; i < numSquares; i++)
+                squares[i] = toSquare(squares[i]);
+
+            // Sorted, so that every thread gets the root moves in the same order
+            Arrays.sort(squares, 0, numSquares);
+            node.children = new Node[numSquares];
+            for (int i = 0; i < numSquares; i++)
+                node.children[i] = new Node(squares[i], player);
+        }
+
+        /**
+         * Plays random moves until the game ends or the playout gets too long.
+         * @param player the player who makes the first move
+         * @return the winner, or {@code EMPTY} for a draw
+         */
+        private byte playout(byte player) {
+            for (int i = 0; i < MAX_PLAYOUT_MOVES && numPieces < pieces.length; i++) {
+                int square = getRandomMove();
+                playMove(square, player);
+                if(VictoryChecker.hasWon(gameBoard, player, toCoordinate(square, width), numInARowToWin))
+                    return player;
+
+                player = getOpponent(player);
+            }
+
+            return TicTacToeGame.EMPTY;
+        }
+
+        /**
+         * Returns a random empty square near the pieces, or any empty square if there are no pieces.
+         * @return the square index of the move
+         */
+        private int getRandomMove() {
+            if(candidateMoves.size() > 0)
+                return toSquare(candidateMoves.get(random.nextInt(candidateMoves.size())));
+
+            // Every empty square has the same chance of being selected
+            int selected = -1;
+            int numEmpty = 0;
+            for (int square = 0; square < pieces.length; square++) {
+                if(gameBoard.getSquare(square % width, square / width) == TicTacToeGame.EMPTY
+                    && random.nextInt(++numEmpty) == 0)
+                    selected = square;
+            }
+
+            return selected;
+        }
+
+        /**
+         * Converts a square index of the game board to a square index of the search.
+         * @param index the square index of the game board
+         * @return the square index in the form {@code y * width + x}
+         */
+        private int toSquare(int index) {
+            Coordinate pos = gameBoard.getCoordinate(index);
+            return pos.y * width + pos.x;
+        }
+
+        /**
+         * Places a piece on the game board.
+         * @param square the square index of the move
+         * @param player the player who makes the move
+         */
+        private void playMove(int square, byte player) {
+            gameBoard.setSquare(square % width, square / width, player);
+            pieces[numPieces++] = square;
+        }
+
+        /**
+         * Removes the pieces placed during the search from the game board.
+         */
+        private void undoMoves() {
+            while(numPieces > numStartPieces) {
+                int square = pieces[--numPieces];
+                gameBoard.setSquare(square % width, square / width, TicTacToeGame.EMPTY);
+            }
+        }
+    }
+}
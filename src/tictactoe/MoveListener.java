@@ -0,0 +1,28 @@
+package tictactoe;
+
+/**
+ * Interface for being notified of the changes made to the game board of a game.
+ *
+ * <p>A {@code ComputerPlayer} that implements this interface is notified by
+ * {@code TicTacToeGame} of every move that is made or undone, which allows it to
+ * keep its own state up to date instead of examining the whole game board
+ * for every move.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public interface MoveListener {
+    /**
+     * Called after a square of the game board has been changed.
+     * @param gameBoard the game board after the change
+     * @param pos the coordinate of the square that was changed
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    void squareChanged(ImmutableGameBoard gameBoard, Coordinate pos, int numInARowToWin);
+
+    /**
+     * Called after the game board has been created or emptied.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    void gameBoardReset(ImmutableGameBoard gameBoard, int numInARowToWin);
+}
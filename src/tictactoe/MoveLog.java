@@ -0,0 +1,362 @@
+package tictactoe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The moves of a game of Tic-Tac-Toe in the order they were played.
+ *
+ * <p>Each move is packed into an {@code int} as the index of its square, row by row,
+ * shifted left by one bit, with the lowest bit set for a move of the computer.
+ * The moves are kept in an array that only grows, so undoing and redoing moves
+ * just moves the current ply back and forth. Adding a move drops the moves that
+ * were undone after the current ply.</p>
+ *
+ * <p>A game record starts with a byte of {@code VERSION}, followed by the width,
+ * the height, the number of pieces in a row needed to win, the number of moves,
+ * the current ply and the packed moves. They are written as unsigned varints:
+ * seven bits per byte, lowest bits first, with the highest bit set on every byte
+ * but the last. A move on a game board of up to 8x8 squares takes one byte.
+ * Records can be written one after another into the same stream.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class MoveLog {
+    /**
+     * The version of the game record format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The initial capacity of the move array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The largest number of bytes in a varint of an {@code int}.
+     */
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /**
+     * The width of the game board.
+     */
+    private final int width;
+
+    /**
+     * The height of the game board.
+     */
+    private final int height;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private final int numInARowToWin;
+
+    /**
+     * The packed moves. Only the first {@code length} are in use.
+     */
+    private int[] moves;
+
+    /**
+     * The number of moves in the log, including the ones that have been undone.
+     */
+    private int length;
+
+    /**
+     * The number of moves on the game board.
+     */
+    private int ply;
+
+    /**
+     * Creates a new empty MoveLog.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    public MoveLog(int width, int height, int numInARowToWin) {
+        this.width = width;
+        this.height = height;
+        this.numInARowToWin = numInARowToWin;
+        this.moves = new int[Math.min(INITIAL_CAPACITY, width * height)];
+    }
+
+    /**
+     * Creates a copy of a MoveLog.
+     * @param log the log to copy
+     * @return a new MoveLog with the same moves and ply
+     */
+    public static MoveLog copyOf(MoveLog log) {
+        MoveLog copy = new MoveLog(log.width, log.height, log.numInARowToWin);
+        copy.moves = Arrays.copyOf(log.moves, Math.max(log.length, copy.moves.length));
+        copy.length = log.length;
+        copy.ply = log.ply;
+        return copy;
+    }
+
+    /**
+     * Returns the largest size of a game record on a game board of the given size.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @return the size in bytes
+     */
+    public static int getMaxRecordSize(int width, int height) {
+        int maxMove = (width * height - 1) << 1 | 1;
+        int moveBytes = 1;
+        while((maxMove >>>= 7) != 0)
+            ++moveBytes;
+
+        // The version byte, five values of the header and every square
+        return 1 + 5 * MAX_VARINT_BYTES + width * height * moveBytes;
+    }
+
+    /**
+     * Returns the width of the game board.
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the game board.
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of pieces in a row needed to win.
+     * @return the number of pieces in a row needed to win
+     */
+    public int getNumInARowToWin() {
+        return numInARowToWin;
+    }
+
+    /**
+     * Returns the number of moves in the log, including the ones that have been undone.
+     * @return the number of moves
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of moves on the game board.
+     * @return the current ply
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Returns the x coordinate of a move.
+     * @param index the index of the move, from 0 to {@code getLength() - 1}
+     * @return the x coordinate
+     */
+    public int getX(int index) {
+        return (getMove(index) >>> 1) % width;
+    }
+
+    /**
+     * Returns the y coordinate of a move.
+     * @param index the index of the move, from 0 to {@code getLength() - 1}
+     * @return the y coordinate
+     */
+    public int getY(int index) {
+        return (getMove(index) >>> 1) / width;
+    }
+
+    /**
+     * Returns the player who made a move.
+     * @param index the index of the move, from 0 to {@code getLength() - 1}
+     * @return {@code TicTacToeGame.PLAYER} or {@code TicTacToeGame.COMPUTER}
+     */
+    public byte getPlayer(int index) {
+        return (getMove(index) & 1) != 0 ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER;
+    }
+
+    /**
+     * Adds a move at the current ply and drops the moves that were undone.
+     * @param x the x coordinate of the move
+     * @param y the y coordinate of the move
+     * @param player {@code TicTacToeGame.PLAYER} or {@code TicTacToeGame.COMPUTER}
+     */
+    public void add(int x, int y, byte player) {
+        if(x < 0 || x >= width || y < 0 || y >= height)
+            throw new IllegalArgumentException("The move is not on the game board.");
+        if(player != TicTacToeGame.PLAYER && player != TicTacToeGame.COMPUTER)
+            throw new IllegalArgumentException("Unknown player " + player + ".");
+
+        if(ply == moves.length)
+            moves = Arrays.copyOf(moves, Math.max(ply * 2, 1));
+        moves[ply++] = (y * width + x) << 1 | (player == TicTacToeGame.COMPUTER ? 1 : 0);
+        length = ply;
+    }
+
+    /**
+     * Tests whether there is a move to undo.
+     * @return true if the ply is greater than zero
+     */
+    public boolean canUndo() {
+        return ply > 0;
+    }
+
+    /**
+     * Tests whether there is an undone move to redo.
+     * @return true if the ply is less than the length
+     */
+    public boolean canRedo() {
+        return ply < length;
+    }
+
+    /**
+     * Moves the ply one move back. The move can be redone.
+     * @return the index of the undone move
+     */
+    public int undo() {
+        if(!canUndo())
+            throw new IllegalStateException("There is no move to undo.");
+        return --ply;
+    }
+
+    /**
+     * Moves the ply one move forward.
+     * @return the index of the redone move
+     */
+    public int redo() {
+        if(!canRedo())
+            throw new IllegalStateException("There is no move to redo.");
+        return ply++;
+    }
+
+    /**
+     * Drops the moves that have been undone, so that they cannot be redone.
+     */
+    public void truncate() {
+        length = ply;
+    }
+
+    /**
+     * Removes all the moves.
+     */
+    public void clear() {
+        length = 0;
+        ply = 0;
+    }
+
+    /**
+     * Writes the log as a game record.
+     * @param out the stream the record is written to with a single write
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        byte[] record = new byte[(6 + length) * MAX_VARINT_BYTES];
+        record[0] = VERSION;
+        int size = putVarint(record, 1, width);
+        size = putVarint(record, size, height);
+        size = putVarint(record, size, numInARowToWin);
+        size = putVarint(record, size, length);
+        size = putVarint(record, size, ply);
+        for (int i = 0; i < length; i++)
+            size = putVarint(record, size, moves[i]);
+
+        out.write(record, 0, size);
+    }
+
+    /**
+     * Reads a game record.
+     *
+     * <p>The record is read a byte at a time, so the stream should be buffered.
+     * Nothing is read after the record, so the next record can be read from the same stream.</p>
+     * @param in the stream the record is read from
+     * @return the log of the record, or null if the stream ended before the record
+     * @throws IOException if reading fails or the record is truncated or corrupted
+     */
+    public static MoveLog read(InputStream in) throws IOException {
+        // The version is the first byte, so a clean end of the stream can be told apart from a truncated record
+        int version = in.read();
+        if(version == -1)
+            return null;
+        if(version != VERSION)
+            throw new IOException("Unsupported game record version " + version + ".");
+
+        int width = readVarint(in);
+        int height = readVarint(in);
+        int numInARowToWin = readVarint(in);
+        int length = readVarint(in);
+        int ply = readVarint(in);
+        if(width < TicTacToeGame.MIN_WIDTH || height < TicTacToeGame.MIN_HEIGHT
+            || (long)width * height > TicTacToeGame.MAX_SQUARES
+            || numInARowToWin < TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL
+            || numInARowToWin > Math.max(width, height)
+            || length < 0 || length > width * height || ply < 0 || ply > length)
+            throw new IOException("The game record is corrupted.");
+
+        MoveLog log = new MoveLog(width, height, numInARowToWin);
+        for (int i = 0; i < length; i++) {
+            // Grows as the moves are read, so that a corrupted length cannot allocate more than the record holds
+            if(i == log.moves.length)
+                log.moves = Arrays.copyOf(log.moves, (int)Math.min(2L * i, length));
+            int move = readVarint(in);
+            if(move >>> 1 >= width * height)
+                throw new IOException("The game record is corrupted.");
+            log.moves[i] = move;
+        }
+
+        log.length = length;
+        log.ply = ply;
+        return log;
+    }
+
+    /**
+     * Returns a packed move.
+     * @param index the index of the move
+     * @return the packed move
+     */
+    private int getMove(int index) {
+        if(index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Move " + index + " is not in the log.");
+        return moves[index];
+    }
+
+    /**
+     * Puts an unsigned varint into a byte array.
+     * @param bytes the array
+     * @param offset the index of the first byte
+     * @param value the value, treated as unsigned
+     * @return the index after the last byte
+     */
+    private static int putVarint(byte[] bytes, int offset, int value) {
+        while((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte)(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte)value;
+        return offset;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     * @param in the stream
+     * @return the value
+     * @throws IOException if reading fails or the varint is truncated or too long
+     */
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < MAX_VARINT_BYTES * 7; shift += 7) {
+            int b = in.read();
+            if(b == -1)
+                throw new EOFException("The game record is truncated.");
+
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IOException("The game record is corrupted.");
+    }
+}
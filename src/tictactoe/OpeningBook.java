@@ -0,0 +1,180 @@
+package tictactoe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only collection of precomputed moves for the first moves of a game,
+ * memory-mapped from a file created by {@code OpeningBookBuilder}.
+ *
+ * <p>The file has a section for each game board size and number of pieces in a row
+ * needed to win. A section is a hash table with open addressing, keyed by the hash
+ * of the canonical orientation of the game board, so a move is found without reading
+ * the whole file into memory, and the rotations and reflections of a position share
+ * one entry.</p>
+ *
+ * <p>The file starts with a header of {@code MAGIC}, {@code VERSION} and the number
+ * of sections, followed by a directory with the width, height, number of pieces
+ * in a row, capacity and file offset of each section. A slot of a section is a
+ * {@code long} key followed by an {@code int} move in the canonical orientation,
+ * where the move is {@code y * width + x + 1}, or 0 in an empty slot.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class OpeningBook {
+    /**
+     * The first four bytes of an opening book file.
+     */
+    public static final int MAGIC = 0x54544F42;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * The size of a section in the directory in bytes.
+     */
+    static final int DIRECTORY_ENTRY_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+    /**
+     * The size of a slot in bytes.
+     */
+    static final int SLOT_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * The stored move of an empty slot.
+     */
+    static final int EMPTY_SLOT = 0;
+
+    /**
+     * The contents of the file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The number of sections.
+     */
+    private final int numSections;
+
+    /**
+     * Creates a new OpeningBook from the contents of a file.
+     * @param buffer the contents of an opening book file
+     * @throws IOException if the contents are not an opening book of this version
+     */
+    OpeningBook(ByteBuffer buffer) throws IOException {
+        if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not an opening book file.");
+        if(buffer.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Unsupported opening book version " + buffer.getInt(Integer.BYTES) + ".");
+
+        this.buffer = buffer;
+        this.numSections = buffer.getInt(2 * Integer.BYTES);
+        if(buffer.limit() < HEADER_SIZE + (long)numSections * DIRECTORY_ENTRY_SIZE)
+            throw new IOException("The opening book file is truncated.");
+
+        for (int i = 0; i < numSections; i++) {
+            int directoryEntry = HEADER_SIZE + i * DIRECTORY_ENTRY_SIZE;
+            int capacity = buffer.getInt(directoryEntry + 3 * Integer.BYTES);
+            long offset = buffer.getLong(directoryEntry + 4 * Integer.BYTES);
+            if(capacity <= 0 || Integer.bitCount(capacity) != 1 || offset < 0
+                || offset + (long)capacity * SLOT_SIZE > buffer.limit())
+                throw new IOException("The opening book file is corrupted.");
+        }
+    }
+
+    /**
+     * Memory-maps an opening book file.
+     * @param file the path of the file
+     * @return the opening book
+     * @throws IOException if the file cannot be read or it is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        // The mapping stays valid after the channel has been closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OpeningBook(buffer);
+        }
+    }
+
+    /**
+     * Returns the book move for the computer player on the given game board.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the book move, or null if the position is not in the book
+     */
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        int section = findSection(gameBoard.getWidth(), gameBoard.getHeight(), numInARowToWin);
+        if(section < 0)
+            return null;
+
+        int directoryEntry = HEADER_SIZE + section * DIRECTORY_ENTRY_SIZE;
+        int capacity = buffer.getInt(directoryEntry + 3 * Integer.BYTES);
+        long offset = buffer.getLong(directoryEntry + 4 * Integer.BYTES);
+
+        CanonicalPosition position = CanonicalPosition.of(gameBoard);
+        long key = position.hash;
+        int mask = capacity - 1;
+        for (int slot = getSlot(key, capacity), probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int slotPosition = (int)(offset + (long)slot * SLOT_SIZE);
+            int move = buffer.getInt(slotPosition + Long.BYTES);
+            if(move == EMPTY_SLOT)
+                return null;
+            if(buffer.getLong(slotPosition) == key) {
+                --move;
+                return position.toOriginal(Coordinate.of(move % gameBoard.getWidth(), move / gameBoard.getWidth()));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if the book has moves for the given game board size and number of pieces in a row.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return true if the book has a section for the settings
+     */
+    public boolean hasSection(int width, int height, int numInARowToWin) {
+        return findSection(width, height, numInARowToWin) >= 0;
+    }
+
+    /**
+     * Returns the slot where the search for the given key starts.
+     * @param key the hash of the canonical orientation of a game board
+     * @param capacity the number of slots, a power of two
+     * @return the index of the first slot to examine
+     */
+    static int getSlot(long key, int capacity) {
+        return (int)(key ^ (key >>> 32)) & (capacity - 1);
+    }
+
+    /**
+     * Finds the section for the given settings.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the index of the section, or -1 if there is none
+     */
+    private int findSection(int width, int height, int numInARowToWin) {
+        for (int i = 0; i < numSections; i++) {
+            int directoryEntry = HEADER_SIZE + i * DIRECTORY_ENTRY_SIZE;
+            if(buffer.getInt(directoryEntry) == width
+                && buffer.getInt(directoryEntry + Integer.BYTES) == height
+                && buffer.getInt(directoryEntry + 2 * Integer.BYTES) == numInARowToWin)
+                return i;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,292 @@
+package tictactoe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Creates opening book files for {@code OpeningBook}.
+ *
+ * <p>The book moves are found by a searching computer player for every position
+ * the computer player can face during the first moves of a game, whether it
+ * starts the game or not. On an empty game board every move of the human player
+ * is considered, and after that the moves next to the pieces already on the
+ * game board, which covers the openings that are actually played.</p>
+ *
+ * <p>Positions that are rotations or reflections of a position already
+ * in the book are skipped, since they share its entry.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class OpeningBookBuilder {
+    /**
+     * The number of slots of a section for each stored move.
+     * Half of the slots are left empty, so that the searches stay short.
+     */
+    private static final int SLOTS_PER_MOVE = 2;
+
+    /**
+     * The moves of each section, keyed by the settings of the section.
+     */
+    private final Map<List<Integer>, Map<Long, Integer>> sections = new LinkedHashMap<>();
+
+    /**
+     * Adds the book moves for the first moves of games with the given settings.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param numMoves the number of moves by both players the book covers
+     * @param searcher finds the moves of the computer player
+     */
+    public void generate(int width, int height, int numInARowToWin, int numMoves, ComputerPlayer searcher) {
+        if(numMoves < 0)
+            throw new IllegalArgumentException("The number of moves must not be negative.");
+
+        GameBoard gameBoard = GameBoard.create(width, height);
+        Map<Long, Integer> moves = getSection(width, height, numInARowToWin);
+
+        // The computer starts
+        addComputerMove(gameBoard, numInARowToWin, numMoves, searcher, moves);
+        // The human player starts
+        addPlayerMoves(gameBoard, numInARowToWin, numMoves, searcher, moves);
+    }
+
+    /**
+     * Adds a book move for a single position.
+     * @param gameBoard the game board where the computer player makes the next move
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param move the book move
+     */
+    public void add(ImmutableGameBoard gameBoard, int numInARowToWin, Coordinate move) {
+        if(!gameBoard.isWithinBounds(move))
+            throw new IllegalArgumentException("The move is not within the game board.");
+
+        CanonicalPosition position = CanonicalPosition.of(gameBoard);
+        getSection(gameBoard.getWidth(), gameBoard.getHeight(), numInARowToWin)
+            .put(position.hash, getMoveIndex(gameBoard, position.toCanonical(move)));
+    }
+
+    /**
+     * Returns the number of book moves added so far.
+     * @return the number of positions in the book
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Long, Integer> moves : sections.values())
+            size += moves.size();
+
+        return size;
+    }
+
+    /**
+     * Writes the opening book file.
+     * @param file the path of the file, which is replaced if it exists
+     * @throws IOException if writing the file fails
+     */
+    public void write(Path file) throws IOException {
+        long fileSize = OpeningBook.HEADER_SIZE + (long)sections.size() * OpeningBook.DIRECTORY_ENTRY_SIZE;
+        List<Integer> capacities = new ArrayList<>();
+        for (Map<Long, Integer> moves : sections.values()) {
+            int capacity = Integer.highestOneBit(Math.max(1, moves.size() * SLOTS_PER_MOVE - 1)) << 1;
+            capacities.add(capacity);
+            fileSize += (long)capacity * OpeningBook.SLOT_SIZE;
+        }
+        if(fileSize > Integer.MAX_VALUE)
+            throw new IOException("The opening book is too large.");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int)fileSize);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(sections.size());
+
+        int section = 0;
+        long offset = OpeningBook.HEADER_SIZE + (long)sections.size() * OpeningBook.DIRECTORY_ENTRY_SIZE;
+        for (Map.Entry<List<Integer>, Map<Long, Integer>> entry : sections.entrySet()) {
+            List<Integer> settings = entry.getKey();
+            int capacity = capacities.get(section++);
+            buffer.putInt(settings.get(0)).putInt(settings.get(1)).putInt(settings.get(2))
+                .putInt(capacity).putLong(offset);
+            writeSlots(buffer, (int)offset, capacity, entry.getValue());
+            offset += (long)capacity * OpeningBook.SLOT_SIZE;
+        }
+
+        buffer.position(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the moves of the section with the given settings, creating the section if needed.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the moves of the section, keyed by the hash of the canonical orientation
+     */
+    private Map<Long, Integer> getSection(int width, int height, int numInARowToWin) {
+        return sections.computeIfAbsent(Arrays.asList(width, height, numInARowToWin), settings -> new HashMap<>());
+    }
+
+    /**
+     * Searches the move of the computer player, stores it and continues with the moves of the human player.
+     * @param gameBoard the game board, where the computer player makes the next move
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param movesLeft the number of moves left to cover
+     * @param searcher finds the moves of the computer player
+     * @param moves the moves of the section
+     */
+    private void addComputerMove(GameBoard gameBoard, int numInARowToWin, int movesLeft,
+                                 ComputerPlayer searcher, Map<Long, Integer> moves) {
+        if(movesLeft == 0)
+            return;
+
+        CanonicalPosition position = CanonicalPosition.of(gameBoard);
+        if(moves.containsKey(position.hash))
+            return;
+
+        Coordinate move = searcher.getMove(gameBoard.asImmutable(), numInARowToWin);
+        moves.put(position.hash, getMoveIndex(gameBoard, position.toCanonical(move)));
+
+        gameBoard.setSquare(move, TicTacToeGame.COMPUTER);
+        if(!isGameOver(gameBoard, TicTacToeGame.COMPUTER, move, numInARowToWin))
+            addPlayerMoves(gameBoard, numInARowToWin, movesLeft - 1, searcher, moves);
+        gameBoard.setSquare(move, TicTacToeGame.EMPTY);
+    }
+
+    /**
+     * Goes through the moves of the human player that the book covers.
+     * @param gameBoard the game board, where the human player makes the next move
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param movesLeft the number of moves left to cover
+     * @param searcher finds the moves of the computer player
+     * @param moves the moves of the section
+     */
+    private void addPlayerMoves(GameBoard gameBoard, int numInARowToWin, int movesLeft,
+                                ComputerPlayer searcher, Map<Long, Integer> moves) {
+        if(movesLeft <= 1)
+            return;
+
+        boolean emptyBoard = gameBoard.getHash() == 0;
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(gameBoard.getSquare(x, y) != TicTacToeGame.EMPTY || !(emptyBoard || hasNeighbor(gameBoard, x, y)))
+                    continue;
+
+                Coordinate move = Coordinate.of(x, y);
+                gameBoard.setSquare(move, TicTacToeGame.PLAYER);
+                if(!isGameOver(gameBoard, TicTacToeGame.PLAYER, move, numInARowToWin))
+                    addComputerMove(gameBoard, numInARowToWin, movesLeft - 1, searcher, moves);
+                gameBoard.setSquare(move, TicTacToeGame.EMPTY);
+            }
+        }
+    }
+
+    /**
+     * Returns the number a move is stored as.
+     * @param gameBoard the game board
+     * @param move the move
+     * @return the index of the move, counted row by row
+     */
+    private static int getMoveIndex(ImmutableGameBoard gameBoard, Coordinate move) {
+        return move.y * gameBoard.getWidth() + move.x;
+    }
+
+    /**
+     * Checks if the game ended with the given move.
+     * @param gameBoard the game board
+     * @param player the player who made the move
+     * @param move the move
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return true if the player won or the game board is full
+     */
+    private static boolean isGameOver(ImmutableGameBoard gameBoard, byte player, Coordinate move, int numInARowToWin) {
+        if(VictoryChecker.hasWon(gameBoard, player, move, numInARowToWin))
+            return true;
+
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(gameBoard.getSquare(x, y) == TicTacToeGame.EMPTY)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if any of the eight squares around the given square has a piece.
+     * @param gameBoard the game board
+     * @param x the x value of the square
+     * @param y the y value of the square
+     * @return true if there is a piece next to the square
+     */
+    private static boolean hasNeighbor(ImmutableGameBoard gameBoard, int x, int y) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if(gameBoard.isWithinBounds(x + dx, y + dy)
+                    && gameBoard.getSquare(x + dx, y + dy) != TicTacToeGame.EMPTY)
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the slots of a section.
+     * @param buffer the contents of the file
+     * @param offset the position of the first slot
+     * @param capacity the number of slots, a power of two
+     * @param moves the moves of the section
+     */
+    private static void writeSlots(ByteBuffer buffer, int offset, int capacity, Map<Long, Integer> moves) {
+        int mask = capacity - 1;
+        for (Map.Entry<Long, Integer> move : moves.entrySet()) {
+            long key = move.getKey();
+            int slot = OpeningBook.getSlot(key, capacity);
+            while(buffer.getInt(offset + slot * OpeningBook.SLOT_SIZE + Long.BYTES) != OpeningBook.EMPTY_SLOT)
+                slot = (slot + 1) & mask;
+
+            buffer.putLong(offset + slot * OpeningBook.SLOT_SIZE, key);
+            buffer.putInt(offset + slot * OpeningBook.SLOT_SIZE + Long.BYTES, move.getValue() + 1);
+        }
+    }
+
+    /**
+     * Creates an opening book file.
+     * @param args the path of the file, the number of moves the book covers,
+     *             the time limit of a search in milliseconds and one or more
+     *             settings as width x height x number in a row, for example 15x15x5
+     * @throws IOException if writing the file fails
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 4) {
+            System.out.println("Usage: java tictactoe.OpeningBookBuilder <file> <moves> <time limit in ms> <width>x<height>x<in a row>...");
+            return;
+        }
+
+        int numMoves = Integer.parseInt(args[1]);
+        long timeLimit = Long.parseLong(args[2]);
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+
+        for (int i = 3; i < args.length; i++) {
+            String[] settings = args[i].split("x");
+            if(settings.length != 3)
+                throw new IllegalArgumentException("Expected width x height x number in a row: " + args[i]);
+
+            int width = Integer.parseInt(settings[0]);
+            int height = Integer.parseInt(settings[1]);
+            int numInARowToWin = Integer.parseInt(settings[2]);
+            try (ComputerPlayer searcher = new AlphaBetaComputer(timeLimit, AlphaBetaComputer.DEFAULT_MAX_MOVES)) {
+                builder.generate(width, height, numInARowToWin, numMoves, searcher);
+            }
+            System.out.println(args[i] + ": " + builder.size() + " positions in total");
+        }
+
+        builder.write(Paths.get(args[0]));
+    }
+}
@@ -0,0 +1,292 @@
+package tictactoe;
+
+import java.util.*;
+
+/**
+ * A {@code ComputerPlayer} that searches on the player's time, while the player
+ * is thinking about their move.
+ *
+ * <p>As soon as the computer has made its move, a background thread predicts the most
+ * likely replies of the player with {@code SmartComputer} and asks the other computer
+ * player for its answer to each of them. If the player then makes one of the predicted
+ * moves, the answer is returned at once. Otherwise, the pondering is stopped and the
+ * other computer player searches as usual; a search that keeps its results between
+ * moves, such as the transposition table of {@code AlphaBetaComputer}, still benefits
+ * from the positions searched while pondering.</p>
+ *
+ * <p>The other computer player is only used by one thread at a time: every move and
+ * every change of the game board stops the pondering first. A pondering search is
+ * stopped by interrupting it, which {@code AlphaBetaComputer} and {@code MonteCarloComputer}
+ * react to at once and the other computer players by finishing their quick searches.
+ * Undoing moves and resetting the game throw the predicted answers away.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class PonderingComputer extends DelegatingComputer {
+    /**
+     * The default number of predicted player moves that are answered while pondering.
+     */
+    public static final int DEFAULT_NUM_PREDICTIONS = 3;
+
+    /**
+     * The number of predicted player moves that are answered while pondering.
+     */
+    private final int numPredictions;
+
+    /**
+     * Used for predicting the moves of the player.
+     */
+    private final SmartComputer predictor = new SmartComputer();
+
+    /**
+     * The answers found while pondering, by the hash of the game board after the predicted move.
+     * Written by the pondering thread and read only after it has stopped.
+     */
+    private final Map<Long, Coordinate> answers = new HashMap<Long, Coordinate>();
+
+    /**
+     * The pondering thread, or null if the computer is not pondering.
+     */
+    private Thread ponderThread;
+
+    /**
+     * Set when the computer has pondered since its previous move.
+     */
+    private boolean pondered;
+
+    /**
+     * The number of moves answered with a move found while pondering.
+     */
+    private long hits;
+
+    /**
+     * The number of moves searched after pondering had predicted other moves.
+     */
+    private long misses;
+
+    /**
+     * Creates a new PonderingComputer that answers the default number of predicted moves.
+     * @param computer the computer player that makes the moves
+     */
+    public PonderingComputer(ComputerPlayer computer) {
+        this(computer, DEFAULT_NUM_PREDICTIONS);
+    }
+
+    /**
+     * Creates a new PonderingComputer.
+     * @param computer the computer player that makes the moves
+     * @param numPredictions the number of predicted player moves that are answered while pondering,
+     *                       must be greater than zero
+     */
+    public PonderingComputer(ComputerPlayer computer, int numPredictions) {
+        super(computer);
+        if(numPredictions <= 0)
+            throw new IllegalArgumentException("The number of predictions must be greater than zero.");
+
+        this.numPredictions = numPredictions;
+    }
+
+    /**
+     * Returns the answer found while pondering if the player made a predicted move,
+     * or the move of the other computer player.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the coordinate of the move
+     */
+    @Override
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        stopPondering();
+        Coordinate answer = answers.get(gameBoard.getHash());
+        boolean wasPondered = pondered;
+        clearAnswers();
+
+        // A hash collision could give a move that is not available
+        if(answer != null && gameBoard.getSquare(answer) == TicTacToeGame.EMPTY) {
+            ++hits;
+            return answer;
+        }
+
+        if(wasPondered)
+            ++misses;
+        return computer.getMove(gameBoard, numInARowToWin);
+    }
+
+    /**
+     * Stops pondering, passes the change on to the other computer player,
+     * and starts pondering if the change was a move of the computer.
+     * @param gameBoard the game board
+     * @param pos the coordinate of the square that was changed
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    @Override
+    public void squareChanged(ImmutableGameBoard gameBoard, Coordinate pos, int numInARowToWin) {
+        stopPondering();
+        super.squareChanged(gameBoard, pos, numInARowToWin);
+
+        byte square = gameBoard.getSquare(pos);
+        if(square == TicTacToeGame.COMPUTER)
+            startPondering(gameBoard, pos, numInARowToWin);
+        else if(square == TicTacToeGame.EMPTY)
+            clearAnswers();
+    }
+
+    /**
+     * Stops pondering, throws the answers away and passes the reset on to the other computer player.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    @Override
+    public void gameBoardReset(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        stopPondering();
+        clearAnswers();
+        super.gameBoardReset(gameBoard, numInARowToWin);
+    }
+
+    /**
+     * Stops pondering and closes the computer player that makes the moves.
+     */
+    @Override
+    public void close() {
+        stopPondering();
+        super.close();
+    }
+
+    /**
+     * Returns the number of moves answered with a move found while pondering.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of moves searched after pondering had predicted other moves.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Starts answering the predicted player moves in a new thread, unless the game has ended.
+     * @param gameBoard the game board after the move of the computer
+     * @param computerMove the move of the computer
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    private void startPondering(ImmutableGameBoard gameBoard, Coordinate computerMove, int numInARowToWin) {
+        if(VictoryChecker.hasWon(gameBoard, TicTacToeGame.COMPUTER, computerMove, numInARowToWin))
+            return;
+
+        // The game board of the game keeps changing, so the thread ponders on its own copy
+        GameBoard board = GameBoard.copyOf(gameBoard);
+        board.trackCandidateMoves(1);
+
+        pondered = true;
+        ponderThread = new Thread(() -> ponder(board, numInARowToWin), "tictactoe-ponder");
+        // A computer player that is not closed must not keep the program running
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    /**
+     * Stops the pondering thread and waits for it to end.
+     *
+     * <p>The thread stops soon after it has been interrupted, so an interrupt
+     * does not cut the wait short. It is set again once the thread has ended.</p>
+     */
+    private void stopPondering() {
+        if(ponderThread == null)
+            return;
+
+        ponderThread.interrupt();
+        boolean interrupted = false;
+        while(true) {
+            try {
+                ponderThread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        ponderThread = null;
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Throws away the answers found while pondering.
+     */
+    private void clearAnswers() {
+        answers.clear();
+        pondered = false;
+    }
+
+    /**
+     * Asks the other computer player for its answer to each predicted move of the player,
+     * until all of them have been answered or the thread is interrupted.
+     * @param board a copy of the game board, used for making the predicted moves
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    private void ponder(GameBoard board, int numInARowToWin) {
+        ImmutableGameBoard view = board.asImmutable();
+        boolean lastSquare = countEmptySquares(board) == 1;
+        for (Coordinate move : predictMoves(board, numInARowToWin)) {
+            board.setSquare(move, TicTacToeGame.PLAYER);
+            // Nothing needs to be answered after a move that ends the game
+            boolean gameOver = lastSquare || VictoryChecker.hasWon(board, TicTacToeGame.PLAYER, move, numInARowToWin);
+
+            if(!gameOver) {
+                Coordinate answer = computer.getMove(view, numInARowToWin);
+                // An interrupted search returns a move, but not necessarily a good one
+                if(Thread.currentThread().isInterrupted())
+                    return;
+
+                answers.put(board.getHash(), answer);
+            }
+
+            board.setSquare(move, TicTacToeGame.EMPTY);
+        }
+    }
+
+    /**
+     * Returns the most likely moves of the player, highest priority first.
+     * @param board the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return at most {@code numPredictions} moves
+     */
+    private List<Coordinate> predictMoves(GameBoard board, int numInARowToWin) {
+        int[][] priorities = predictor.getPriorities(board, numInARowToWin, TicTacToeGame.PLAYER, TicTacToeGame.COMPUTER);
+        CandidateMoves candidateMoves = board.getCandidateMoves();
+        List<Coordinate> moves = new ArrayList<Coordinate>(candidateMoves.size());
+        for (int i = 0; i < candidateMoves.size(); i++)
+            moves.add(board.getCoordinate(candidateMoves.get(i)));
+
+        // Equal priorities are ordered the same way as in SmartComputer
+        moves.sort((a, b) -> {
+            int difference = priorities[b.y][b.x] - priorities[a.y][a.x];
+            if(difference != 0)
+                return difference;
+            return a.x != b.x ? a.x - b.x : a.y - b.y;
+        });
+
+        return moves.size() > numPredictions ? moves.subList(0, numPredictions) : moves;
+    }
+
+    /**
+     * Counts the empty squares on the game board.
+     * @param gameBoard the game board
+     * @return the number of empty squares
+     */
+    private static int countEmptySquares(ImmutableGameBoard gameBoard) {
+        int count = 0;
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(gameBoard.getSquare(x, y) == TicTacToeGame.EMPTY)
+                    ++count;
+            }
+        }
+
+        return count;
+    }
+}
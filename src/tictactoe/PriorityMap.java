@@ -0,0 +1,221 @@
+package tictactoe;
+
+/**
+ * The priorities calculated by {@code SmartComputer} for the computer player,
+ * kept up to date as the squares of the game board change.
+ *
+ * <p>The priority of a square only depends on the squares at most
+ * {@code SmartComputer.getScanDistance} squares away in each direction,
+ * so when a square changes, only the squares on the four lines through it
+ * within that distance are recalculated.</p>
+ *
+ * <p>The priorities are also stored in a tree of maximums, so the square with the
+ * highest priority can be found without examining the whole game board. The
+ * leaves are in the same order in which {@code SmartComputer} goes through the
+ * squares (column by column), so the same square is selected among equal priorities.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class PriorityMap {
+    /**
+     * The game board, or null if the map has not been reset yet.
+     */
+    private ImmutableGameBoard gameBoard;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private int numInARowToWin;
+
+    /**
+     * The width of the game board.
+     */
+    private int width;
+
+    /**
+     * The height of the game board.
+     */
+    private int height;
+
+    /**
+     * The square index offsets of {@code Directions.ALL} on the game board.
+     */
+    private final int[] offsets = new int[Directions.ALL.length];
+
+    /**
+     * The priority of each square in each direction, indexed by
+     * [direction * squares + x * height + y].
+     */
+    private int[] linePriorities;
+
+    /**
+     * The tree of maximums. The children of node {@code i} are {@code 2i} and
+     * {@code 2i + 1}, and the leaves start at {@code numLeaves}.
+     */
+    private int[] maxTree;
+
+    /**
+     * The number of leaves in the tree, a power of two.
+     */
+    private int numLeaves;
+
+    /**
+     * The hash of the game board when the priorities were last updated.
+     */
+    private long hash;
+
+    /**
+     * Checks if this map is for the given game board size and number of pieces in a row to win.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return true if the map can be updated for the game board
+     */
+    public boolean isFor(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        return this.gameBoard != null
+            && width == gameBoard.getWidth()
+            && height == gameBoard.getHeight()
+            && this.numInARowToWin == numInARowToWin;
+    }
+
+    /**
+     * Checks if the priorities are up to date for the given game board.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return true if the game board has not changed since the last update
+     */
+    public boolean isUpToDate(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        return isFor(gameBoard, numInARowToWin) && hash == gameBoard.getHash();
+    }
+
+    /**
+     * Calculates the priorities of every square on the given game board.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    public void reset(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        this.gameBoard = gameBoard;
+        this.numInARowToWin = numInARowToWin;
+
+        if(width != gameBoard.getWidth() || height != gameBoard.getHeight() || maxTree == null) {
+            width = gameBoard.getWidth();
+            height = gameBoard.getHeight();
+            numLeaves = Math.max(1, Integer.highestOneBit(width * height - 1) << 1);
+            linePriorities = new int[Directions.ALL.length * width * height];
+            maxTree = new int[numLeaves * 2];
+        }
+
+        for (int d = 0; d < Directions.ALL.length; d++) {
+            offsets[d] = gameBoard.getOffset(Directions.ALL[d]);
+        }
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                updateSquare(x, y);
+            }
+        }
+
+        hash = gameBoard.getHash();
+    }
+
+    /**
+     * Recalculates the priorities of the squares affected by a change at the given square.
+     * @param x the x value of the changed square
+     * @param y the y value of the changed square
+     */
+    public void update(int x, int y) {
+        int distance = SmartComputer.getScanDistance(numInARowToWin);
+
+        for (int d = 0; d < Directions.ALL.length; d++) {
+            Direction dir = Directions.ALL[d];
+            for (int i = -distance; i <= distance; i++) {
+                int squareX = x + dir.xVec * i;
+                int squareY = y + dir.yVec * i;
+                if(gameBoard.isWithinBounds(squareX, squareY))
+                    updateLine(d, squareX, squareY);
+            }
+        }
+
+        hash = gameBoard.getHash();
+    }
+
+    /**
+     * Returns the highest priority on the game board.
+     * @return the highest priority
+     */
+    public int getMaxPriority() {
+        return maxTree[1];
+    }
+
+    /**
+     * Returns the first square, column by column, that has the highest priority.
+     * @return the Coordinate of the square with the highest priority
+     */
+    public Coordinate getHighestPriorityMove() {
+        int maxPriority = maxTree[1];
+        int node = 1;
+
+        while(node < numLeaves) {
+            node *= 2;
+            if(maxTree[node] != maxPriority)
+                ++node;
+        }
+
+        int square = node - numLeaves;
+        return Coordinate.of(square / height, square % height);
+    }
+
+    /**
+     * Recalculates the priority of the given square in every direction.
+     * @param x the x value of the square
+     * @param y the y value of the square
+     */
+    private void updateSquare(int x, int y) {
+        for (int d = 0; d < Directions.ALL.length; d++) {
+            updateLine(d, x, y);
+        }
+    }
+
+    /**
+     * Recalculates the priority of the given square in the given direction
+     * and updates its total priority in the tree.
+     * @param d the index of the direction in {@code Directions.ALL}
+     * @param x the x value of the square
+     * @param y the y value of the square
+     */
+    private void updateLine(int d, int x, int y) {
+        int square = x * height + y;
+        int squares = width * height;
+        int priority = 0;
+
+        int index = gameBoard.getIndex(x, y);
+        if(gameBoard.getSquare(index) == TicTacToeGame.EMPTY) {
+            priority = SmartComputer.getLinePriority(gameBoard, index, offsets[d],
+                numInARowToWin, TicTacToeGame.COMPUTER, TicTacToeGame.PLAYER);
+        }
+        linePriorities[d * squares + square] = priority;
+
+        int total = 0;
+        for (int i = square; i < linePriorities.length; i += squares) {
+            total += linePriorities[i];
+        }
+        setLeaf(square, total);
+    }
+
+    /**
+     * Sets the value of a leaf in the tree and updates the maximums above it.
+     * @param leaf the index of the leaf
+     * @param value the new value
+     */
+    private void setLeaf(int leaf, int value) {
+        int node = numLeaves + leaf;
+        maxTree[node] = value;
+
+        while(node > 1) {
+            node /= 2;
+            int max = Math.max(maxTree[2 * node], maxTree[2 * node + 1]);
+            if(maxTree[node] == max)
+                break;
+            maxTree[node] = max;
+        }
+    }
+}
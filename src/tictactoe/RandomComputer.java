@@ -33,7 +33,7 @@ public class RandomComputer implements ComputerPlayer {
         for (int x = 0; x < gameBoard.getWidth(); x++) {
             for (int y = 0; y < gameBoard.getHeight(); y++) {
                 if(gameBoard.getSquare(x, y) == TicTacToeGame.EMPTY)
-                    availableMoves.add(new Coordinate(x, y));
+                    availableMoves.add(Coordinate.of(x, y));
             }
         }
 
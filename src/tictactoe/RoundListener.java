@@ -0,0 +1,25 @@
+package tictactoe;
+
+/**
+ * Interface for following the progress of a round played with
+ * {@code TicTacToeGame.playARoundAsync}.
+ *
+ * @author Tapio Malmberg
+ */
+public interface RoundListener {
+    /**
+     * Called on the thread that plays the round, after the move of the player has been made
+     * and before the computer starts thinking about its move.
+     * @param gameBoard the game board after the move
+     * @param move the move of the player
+     */
+    void playerMoveMade(ImmutableGameBoard gameBoard, Coordinate move);
+
+    /**
+     * Called on the thread of the executor, after the move of the computer has been made
+     * and before the future of the round completes.
+     * @param gameBoard the game board after the move
+     * @param move the move of the computer
+     */
+    void computerMoveMade(ImmutableGameBoard gameBoard, Coordinate move);
+}
@@ -0,0 +1,52 @@
+package tictactoe;
+
+/**
+ * Checks the rows of many game boards one board at a time,
+ * without branches that depend on the pieces.
+ *
+ * @author Tapio Malmberg
+ */
+class ScalarWinKernel implements WinKernel {
+    /**
+     * Checks for each board whether a row of pieces goes through the given square.
+     * @param pieces the pieces of the player on each board
+     * @param squares the bit index of the square on each board
+     * @param count the number of boards to check, from the start of the arrays
+     * @param windows the windows, indexed by (direction * numSquares + square)
+     * @param numSquares the number of squares on a board
+     * @param shifts the shift of each direction
+     * @param numToWin the number of pieces in a row needed to win
+     * @param results set to true for the boards that have a row through the square, and false for the others
+     */
+    @Override
+    public void hasWon(long[] pieces, int[] squares, int count, long[] windows, int numSquares,
+                       int[] shifts, int numToWin, boolean[] results) {
+        for (int i = 0; i < count; i++)
+            results[i] = hasWon(pieces[i], squares[i], windows, numSquares, shifts, numToWin);
+    }
+
+    /**
+     * Checks whether a row of pieces goes through the given square of one board.
+     * @param board the pieces of the player on the board
+     * @param square the bit index of the square
+     * @param windows the windows, indexed by (direction * numSquares + square)
+     * @param numSquares the number of squares on a board
+     * @param shifts the shift of each direction
+     * @param numToWin the number of pieces in a row needed to win
+     * @return true if there is a row through the square
+     */
+    static boolean hasWon(long board, int square, long[] windows, int numSquares, int[] shifts, int numToWin) {
+        long won = 0;
+        for (int d = 0; d < shifts.length; d++) {
+            // Doubles the length of the rows that start at each bit until it reaches numToWin
+            long rowStarts = board;
+            for (int length = 1; length < numToWin; ) {
+                int step = Math.min(length, numToWin - length);
+                rowStarts &= rowStarts >>> (step * shifts[d]);
+                length += step;
+            }
+            won |= rowStarts & windows[d * numSquares + square];
+        }
+        return won != 0;
+    }
+}
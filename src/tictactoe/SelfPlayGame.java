@@ -0,0 +1,168 @@
+package tictactoe;
+
+/**
+ * A game of Tic-Tac-Toe played between two computer players without a user interface.
+ *
+ * <p>Computer players always make moves with the {@code COMPUTER} pieces, so each
+ * player is given its own game board, where its own pieces are {@code COMPUTER}
+ * pieces and the pieces of its opponent are {@code PLAYER} pieces. On the game board
+ * returned by {@code getGameBoard}, the first player has the {@code COMPUTER} pieces.</p>
+ *
+ * <p>A game can be played any number of times. The game boards are emptied
+ * before each game, so no memory is allocated for a new game.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class SelfPlayGame {
+    /**
+     * The game boards of the first and the second player.
+     */
+    private final GameBoard[] gameBoards = new GameBoard[2];
+
+    /**
+     * The read-only views of the game boards given to the players.
+     */
+    private final ImmutableGameBoard[] gameBoardViews = new ImmutableGameBoard[2];
+
+    /**
+     * The first and the second player.
+     */
+    private final ComputerPlayer[] players = new ComputerPlayer[2];
+
+    /**
+     * The players as MoveListeners, or null for the players that do not listen to moves.
+     */
+    private final MoveListener[] moveListeners = new MoveListener[2];
+
+    /**
+     * The number of pieces needed in a row to win.
+     */
+    private final int numInARowToWin;
+
+    /**
+     * The maximum number of moves possible on the game board.
+     */
+    private final int maxMoves;
+
+    /**
+     * The total number of moves that have been played by both players.
+     */
+    private int playedMoves;
+
+    /**
+     * Creates a new SelfPlayGame with the given attributes.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param first the first computer player
+     * @param second the second computer player, must not be the same object as {@code first}
+     */
+    public SelfPlayGame(int width, int height, int numInARowToWin, ComputerPlayer first, ComputerPlayer second) {
+        checkSettings(width, height, numInARowToWin);
+        if(first == second)
+            // A player that listens to moves can only follow one game board
+            throw new IllegalArgumentException("The players must be different objects.");
+
+        this.numInARowToWin = numInARowToWin;
+        this.maxMoves = width * height;
+        this.players[0] = first;
+        this.players[1] = second;
+
+        for (int i = 0; i < 2; i++) {
+            gameBoards[i] = GameBoard.create(width, height);
+            gameBoards[i].trackCandidateMoves(1);
+            gameBoardViews[i] = gameBoards[i].asImmutable();
+            if(players[i] instanceof MoveListener)
+                moveListeners[i] = (MoveListener)players[i];
+        }
+    }
+
+    /**
+     * Checks that a game can be played with the given settings.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @throws IllegalArgumentException if a setting is too small
+     */
+    static void checkSettings(int width, int height, int numInARowToWin) {
+        if(width < TicTacToeGame.MIN_WIDTH)
+            throw new IllegalArgumentException("Width must be " + TicTacToeGame.MIN_WIDTH + " or greater.");
+        if(height < TicTacToeGame.MIN_HEIGHT)
+            throw new IllegalArgumentException("Height must be " + TicTacToeGame.MIN_HEIGHT + " or greater.");
+        if(numInARowToWin < TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL)
+            throw new IllegalArgumentException("The number of game pieces in a row needed to win has to be at least " + TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL +".");
+    }
+
+    /**
+     * Plays a whole game from an empty game board.
+     * @param firstStarts decides whether the first player makes the first move
+     * @return {@code COMPUTER_WON} if the first player won, {@code PLAYER_WON}
+     *         if the second player won, or {@code DRAW_GAME}
+     * @throws IllegalStateException if a player returns a position that is not available
+     */
+    public GameState play(boolean firstStarts) {
+        reset();
+
+        int turn = firstStarts ? 0 : 1;
+        while(true) {
+            Coordinate move = players[turn].getMove(gameBoardViews[turn], numInARowToWin);
+            makeMove(turn, move);
+
+            if(VictoryChecker.hasWon(gameBoards[turn], TicTacToeGame.COMPUTER, move, numInARowToWin))
+                return turn == 0 ? GameState.COMPUTER_WON : GameState.PLAYER_WON;
+            if(playedMoves == maxMoves)
+                return GameState.DRAW_GAME;
+
+            turn = 1 - turn;
+        }
+    }
+
+    /**
+     * Returns the game board of the latest game as read-only.
+     *
+     * <p>The pieces of the first player are {@code COMPUTER} pieces
+     * and the pieces of the second player are {@code PLAYER} pieces.</p>
+     * @return the game board of the first player
+     */
+    public ImmutableGameBoard getGameBoard() {
+        return gameBoardViews[0];
+    }
+
+    /**
+     * Returns the number of moves played in the latest game.
+     * @return the number of moves played by both players
+     */
+    public int getPlayedMoves() {
+        return playedMoves;
+    }
+
+    /**
+     * Empties the game boards and notifies the players.
+     */
+    private void reset() {
+        playedMoves = 0;
+        for (int i = 0; i < 2; i++) {
+            gameBoards[i].fillBoard(TicTacToeGame.EMPTY);
+            if(moveListeners[i] != null)
+                moveListeners[i].gameBoardReset(gameBoardViews[i], numInARowToWin);
+        }
+    }
+
+    /**
+     * Sets the move of the given player on both game boards and notifies the players.
+     * @param turn 0 for the first player, 1 for the second player
+     * @param move the move made by the player
+     * @throws IllegalStateException if the move is not available
+     */
+    private void makeMove(int turn, Coordinate move) {
+        if(move == null || !gameBoards[turn].isWithinBounds(move) || gameBoards[turn].getSquare(move) != TicTacToeGame.EMPTY)
+            throw new IllegalStateException("The computer player returned a position that is not available.");
+
+        ++playedMoves;
+        for (int i = 0; i < 2; i++) {
+            gameBoards[i].setSquare(move, i == turn ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER);
+            if(moveListeners[i] != null)
+                moveListeners[i].squareChanged(gameBoardViews[i], move, numInARowToWin);
+        }
+    }
+}
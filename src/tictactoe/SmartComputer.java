@@ -10,7 +10,7 @@ package tictactoe;
  *
  * @author Tapio Malmberg
  */
-public class SmartComputer implements ComputerPlayer {
+public class SmartComputer implements ComputerPlayer, MoveListener {
     /**
      * The game board.
      */
@@ -21,16 +21,6 @@ public class SmartComputer implements ComputerPlayer {
      */
     private int numInARowToWin;
 
-    /**
-     * The number of pieces in a row one move away from victory.
-     */
-    private int oneMoveToWin;
-
-    /**
-     * The number of pieces in a row two moves away from victory.
-     */
-    private int twoMovesToWin;
-
     /**
      * The calculated priority for each square on the game board.
      */
@@ -41,32 +31,115 @@ public class SmartComputer implements ComputerPlayer {
      */
     private int maxPriority;
 
+    /**
+     * The priorities of the computer, updated as the squares of the game board change.
+     */
+    private final PriorityMap priorityMap = new PriorityMap();
+
     /**
      * Returns a Coordinate with the highest calculated priority.
+     * 
+     * <p>If this computer player has been notified of every change made to the
+     * game board, the incrementally updated priorities are used. Otherwise the
+     * priorities are calculated for the whole game board.</p>
      * @param gameBoard the game board
      * @param numInARowToWin the number of pieces in a row needed to win
      * @return a Coordinate with the highest calculated priority
      */
     @Override
     public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
-        this.maxPriority = 0;
-        this.gameBoard = gameBoard;
-        this.numInARowToWin = numInARowToWin;
-        this.oneMoveToWin = numInARowToWin - 1;
-        this.twoMovesToWin = oneMoveToWin - 1;
-        this.priorities = new int[gameBoard.getHeight()][gameBoard.getWidth()];
-
-        addPrioritiesForBlockingMoves();
-        addPrioritiesForPossibleMoves();
+        boolean useMap = priorityMap.isUpToDate(gameBoard, numInARowToWin);
+        if(useMap) {
+            this.gameBoard = gameBoard;
+            this.numInARowToWin = numInARowToWin;
+            this.maxPriority = priorityMap.getMaxPriority();
+        } else {
+            getPriorities(gameBoard, numInARowToWin, TicTacToeGame.COMPUTER, TicTacToeGame.PLAYER);
+        }
 
         // If maxPriority is zero, this is either the first move,
         // or winning the game is no longer possible
         if(maxPriority > 0)
-            return getHighestPriorityMove();
+            return useMap ? priorityMap.getHighestPriorityMove() : getHighestPriorityMove();
         else
             return getMiddlePositionOrRandomMove();
     }
 
+    /**
+     * Updates the priorities of the squares affected by the changed square.
+     * @param gameBoard the game board
+     * @param pos the coordinate of the square that was changed
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    @Override
+    public void squareChanged(ImmutableGameBoard gameBoard, Coordinate pos, int numInARowToWin) {
+        if(priorityMap.isFor(gameBoard, numInARowToWin))
+            priorityMap.update(pos.x, pos.y);
+        else
+            priorityMap.reset(gameBoard, numInARowToWin);
+    }
+
+    /**
+     * Calculates the priorities of every square on the game board.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    @Override
+    public void gameBoardReset(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        priorityMap.reset(gameBoard, numInARowToWin);
+    }
+
+    /**
+     * Calculates the priority of each square on the game board
+     * for the given player, who is about to make a move.
+     * 
+     * <p>Used by other computer players for evaluating game boards
+     * and ordering moves. If the game board tracks its candidate moves,
+     * only the candidates are looked at.</p>
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param player the player who makes the next move
+     * @param opponent the opponent of the player
+     * @return the calculated priority for each square, indexed by [y][x]
+     */
+    int[][] getPriorities(ImmutableGameBoard gameBoard, int numInARowToWin, byte player, byte opponent) {
+        this.maxPriority = 0;
+        this.gameBoard = gameBoard;
+        this.numInARowToWin = numInARowToWin;
+        this.priorities = new int[gameBoard.getHeight()][gameBoard.getWidth()];
+
+        // Only the squares next to a piece can get a priority greater than zero
+        CandidateMoves candidateMoves = gameBoard.getCandidateMoves();
+        if(candidateMoves != null) {
+            for (int i = 0; i < candidateMoves.size(); i++) {
+                int index = candidateMoves.get(i);
+                Coordinate pos = gameBoard.getCoordinate(index);
+                increaseSquarePriority(pos.x, pos.y, getSquarePriority(gameBoard, index, numInARowToWin, player, opponent));
+            }
+
+            return priorities;
+        }
+
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(isAvailable(x, y)) {
+                    int priority = getSquarePriority(gameBoard, gameBoard.getIndex(x, y), numInARowToWin, player, opponent);
+                    increaseSquarePriority(x, y, priority);
+                }
+            }
+        }
+
+        return priorities;
+    }
+
+    /**
+     * Returns the maximum priority calculated by the latest call to {@code getPriorities}.
+     * @return the maximum calculated priority
+     */
+    int getMaxPriority() {
+        return maxPriority;
+    }
+
     /**
      * Returns the Coordinate of the square that has the highest priority.
      * 
@@ -79,7 +152,7 @@ public class SmartComputer implements ComputerPlayer {
         for (int x = 0; x < priorities[0].length; x++) {
             for (int y = 0; y < priorities.length; y++) {
                 if(priorities[y][x] == maxPriority)
-                    return new Coordinate(x, y);
+                    return Coordinate.of(x, y);
             }
         }
 
@@ -87,66 +160,121 @@ public class SmartComputer implements ComputerPlayer {
     }
 
     /**
-     * Calculates the priorities for moves that block the player.
+     * Calculates the priority of an empty square for the given player,
+     * based on the number of pieces in a row in every direction.
+     * @param gameBoard the game board
+     * @param index the square index of the square
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param player the player who makes the next move
+     * @param opponent the opponent of the player
+     * @return the priority of the square
      */
-    private void addPrioritiesForBlockingMoves() {
+    static int getSquarePriority(ImmutableGameBoard gameBoard, int index, int numInARowToWin, byte player, byte opponent) {
+        int priority = 0;
         for (Direction direction : Directions.ALL)
-            calculatePriorities(direction, TicTacToeGame.PLAYER, 100, 20);
+            priority += getLinePriority(gameBoard, index, gameBoard.getOffset(direction), numInARowToWin, player, opponent);
+
+        return priority;
     }
 
     /**
-     * Calculates the priorities for moves that help the computer win.
+     * Returns the priority of an empty square for the given player,
+     * based on the number of pieces in a row in the given direction.
+     * 
+     * <p>The priority is looked up from the {@code LinePatterns} table for
+     * {@code numInARowToWin}, or calculated if the rows are too long for a table.</p>
+     * @param gameBoard the game board
+     * @param index the square index of the square
+     * @param offset the offset of the direction for counting the adjacent pieces
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param player the player who makes the next move
+     * @param opponent the opponent of the player
+     * @return the priority of the square in the direction
      */
-    private void addPrioritiesForPossibleMoves() {
-        // Uses higher "boost" values because if a winning move is available,
-        // the computer should take it and not try to block the player.
-        for (Direction direction : Directions.ALL)
-            calculatePriorities(direction, TicTacToeGame.COMPUTER, 300, 40);
+    static int getLinePriority(ImmutableGameBoard gameBoard, int index, int offset, int numInARowToWin, byte player, byte opponent) {
+        LinePatterns patterns = LinePatterns.of(numInARowToWin);
+        if(patterns != null)
+            return patterns.getPriority(gameBoard, index, offset, player);
+
+        return calculateLinePriority(gameBoard, index, offset, numInARowToWin, player, opponent);
     }
 
     /**
-     * Calculates a priority for each square based on the number of pieces in a row in
-     * the given direction for the given player.
-     * @param dir the direction for counting the adjacent pieces
+     * Calculates the priority of an empty square for the given player,
+     * based on the number of pieces in a row in the given direction.
+     * 
+     * <p>Only the squares at most {@code getScanDistance(numInARowToWin)} squares
+     * away in the direction affect the priority.</p>
+     * @param gameBoard the game board
+     * @param index the square index of the square
+     * @param offset the offset of the direction for counting the adjacent pieces
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param player the player who makes the next move
+     * @param opponent the opponent of the player
+     * @return the priority of the square in the direction
+     */
+    static int calculateLinePriority(ImmutableGameBoard gameBoard, int index, int offset, int numInARowToWin, byte player, byte opponent) {
+        // Uses higher "boost" values for the player because if a winning move is available,
+        // the computer should take it and not try to block the opponent.
+        return getRowPriority(gameBoard, index, offset, numInARowToWin, opponent, 100, 20)
+            + getRowPriority(gameBoard, index, offset, numInARowToWin, player, 300, 40);
+    }
+
+    /**
+     * Returns how far from a square the pieces that affect its priority can be.
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the maximum distance of a square that affects the priority
+     */
+    static int getScanDistance(int numInARowToWin) {
+        // The pieces of a row that does not win yet, followed by
+        // enough space for a winning row
+        return 2 * numInARowToWin;
+    }
+
+    /**
+     * Calculates the priority of a square based on the number of pieces of the given
+     * player in a row in the given direction.
+     * @param gameBoard the game board
+     * @param index the square index of the square
+     * @param offset the offset of the direction for counting the adjacent pieces
+     * @param numInARowToWin the number of pieces in a row needed to win
      * @param player the human player or the computer player
      * @param largeBoost the value added to the priority of a square that is one move away from victory
      * @param smallBoost the value added to the priority of a square that is two moves away from victory
+     * @return the priority of the square, or zero if a winning row cannot be made through it
      */
-    private void calculatePriorities(Direction dir, byte player, int largeBoost, int smallBoost) {
-        for (int y = 0; y < gameBoard.getHeight(); y++) {
-            for (int x = 0; x < gameBoard.getWidth(); x++) {
-                if(!isAvailable(x, y))
-                    continue;
-
-                Coordinate thisPos = new Coordinate(x, y);
-                Direction reverseDir = dir.reverse();
-
-                // Calculate the number of adjacent pieces, forwards and backwards
-                int adjacentForward = gameBoard.getNumAdjacent(thisPos, dir, player, false);
-                int adjacentReverse = gameBoard.getNumAdjacent(thisPos, reverseDir, player, false);
-                int priority = adjacentForward + adjacentReverse;
-                if(priority == 0)
-                    continue;
-
-                // Calculate the space available after the pieces, forwards and backwards
-                int spaceAvailableFw = gameBoard.getNumAdjacent(thisPos.move(dir, adjacentForward), dir, TicTacToeGame.EMPTY, false);
-                int spaceAvailableRev = gameBoard.getNumAdjacent(thisPos.move(reverseDir, adjacentReverse), reverseDir, TicTacToeGame.EMPTY, false);
-
-                // Discard this move if there is not enough space available for a winning row
-                if(1 + spaceAvailableFw + spaceAvailableRev + adjacentForward + adjacentReverse < numInARowToWin)
-                    continue;
-
-                if(priority >= oneMoveToWin) {
-                    priority += largeBoost;
-                } else if(priority == twoMovesToWin && (spaceAvailableFw != 0 && spaceAvailableRev != 0)) {
-                    // Boost the priority if both ends of the row of pieces are open
-                    // In this case it is vital that the human player is blocked
-                    priority += smallBoost;
-                }
+    private static int getRowPriority(ImmutableGameBoard gameBoard, int index, int offset,
+                                      int numInARowToWin, byte player, int largeBoost, int smallBoost) {
+        int scanDistance = getScanDistance(numInARowToWin);
+        int oneMoveToWin = numInARowToWin - 1;
+        int twoMovesToWin = oneMoveToWin - 1;
 
-                increaseSquarePriority(x, y, priority);
-            }
+        // Calculate the number of adjacent pieces, forwards and backwards
+        int adjacentForward = gameBoard.getNumAdjacent(index, offset, player, false, scanDistance);
+        int adjacentReverse = gameBoard.getNumAdjacent(index, -offset, player, false, scanDistance);
+        int priority = adjacentForward + adjacentReverse;
+        if(priority == 0)
+            return 0;
+
+        // Calculate the space available after the pieces, forwards and backwards
+        int spaceAvailableFw = gameBoard.getNumAdjacent(index + offset * adjacentForward, offset,
+            TicTacToeGame.EMPTY, false, scanDistance - adjacentForward);
+        int spaceAvailableRev = gameBoard.getNumAdjacent(index - offset * adjacentReverse, -offset,
+            TicTacToeGame.EMPTY, false, scanDistance - adjacentReverse);
+
+        // Discard this move if there is not enough space available for a winning row
+        if(1 + spaceAvailableFw + spaceAvailableRev + adjacentForward + adjacentReverse < numInARowToWin)
+            return 0;
+
+        if(priority >= oneMoveToWin) {
+            priority += largeBoost;
+        } else if(priority == twoMovesToWin && (spaceAvailableFw != 0 && spaceAvailableRev != 0)) {
+            // Boost the priority if both ends of the row of pieces are open
+            // In this case it is vital that the human player is blocked
+            priority += smallBoost;
         }
+
+        return priority;
     }
 
     /**
@@ -179,7 +307,7 @@ public class SmartComputer implements ComputerPlayer {
      * @return the middle square or a random square
      */
     private Coordinate getMiddlePositionOrRandomMove() {
-        Coordinate middle = new Coordinate(gameBoard.getWidth() / 2, gameBoard.getHeight() / 2);
+        Coordinate middle = Coordinate.of(gameBoard.getWidth() / 2, gameBoard.getHeight() / 2);
 
         if (isAvailable(middle.x, middle.y))
             return middle;
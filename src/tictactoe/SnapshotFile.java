@@ -0,0 +1,321 @@
+package tictactoe;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A memory-mapped file of game snapshots in fixed-size slots.
+ *
+ * <p>A snapshot is the game record of a {@code MoveLog}, which restores the game board,
+ * the number of pieces in a row needed to win and the moves that can be undone and
+ * redone, together with a label, such as the name of the computer player. Saving
+ * a snapshot only copies it into the mapped memory, which the operating system
+ * writes to the file even if the program is stopped. {@code force} waits until
+ * the file has been written.</p>
+ *
+ * <p>The file starts with {@code MAGIC}, {@code VERSION}, the number of slots and the
+ * size of a slot, followed by the slots. A slot starts with a CRC-32C checksum and the
+ * length of the snapshot, which is zero for an empty slot. The snapshot has the length
+ * of the label in one byte, the label in UTF-8 and the game record. The checksum covers
+ * the length and the snapshot, so a slot that was being written when the computer
+ * crashed is detected when it is loaded.</p>
+ *
+ * <p>Different slots can be saved and loaded by different threads at the same time,
+ * but each slot only by one thread at a time.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class SnapshotFile implements Closeable {
+    /**
+     * The first four bytes of a snapshot file.
+     */
+    public static final int MAGIC = 0x54545353;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the checksum and the length at the start of each slot in bytes.
+     */
+    public static final int SLOT_HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * The largest length of a label in bytes.
+     */
+    public static final int MAX_LABEL_LENGTH = 255;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    /**
+     * The channel of the file, kept open until the file is closed.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapped file. Only absolute methods are used, so the threads do not share a position.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The number of slots.
+     */
+    private final int numSlots;
+
+    /**
+     * The size of a slot in bytes.
+     */
+    private final int slotSize;
+
+    /**
+     * Creates a new SnapshotFile.
+     * @param channel the channel of the file
+     * @param buffer the mapped file
+     * @param numSlots the number of slots
+     * @param slotSize the size of a slot in bytes
+     */
+    private SnapshotFile(FileChannel channel, MappedByteBuffer buffer, int numSlots, int slotSize) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.numSlots = numSlots;
+        this.slotSize = slotSize;
+    }
+
+    /**
+     * Memory-maps a snapshot file, creating it with empty slots if it does not exist.
+     * @param file the path of the file
+     * @param numSlots the number of slots, must be greater than zero
+     * @param slotSize the size of a slot in bytes, including {@code SLOT_HEADER_SIZE}
+     * @return the snapshot file
+     * @throws IllegalArgumentException if the file would be larger than 2 gigabytes
+     * @throws IOException if the file cannot be opened, it is not a snapshot file
+     *                     or its slots differ from the given ones
+     */
+    public static SnapshotFile open(Path file, int numSlots, int slotSize) throws IOException {
+        if(numSlots <= 0)
+            throw new IllegalArgumentException("The number of slots must be greater than zero.");
+        if(slotSize <= SLOT_HEADER_SIZE)
+            throw new IllegalArgumentException("The slot size must be greater than " + SLOT_HEADER_SIZE + ".");
+        long size = HEADER_SIZE + (long)numSlots * slotSize;
+        if(size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The snapshot file cannot be larger than 2 gigabytes.");
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            if(!created && channel.size() != size)
+                throw new IOException(channel.size() < HEADER_SIZE ? "Not a snapshot file." : "The snapshot file has a different size.");
+
+            // Mapping beyond the end of a new file extends it with zeros, which are empty slots
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if(created) {
+                buffer.putInt(0, MAGIC).putInt(Integer.BYTES, VERSION)
+                    .putInt(2 * Integer.BYTES, numSlots).putInt(3 * Integer.BYTES, slotSize);
+            } else {
+                if(buffer.getInt(0) != MAGIC)
+                    throw new IOException("Not a snapshot file.");
+                if(buffer.getInt(Integer.BYTES) != VERSION)
+                    throw new IOException("Unsupported snapshot file version " + buffer.getInt(Integer.BYTES) + ".");
+                if(buffer.getInt(2 * Integer.BYTES) != numSlots || buffer.getInt(3 * Integer.BYTES) != slotSize)
+                    throw new IOException("The snapshot file has different slots.");
+            }
+
+            return new SnapshotFile(channel, buffer, numSlots, slotSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of slots.
+     * @return the number of slots
+     */
+    public int getNumSlots() {
+        return numSlots;
+    }
+
+    /**
+     * Returns the size of a slot.
+     * @return the size in bytes, including {@code SLOT_HEADER_SIZE}
+     */
+    public int getSlotSize() {
+        return slotSize;
+    }
+
+    /**
+     * Saves a snapshot into a slot, replacing the previous one.
+     * @param slot the number of the slot, from 0 to {@code getNumSlots() - 1}
+     * @param label the label of the snapshot, at most {@code MAX_LABEL_LENGTH} bytes in UTF-8
+     * @param log the moves of the game
+     * @throws IllegalArgumentException if the label is too long or the snapshot does not fit in a slot
+     */
+    public void save(int slot, String label, MoveLog log) {
+        int offset = getSlotOffset(slot);
+        byte[] labelBytes = label.getBytes(StandardCharsets.UTF_8);
+        if(labelBytes.length > MAX_LABEL_LENGTH)
+            throw new IllegalArgumentException("The label is longer than " + MAX_LABEL_LENGTH + " bytes.");
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream(slotSize);
+        snapshot.write(labelBytes.length);
+        snapshot.write(labelBytes, 0, labelBytes.length);
+        try {
+            log.write(snapshot);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing into memory failed.", e);
+        }
+        if(snapshot.size() > slotSize - SLOT_HEADER_SIZE)
+            throw new IllegalArgumentException("The snapshot does not fit in a slot of " + slotSize + " bytes.");
+
+        byte[] bytes = snapshot.toByteArray();
+        buffer.put(offset + SLOT_HEADER_SIZE, bytes);
+        buffer.putInt(offset + Integer.BYTES, bytes.length);
+        buffer.putInt(offset, getChecksum(bytes.length, bytes));
+    }
+
+    /**
+     * Loads the snapshot in a slot.
+     * @param slot the number of the slot, from 0 to {@code getNumSlots() - 1}
+     * @return the snapshot, or null if the slot is empty
+     * @throws IOException if the slot is corrupted
+     */
+    public Snapshot load(int slot) throws IOException {
+        int offset = getSlotOffset(slot);
+        int length = buffer.getInt(offset + Integer.BYTES);
+        if(length == 0 && buffer.getInt(offset) == 0)
+            return null;
+        if(length <= 0 || length > slotSize - SLOT_HEADER_SIZE)
+            throw new IOException("Snapshot slot " + slot + " is corrupted.");
+
+        byte[] bytes = new byte[length];
+        buffer.get(offset + SLOT_HEADER_SIZE, bytes);
+        if(buffer.getInt(offset) != getChecksum(length, bytes))
+            throw new IOException("Snapshot slot " + slot + " is corrupted.");
+
+        int labelLength = bytes[0] & 0xFF;
+        if(1 + labelLength >= length)
+            throw new IOException("Snapshot slot " + slot + " is corrupted.");
+
+        ByteArrayInputStream record = new ByteArrayInputStream(bytes, 1 + labelLength, length - 1 - labelLength);
+        MoveLog log = MoveLog.read(record);
+        if(record.available() != 0)
+            throw new IOException("Snapshot slot " + slot + " is corrupted.");
+
+        return new Snapshot(new String(bytes, 1, labelLength, StandardCharsets.UTF_8), log);
+    }
+
+    /**
+     * Empties a slot.
+     * @param slot the number of the slot, from 0 to {@code getNumSlots() - 1}
+     */
+    public void clear(int slot) {
+        int offset = getSlotOffset(slot);
+        buffer.putInt(offset + Integer.BYTES, 0);
+        buffer.putInt(offset, 0);
+    }
+
+    /**
+     * Waits until the saved snapshots have been written to the storage device.
+     * @throws IOException if writing fails
+     */
+    public void force() throws IOException {
+        buffer.force();
+    }
+
+    /**
+     * Writes the saved snapshots to the storage device and closes the file.
+     *
+     * <p>The mapping is released by the garbage collector, so the file must not be used after closing.</p>
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the offset of a slot in the file.
+     * @param slot the number of the slot
+     * @return the offset in bytes
+     * @throws IndexOutOfBoundsException if the slot does not exist
+     */
+    private int getSlotOffset(int slot) {
+        if(slot < 0 || slot >= numSlots)
+            throw new IndexOutOfBoundsException("Snapshot slot " + slot + " does not exist.");
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    /**
+     * Computes the checksum of a slot.
+     * @param length the length of the snapshot
+     * @param bytes the snapshot
+     * @return the CRC-32C of the length and the snapshot
+     */
+    private static int getChecksum(int length, byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(length >>> 24);
+        crc.update(length >>> 16);
+        crc.update(length >>> 8);
+        crc.update(length);
+        crc.update(bytes, 0, length);
+        return (int)crc.getValue();
+    }
+
+    /**
+     * A snapshot loaded from a slot.
+     */
+    public static class Snapshot {
+        /**
+         * The label of the snapshot.
+         */
+        private final String label;
+
+        /**
+         * The moves of the game.
+         */
+        private final MoveLog log;
+
+        /**
+         * Creates a new Snapshot.
+         * @param label the label of the snapshot
+         * @param log the moves of the game
+         */
+        Snapshot(String label, MoveLog log) {
+            this.label = label;
+            this.log = log;
+        }
+
+        /**
+         * Returns the label the snapshot was saved with.
+         * @return the label
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the moves of the game, which {@code TicTacToeGame} can be created from.
+         * @return the move log
+         */
+        public MoveLog getMoveLog() {
+            return log;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package tictactoe;
+
+/**
+ * A rotation or a reflection of the game board.
+ *
+ * <p>Every game board can be rotated by 180 degrees and reflected horizontally
+ * and vertically. Square game boards can also be rotated by 90 degrees and
+ * reflected across their diagonals, which gives them eight symmetries in total.</p>
+ *
+ * <p>The rotations are clockwise, when y grows downwards as on the screen.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public enum Symmetry {
+    /**
+     * Keeps every square in place.
+     */
+    IDENTITY(false),
+
+    /**
+     * Rotates the game board by 90 degrees.
+     */
+    ROTATE_90(true),
+
+    /**
+     * Rotates the game board by 180 degrees.
+     */
+    ROTATE_180(false),
+
+    /**
+     * Rotates the game board by 270 degrees.
+     */
+    ROTATE_270(true),
+
+    /**
+     * Reflects the game board so that the left and the right edge change places.
+     */
+    FLIP_HORIZONTAL(false),
+
+    /**
+     * Reflects the game board so that the top and the bottom edge change places.
+     */
+    FLIP_VERTICAL(false),
+
+    /**
+     * Reflects the game board across the diagonal from the top left corner.
+     */
+    TRANSPOSE(true),
+
+    /**
+     * Reflects the game board across the diagonal from the top right corner.
+     */
+    ANTI_TRANSPOSE(true);
+
+    /**
+     * The symmetries, cached for going through them without creating an array.
+     */
+    static final Symmetry[] VALUES = values();
+
+    /**
+     * Whether the symmetry swaps the x and y axes, so that it is only a symmetry of square game boards.
+     */
+    private final boolean swapsAxes;
+
+    /**
+     * Creates a new Symmetry.
+     * @param swapsAxes whether the symmetry swaps the x and y axes
+     */
+    Symmetry(boolean swapsAxes) {
+        this.swapsAxes = swapsAxes;
+    }
+
+    /**
+     * Checks if this is a symmetry of game boards of the given size.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @return true if the game board keeps its size when transformed
+     */
+    public boolean isSymmetryOf(int width, int height) {
+        return !swapsAxes || width == height;
+    }
+
+    /**
+     * Returns the symmetry that undoes this symmetry.
+     * @return the inverse of this symmetry
+     */
+    public Symmetry inverse() {
+        switch(this) {
+            case ROTATE_90:
+                return ROTATE_270;
+            case ROTATE_270:
+                return ROTATE_90;
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Returns the x value of the square where the given square is moved.
+     * @param x the x value of the square
+     * @param y the y value of the square
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @return the transformed x value
+     */
+    public int getX(int x, int y, int width, int height) {
+        switch(this) {
+            case ROTATE_90:
+            case ANTI_TRANSPOSE:
+                return height - 1 - y;
+            case ROTATE_180:
+            case FLIP_HORIZONTAL:
+                return width - 1 - x;
+            case ROTATE_270:
+            case TRANSPOSE:
+                return y;
+            default:
+                return x;
+        }
+    }
+
+    /**
+     * Returns the y value of the square where the given square is moved.
+     * @param x the x value of the square
+     * @param y the y value of the square
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @return the transformed y value
+     */
+    public int getY(int x, int y, int width, int height) {
+        switch(this) {
+            case ROTATE_90:
+            case TRANSPOSE:
+                return x;
+            case ROTATE_180:
+            case FLIP_VERTICAL:
+                return height - 1 - y;
+            case ROTATE_270:
+            case ANTI_TRANSPOSE:
+                return width - 1 - x;
+            default:
+                return y;
+        }
+    }
+
+    /**
+     * Returns the coordinate where the given coordinate is moved.
+     * @param pos the coordinate to transform
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @return the transformed coordinate
+     */
+    public Coordinate apply(Coordinate pos, int width, int height) {
+        return Coordinate.of(getX(pos.x, pos.y, width, height), getY(pos.x, pos.y, width, height));
+    }
+
+    /**
+     * Calculates the hash of the game board after each symmetry.
+     *
+     * <p>The hashes of the symmetries that swap the axes are calculated
+     * only for square game boards, and they are zero otherwise.</p>
+     * @param gameBoard the game board
+     * @return the hashes, indexed by the ordinals of the symmetries
+     */
+    static long[] getHashes(ImmutableGameBoard gameBoard) {
+        int width = gameBoard.getWidth();
+        int height = gameBoard.getHeight();
+        long[] hashes = new long[VALUES.length];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte type = gameBoard.getSquare(x, y);
+                if(type == TicTacToeGame.EMPTY)
+                    continue;
+
+                for (Symmetry symmetry : VALUES) {
+                    if(symmetry.isSymmetryOf(width, height))
+                        hashes[symmetry.ordinal()] ^= Zobrist.getKey(symmetry.getX(x, y, width, height),
+                            symmetry.getY(x, y, width, height), type);
+                }
+            }
+        }
+
+        return hashes;
+    }
+}
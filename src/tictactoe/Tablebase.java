@@ -0,0 +1,403 @@
+package tictactoe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The solution of every position of a small game board under perfect play.
+ *
+ * <p>A position is numbered by reading the squares row by row as the digits of a
+ * base 3 number, where 0 is an empty square, 1 is a piece of the player to move
+ * and 2 is a piece of the opponent. Since the rules are the same for both players,
+ * this covers the positions of both players, whoever started the game. The table
+ * has one {@code short} entry for each number, so a position is looked up
+ * with a single read.</p>
+ *
+ * <p>An entry stores the result for the player to move, the number of moves until
+ * the end of the game and the best move. The best move wins as fast as possible,
+ * or loses as slowly as possible. Positions that cannot be reached in a game have
+ * the entry {@code NOT_FOUND}.</p>
+ *
+ * <p>The file starts with {@code MAGIC}, {@code VERSION}, the width, the height
+ * and the number of pieces in a row needed to win, followed by the entries.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class Tablebase {
+    /**
+     * The result of a position for the player to move.
+     */
+    public enum Result {
+        /**
+         * The player to move wins.
+         */
+        WIN,
+
+        /**
+         * The game ends in a draw.
+         */
+        DRAW,
+
+        /**
+         * The opponent wins.
+         */
+        LOSS
+    }
+
+    /**
+     * The largest number of squares a game board can have. The table of
+     * a 4x4 game board has 3^16 entries, which takes 86 megabytes.
+     */
+    public static final int MAX_SQUARES = 16;
+
+    /**
+     * The first four bytes of a tablebase file.
+     */
+    public static final int MAGIC = 0x54545442;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The entry of a position that cannot be reached.
+     */
+    public static final short NOT_FOUND = 0;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    /**
+     * The bit position of the number of moves until the end in an entry.
+     */
+    private static final int DISTANCE_SHIFT = 2;
+
+    /**
+     * The bit position of the best move in an entry.
+     */
+    private static final int MOVE_SHIFT = 7;
+
+    /**
+     * The Result values, cached for decoding entries.
+     */
+    private static final Result[] RESULTS = Result.values();
+
+    /**
+     * The width of the game board.
+     */
+    private final int width;
+
+    /**
+     * The height of the game board.
+     */
+    private final int height;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private final int numInARowToWin;
+
+    /**
+     * The entries, indexed by the number of the position.
+     */
+    private final ShortBuffer entries;
+
+    /**
+     * The value of a digit at each square, the powers of 3.
+     */
+    private final int[] powers;
+
+    /**
+     * Creates a new Tablebase.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param entries the entries
+     */
+    private Tablebase(int width, int height, int numInARowToWin, ShortBuffer entries) {
+        this.width = width;
+        this.height = height;
+        this.numInARowToWin = numInARowToWin;
+        this.entries = entries;
+        this.powers = new int[width * height];
+
+        int power = 1;
+        for (int square = 0; square < powers.length; square++) {
+            powers[square] = power;
+            power *= 3;
+        }
+    }
+
+    /**
+     * Solves every position reachable from an empty game board.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the solved tablebase
+     * @throws IllegalArgumentException if the game board has more than {@code MAX_SQUARES} squares
+     */
+    public static Tablebase solve(int width, int height, int numInARowToWin) {
+        int numEntries = getNumEntries(width, height, numInARowToWin);
+
+        Tablebase tablebase = new Tablebase(width, height, numInARowToWin, ShortBuffer.allocate(numEntries));
+        tablebase.new Solver().solve(TicTacToeGame.PLAYER, 0, 0, width * height);
+
+        return tablebase;
+    }
+
+    /**
+     * Memory-maps a tablebase file.
+     * @param file the path of the file
+     * @return the tablebase
+     * @throws IOException if the file cannot be read or it is not a tablebase
+     */
+    public static Tablebase open(Path file) throws IOException {
+        ByteBuffer buffer;
+        // The mapping stays valid after the channel has been closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a tablebase file.");
+        if(buffer.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Unsupported tablebase version " + buffer.getInt(Integer.BYTES) + ".");
+
+        int width = buffer.getInt(2 * Integer.BYTES);
+        int height = buffer.getInt(3 * Integer.BYTES);
+        int numInARowToWin = buffer.getInt(4 * Integer.BYTES);
+        int numEntries;
+        try {
+            numEntries = getNumEntries(width, height, numInARowToWin);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The tablebase file is corrupted.", e);
+        }
+        if(buffer.limit() != HEADER_SIZE + numEntries * Short.BYTES)
+            throw new IOException("The tablebase file is truncated.");
+
+        buffer.position(HEADER_SIZE);
+        return new Tablebase(width, height, numInARowToWin, buffer.slice().asShortBuffer());
+    }
+
+    /**
+     * Writes the tablebase to a file.
+     * @param file the path of the file, which is replaced if it exists
+     * @throws IOException if writing the file fails
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(numInARowToWin);
+        header.flip();
+
+        ByteBuffer body = ByteBuffer.allocate(entries.limit() * Short.BYTES);
+        body.asShortBuffer().put(entries.duplicate().clear());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(header.hasRemaining())
+                channel.write(header);
+            while(body.hasRemaining())
+                channel.write(body);
+        }
+    }
+
+    /**
+     * Checks if this tablebase is for the given game board size and number of pieces in a row.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return true if positions of the game board can be looked up
+     */
+    public boolean isFor(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        return gameBoard.getWidth() == width
+            && gameBoard.getHeight() == height
+            && numInARowToWin == this.numInARowToWin;
+    }
+
+    /**
+     * Looks up the position on the given game board.
+     * @param gameBoard a game board of the size of this tablebase
+     * @param player the player to move, {@code PLAYER} or {@code COMPUTER}
+     * @return the entry of the position, or {@code NOT_FOUND} if it cannot be reached in a game
+     */
+    public short probe(ImmutableGameBoard gameBoard, byte player) {
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte type = gameBoard.getSquare(x, y);
+                if(type != TicTacToeGame.EMPTY)
+                    index += (type == player ? 1 : 2) * powers[y * width + x];
+            }
+        }
+
+        return entries.get(index);
+    }
+
+    /**
+     * Returns the result stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @return the result for the player to move
+     */
+    public static Result getResult(short entry) {
+        return RESULTS[(entry & 0x3) - 1];
+    }
+
+    /**
+     * Returns the number of moves until the end of the game stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @return the number of moves by both players until the game ends under perfect play
+     */
+    public static int getDistance(short entry) {
+        return (entry >>> DISTANCE_SHIFT) & 0x1F;
+    }
+
+    /**
+     * Returns the best move stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @param width the width of the game board
+     * @return the coordinate of the best move
+     */
+    public static Coordinate getMove(short entry, int width) {
+        int square = (entry >>> MOVE_SHIFT) & 0xF;
+        return Coordinate.of(square % width, square / width);
+    }
+
+    /**
+     * Validates the settings and returns the number of entries of the table.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return 3 to the power of the number of squares
+     * @throws IllegalArgumentException if the settings are not valid
+     */
+    private static int getNumEntries(int width, int height, int numInARowToWin) {
+        if(width <= 0 || height <= 0 || width * height > MAX_SQUARES)
+            throw new IllegalArgumentException("The game board must have at most " + MAX_SQUARES + " squares.");
+        if(numInARowToWin <= 0)
+            throw new IllegalArgumentException("The number of pieces in a row needed to win must be greater than zero.");
+
+        int numEntries = 1;
+        for (int i = 0; i < width * height; i++)
+            numEntries *= 3;
+
+        return numEntries;
+    }
+
+    /**
+     * Creates an entry.
+     * @param result the result for the player to move
+     * @param distance the number of moves until the end of the game
+     * @param square the best move as {@code y * width + x}
+     * @return the entry
+     */
+    private static short createEntry(Result result, int distance, int square) {
+        // The result is stored as 1-3, so that an entry is never equal to NOT_FOUND
+        return (short)((result.ordinal() + 1) | (distance << DISTANCE_SHIFT) | (square << MOVE_SHIFT));
+    }
+
+    /**
+     * Returns a number that is larger for better entries for the player to move.
+     * @param entry an entry
+     * @return the value of the entry
+     */
+    private static int getValue(short entry) {
+        switch(getResult(entry)) {
+            case WIN:
+                return 2 * MAX_SQUARES - getDistance(entry);
+            case LOSS:
+                return -2 * MAX_SQUARES + getDistance(entry);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Solves the positions by searching the whole game tree, storing each
+     * position in the table the first time it is solved.
+     */
+    private class Solver {
+        /**
+         * The game board the moves are made on.
+         */
+        private final GameBoard gameBoard = new GameBoard(width, height);
+
+        /**
+         * Solves the position and the positions reachable from it.
+         * @param player the player to move
+         * @param index the number of the position from the point of view of the player to move
+         * @param opponentIndex the number of the position from the point of view of the opponent
+         * @param emptySquares the number of empty squares
+         * @return the entry of the position
+         */
+        short solve(byte player, int index, int opponentIndex, int emptySquares) {
+            short entry = entries.get(index);
+            if(entry != NOT_FOUND)
+                return entry;
+
+            byte opponent = player == TicTacToeGame.PLAYER ? TicTacToeGame.COMPUTER : TicTacToeGame.PLAYER;
+            short best = NOT_FOUND;
+
+            for (int square = 0; square < powers.length; square++) {
+                int x = square % width;
+                int y = square / width;
+                if(gameBoard.getSquare(x, y) != TicTacToeGame.EMPTY)
+                    continue;
+
+                short result;
+                gameBoard.setSquare(x, y, player);
+                if(VictoryChecker.hasWon(gameBoard, player, Coordinate.of(x, y), numInARowToWin)) {
+                    result = createEntry(Result.WIN, 1, square);
+                } else if(emptySquares == 1) {
+                    result = createEntry(Result.DRAW, 1, square);
+                } else {
+                    short reply = solve(opponent, opponentIndex + 2 * powers[square],
+                        index + powers[square], emptySquares - 1);
+                    // The result of the opponent is turned around
+                    Result opponentResult = getResult(reply);
+                    Result ownResult = opponentResult == Result.WIN ? Result.LOSS
+                        : opponentResult == Result.LOSS ? Result.WIN : Result.DRAW;
+                    result = createEntry(ownResult, getDistance(reply) + 1, square);
+                }
+                gameBoard.setSquare(x, y, TicTacToeGame.EMPTY);
+
+                if(best == NOT_FOUND || getValue(result) > getValue(best))
+                    best = result;
+            }
+
+            entries.put(index, best);
+            return best;
+        }
+    }
+
+    /**
+     * Solves a game board and writes the tablebase file.
+     * @param args the path of the file, the width, the height and
+     *             the number of pieces in a row needed to win
+     * @throws IOException if writing the file fails
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 4) {
+            System.out.println("Usage: java tictactoe.Tablebase <file> <width> <height> <in a row>");
+            return;
+        }
+
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        int numInARowToWin = Integer.parseInt(args[3]);
+
+        long startTime = System.nanoTime();
+        Tablebase tablebase = solve(width, height, numInARowToWin);
+        short start = tablebase.entries.get(0);
+        System.out.printf("Solved in %.1f s: the first player gets a %s in %d moves.%n",
+            (System.nanoTime() - startTime) / 1e9, getResult(start), getDistance(start));
+
+        tablebase.write(Paths.get(args[0]));
+    }
+}
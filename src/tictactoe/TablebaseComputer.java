@@ -0,0 +1,44 @@
+package tictactoe;
+
+/**
+ * A {@code ComputerPlayer} that plays perfectly by looking up the best move in a {@code Tablebase}.
+ *
+ * <p>Game boards of other sizes, and positions that cannot be reached in a game,
+ * are left to another computer player.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class TablebaseComputer extends DelegatingComputer {
+    /**
+     * The tablebase.
+     */
+    private final Tablebase tablebase;
+
+    /**
+     * Creates a new TablebaseComputer.
+     * @param tablebase the tablebase
+     * @param computer the computer player used for the positions that are not in the tablebase
+     */
+    public TablebaseComputer(Tablebase tablebase, ComputerPlayer computer) {
+        super(computer);
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Returns the best move of the tablebase, or the move of the other computer player
+     * if the position is not in the tablebase.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the coordinate of the move
+     */
+    @Override
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        if(tablebase.isFor(gameBoard, numInARowToWin)) {
+            short entry = tablebase.probe(gameBoard, TicTacToeGame.COMPUTER);
+            if(entry != Tablebase.NOT_FOUND)
+                return Tablebase.getMove(entry, gameBoard.getWidth());
+        }
+
+        return computer.getMove(gameBoard, numInARowToWin);
+    }
+}
@@ -0,0 +1,570 @@
+package tictactoe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Searches for forced wins that consist only of threats.
+ *
+ * <p>The attacker only makes moves that the defender must answer: fours, which
+ * win on the next move unless they are blocked, and threes, which make a double
+ * four possible on the next move. The defender only tries the moves that can
+ * stop the threat, and the fours of its own. Because so few moves are tried,
+ * the search can look much deeper than a full-width search.</p>
+ *
+ * <p>A four is a line of {@code numInARowToWin} squares with all but one taken
+ * by the attacker and the remaining square empty. A three is a move after which
+ * the attacker has a square that makes two fours with different winning squares.
+ * The defender can then only stop the threat by taking that square or one of
+ * the winning squares, or by making a four of its own. The attacker never has
+ * to answer a three of the defender, so a found win is always a real win.</p>
+ *
+ * <p>The search is limited by the number of attacker moves and by the number of
+ * searched positions. A win that is not found within the limits is not reported.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class ThreatSearch {
+    /**
+     * The default maximum number of attacker moves in a winning sequence.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    /**
+     * The default maximum number of positions searched for one move.
+     */
+    public static final int DEFAULT_MAX_NODES = 2000;
+
+    /**
+     * How far from the pieces the searched moves can be. Every four is at most
+     * two squares away from another piece of the same player.
+     */
+    private static final int THREAT_DISTANCE = 2;
+
+    /**
+     * Marks a move that was not found.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The maximum number of attacker moves in a winning sequence.
+     */
+    private final int maxDepth;
+
+    /**
+     * The maximum number of positions searched for one move.
+     */
+    private final int maxNodes;
+
+    /**
+     * The game board the search is made on.
+     */
+    private GameBoard gameBoard;
+
+    /**
+     * The empty squares near the pieces on the game board.
+     */
+    private CandidateMoves candidateMoves;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private int numInARowToWin;
+
+    /**
+     * The offsets of the four directions of a row on the game board.
+     */
+    private final int[] offsets = new int[Directions.ALL.length];
+
+    /**
+     * For each square index, the number of the latest {@code getThreatSquares} call that added it.
+     */
+    private int[] marks;
+
+    /**
+     * The number of the latest {@code getThreatSquares} call.
+     */
+    private int mark;
+
+    /**
+     * For each square index, whether the square is used by a forced win found by the current search.
+     */
+    private boolean[] proofSquares;
+
+    /**
+     * Whether threes are searched, or only fours.
+     */
+    private boolean threes;
+
+    /**
+     * The positions where the attacker was found to have no win, as the number of attacker moves
+     * that were searched, by the Zobrist hash of the position and the attacker.
+     */
+    private final Map<Long, Integer> failures = new HashMap<Long, Integer>();
+
+    /**
+     * The number of positions searched in the current search.
+     */
+    private long nodes;
+
+    /**
+     * Set when the current search has used up its positions.
+     */
+    private boolean aborted;
+
+    /**
+     * Creates a new ThreatSearch with the default limits.
+     */
+    public ThreatSearch() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Creates a new ThreatSearch with the given limits.
+     * @param maxDepth the maximum number of attacker moves in a winning sequence, must be greater than zero
+     * @param maxNodes the maximum number of positions searched for one move, must be greater than zero
+     */
+    public ThreatSearch(int maxDepth, int maxNodes) {
+        if(maxDepth <= 0)
+            throw new IllegalArgumentException("The maximum depth must be greater than zero.");
+        if(maxNodes <= 0)
+            throw new IllegalArgumentException("The maximum number of positions must be greater than zero.");
+
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Returns the first move of a forced win for the given player,
+     * who makes the next move.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param player the player who makes the next move
+     * @return the coordinate of the move, or null if no forced win was found
+     */
+    public Coordinate findWin(ImmutableGameBoard gameBoard, int numInARowToWin, byte player) {
+        prepare(gameBoard, numInARowToWin);
+
+        int move = search(player);
+        return move == NONE ? null : this.gameBoard.getCoordinate(move);
+    }
+
+    /**
+     * Returns a move that stops the forced win of the opponent of the given player,
+     * if the opponent would have one after passing the move.
+     *
+     * <p>The move that starts the forced win of the opponent is tried first,
+     * then the other squares used by the win, and then the fours of the player.</p>
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param player the player who makes the next move
+     * @return the coordinate of the move, the first move of the win of the opponent
+     *         if no move was found to stop it, or null if the opponent has no forced win
+     */
+    public Coordinate findDefence(ImmutableGameBoard gameBoard, int numInARowToWin, byte player) {
+        prepare(gameBoard, numInARowToWin);
+
+        byte opponent = getOpponent(player);
+        int threat = search(opponent);
+        if(threat == NONE)
+            return null;
+
+        // Only the squares of the found win and the fours of the player are tried,
+        // because a move anywhere else leaves the win of the opponent as it was
+        int[] moves = new int[getSquareCount()];
+        int numMoves = 0;
+        moves[numMoves++] = threat;
+        for (int square = 0; square < proofSquares.length; square++) {
+            if(proofSquares[square] && square != threat && gameBoard.getSquare(square) == TicTacToeGame.EMPTY)
+                moves[numMoves++] = square;
+        }
+
+        for (int i = 0; i < candidateMoves.size(); i++) {
+            int square = candidateMoves.get(i);
+            if(!proofSquares[square] && getLongestRow(square, player) >= numInARowToWin - 2)
+                moves[numMoves++] = square;
+        }
+
+        for (int i = 0; i < numMoves; i++) {
+            int move = moves[i];
+            setSquare(move, player);
+            boolean stopped = search(opponent) == NONE && !aborted;
+            setSquare(move, TicTacToeGame.EMPTY);
+
+            if(stopped)
+                return this.gameBoard.getCoordinate(move);
+        }
+
+        // Taking the first square of the win at least makes the opponent find another one
+        return this.gameBoard.getCoordinate(threat);
+    }
+
+    /**
+     * Returns the number of positions searched by the latest search.
+     * @return the number of searched positions
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Copies the game board for a new search.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     */
+    private void prepare(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        this.gameBoard = GameBoard.copyOf(gameBoard);
+        this.candidateMoves = this.gameBoard.trackCandidateMoves(THREAT_DISTANCE);
+        this.numInARowToWin = numInARowToWin;
+        this.marks = new int[gameBoard.getIndexCount()];
+        this.proofSquares = new boolean[gameBoard.getIndexCount()];
+        this.mark = 0;
+        this.nodes = 0;
+        this.aborted = false;
+
+        for (int i = 0; i < offsets.length; i++)
+            offsets[i] = gameBoard.getOffset(Directions.ALL[i]);
+    }
+
+    /**
+     * Searches for a forced win with fours only, and then with both fours and threes.
+     *
+     * <p>Wins with fours only are much faster to find, because the defender
+     * has only one answer to each of them.</p>
+     * @param attacker the player who makes the threats and the next move
+     * @return the square index of the first move of the win, or {@code NONE}
+     */
+    private int search(byte attacker) {
+        threes = false;
+        failures.clear();
+        int move = attack(attacker, maxDepth);
+        if(move != NONE || aborted)
+            return move;
+
+        threes = true;
+        failures.clear();
+        return attack(attacker, maxDepth);
+    }
+
+    /**
+     * Searches for a forced win for the attacker, who makes the next move.
+     * @param attacker the player who makes the threats
+     * @param depth the number of attacker moves left
+     * @return the square index of the first move of the win, or {@code NONE}
+     */
+    private int attack(byte attacker, int depth) {
+        if(++nodes > maxNodes)
+            aborted = true;
+        if(aborted)
+            return NONE;
+
+        int[] squares = new int[2];
+        if(getWinningSquares(attacker, squares, 1) > 0) {
+            proofSquares[squares[0]] = true;
+            return squares[0];
+        }
+
+        // A four of the defender must be blocked, and a double four cannot be
+        int numDefenderWins = getWinningSquares(getOpponent(attacker), squares, 2);
+        if(numDefenderWins > 1 || depth == 0)
+            return NONE;
+
+        long key = gameBoard.getHash() * 3 + attacker;
+        Integer failedDepth = failures.get(key);
+        if(failedDepth != null && failedDepth >= depth)
+            return NONE;
+
+        int[] moves;
+        int numMoves;
+        if(numDefenderWins == 1) {
+            moves = squares;
+            numMoves = 1;
+        } else {
+            moves = new int[candidateMoves.size()];
+            numMoves = candidateMoves.copyTo(moves, 0);
+        }
+
+        int[] rows = new int[numMoves];
+        for (int i = 0; i < numMoves; i++)
+            rows[i] = getLongestRow(moves[i], attacker);
+
+        // Fours are tried before threes, because the answers to them are forced
+        for (int i = 0; i < numMoves && !aborted; i++) {
+            if(rows[i] != numInARowToWin - 2)
+                continue;
+
+            setSquare(moves[i], attacker);
+            boolean won = defend(attacker, moves[i], depth - 1);
+            setSquare(moves[i], TicTacToeGame.EMPTY);
+            if(won) {
+                proofSquares[moves[i]] = true;
+                return moves[i];
+            }
+        }
+
+        int[] threatSquares = new int[getSquareCount()];
+        for (int i = 0; i < numMoves && threes && !aborted; i++) {
+            if(rows[i] != numInARowToWin - 3)
+                continue;
+
+            setSquare(moves[i], attacker);
+            boolean won = getThreatSquares(moves[i], attacker, threatSquares) > 0
+                && defend(attacker, moves[i], depth - 1);
+            setSquare(moves[i], TicTacToeGame.EMPTY);
+            if(won) {
+                proofSquares[moves[i]] = true;
+                return moves[i];
+            }
+        }
+
+        if(!aborted)
+            failures.merge(key, depth, Math::max);
+        return NONE;
+    }
+
+    /**
+     * Checks if the attacker wins after every answer of the defender to a threat.
+     * @param attacker the player who made the threat
+     * @param threat the square index of the threat, which is on the game board
+     * @param depth the number of attacker moves left
+     * @return true if the attacker wins whatever the defender does
+     */
+    private boolean defend(byte attacker, int threat, int depth) {
+        byte defender = getOpponent(attacker);
+        int[] squares = new int[2];
+        if(getWinningSquares(defender, squares, 1) > 0)
+            return false;
+
+        int numWins = getWinningSquares(attacker, squares, 2);
+        if(numWins > 1)
+            return true;
+        if(numWins == 1)
+            return answer(attacker, squares[0], depth);
+
+        int[] answers = new int[getSquareCount()];
+        int numAnswers = getThreatSquares(threat, attacker, answers);
+        if(numAnswers == 0)
+            return false;
+
+        // The defender can also answer with a four, which the attacker must block
+        for (int i = 0; i < candidateMoves.size(); i++) {
+            int square = candidateMoves.get(i);
+            if(marks[square] != mark && getLongestRow(square, defender) >= numInARowToWin - 2)
+                answers[numAnswers++] = square;
+        }
+
+        for (int i = 0; i < numAnswers; i++) {
+            if(!answer(attacker, answers[i], depth))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the attacker still wins after the given answer of the defender.
+     * @param attacker the player who made the threat
+     * @param square the square index of the answer
+     * @param depth the number of attacker moves left
+     * @return true if the attacker wins
+     */
+    private boolean answer(byte attacker, int square, int depth) {
+        setSquare(square, getOpponent(attacker));
+        boolean won = attack(attacker, depth) != NONE;
+        setSquare(square, TicTacToeGame.EMPTY);
+        if(won)
+            proofSquares[square] = true;
+        return won;
+    }
+
+    /**
+     * Finds the squares that would win the game for the player.
+     *
+     * <p>Every winning square is next to a piece of the player,
+     * so only the candidate moves are looked at.</p>
+     * @param player the player
+     * @param squares receives the square indexes of the winning squares
+     * @param max the maximum number of winning squares to find
+     * @return the number of winning squares found
+     */
+    private int getWinningSquares(byte player, int[] squares, int max) {
+        int count = 0;
+        for (int i = 0; i < candidateMoves.size() && count < max; i++) {
+            int square = candidateMoves.get(i);
+            if(isWinningSquare(square, player))
+                squares[count++] = square;
+        }
+
+        return count;
+    }
+
+    /**
+     * Finds the winning squares of the player on the rows going through the given piece.
+     * @param move the square index of a piece of the player
+     * @param player the player
+     * @param gains receives the square indexes of the winning squares
+     * @return the number of winning squares found
+     */
+    private int getGains(int move, byte player, int[] gains) {
+        int count = 0;
+        for (int offset : offsets) {
+            for (int distance = -(numInARowToWin - 1); distance < numInARowToWin; distance++) {
+                int square = move + distance * offset;
+                if(distance != 0 && gameBoard.isWithinBounds(square)
+                    && gameBoard.getSquare(square) == TicTacToeGame.EMPTY && isWinningSquare(square, player))
+                    gains[count++] = square;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Finds the answers to a three: the squares on the rows going through the
+     * given piece that would make a double four, and the winning squares of those fours.
+     *
+     * <p>The found squares are marked in {@code marks} with the current value of {@code mark}.</p>
+     * @param move the square index of the piece of the player that made the three
+     * @param player the player
+     * @param squares receives the square indexes of the answers
+     * @return the number of answers, or zero if the move is not a three
+     */
+    private int getThreatSquares(int move, byte player, int[] squares) {
+        int count = 0;
+        int[] gains = new int[getMaxGains()];
+        ++mark;
+
+        for (int offset : offsets) {
+            for (int distance = -(numInARowToWin - 1); distance < numInARowToWin; distance++) {
+                int square = move + distance * offset;
+                if(distance == 0 || !gameBoard.isWithinBounds(square) || gameBoard.getSquare(square) != TicTacToeGame.EMPTY
+                    || getLongestRow(square, player) != numInARowToWin - 2)
+                    continue;
+
+                setSquare(square, player);
+                int numGains = getGains(square, player, gains);
+                setSquare(square, TicTacToeGame.EMPTY);
+                if(numGains < 2)
+                    continue;
+
+                count = addThreatSquare(square, squares, count);
+                for (int i = 0; i < numGains; i++)
+                    count = addThreatSquare(gains[i], squares, count);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Adds a square to the answers of a three, unless it is there already.
+     * @param square the square index of the answer
+     * @param squares the answers
+     * @param count the number of answers
+     * @return the new number of answers
+     */
+    private int addThreatSquare(int square, int[] squares, int count) {
+        if(marks[square] == mark)
+            return count;
+
+        marks[square] = mark;
+        squares[count] = square;
+        return count + 1;
+    }
+
+    /**
+     * Returns the largest number of pieces of the player in a line of {@code numInARowToWin}
+     * squares that goes through the given square and has no pieces of the opponent.
+     *
+     * <p>A move makes a four if this is {@code numInARowToWin - 2} before the move,
+     * and it can only make a three if this is {@code numInARowToWin - 3}.</p>
+     * @param square the square index of the square
+     * @param player the player
+     * @return the largest number of pieces, or -1 if the player cannot win through the square
+     */
+    private int getLongestRow(int square, byte player) {
+        byte opponent = getOpponent(player);
+        int longest = -1;
+
+        for (int offset : offsets) {
+            // The squares from the last square that cannot be used, and the pieces among them
+            int length = 0;
+            int pieces = 0;
+            for (int distance = -(numInARowToWin - 1); distance < numInARowToWin; distance++) {
+                int index = square + distance * offset;
+                if(!gameBoard.isWithinBounds(index) || gameBoard.getSquare(index) == opponent) {
+                    length = 0;
+                    pieces = 0;
+                    continue;
+                }
+
+                ++length;
+                if(gameBoard.getSquare(index) == player)
+                    ++pieces;
+                if(length > numInARowToWin) {
+                    length = numInARowToWin;
+                    if(gameBoard.getSquare(index - numInARowToWin * offset) == player)
+                        --pieces;
+                }
+
+                // Only the lines that include the square count
+                if(length == numInARowToWin && distance >= 0 && pieces > longest)
+                    longest = pieces;
+            }
+        }
+
+        return longest;
+    }
+
+    /**
+     * Checks if placing a piece of the player on an empty square would win the game.
+     * @param square the square index of the empty square
+     * @param player the player
+     * @return true if the square would complete a row of {@code numInARowToWin} pieces
+     */
+    private boolean isWinningSquare(int square, byte player) {
+        int needed = numInARowToWin - 1;
+        for (int offset : offsets) {
+            int forward = gameBoard.getNumAdjacent(square, offset, player, false, needed);
+            if(forward + gameBoard.getNumAdjacent(square, -offset, player, false, needed - forward) >= needed)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the number of squares on the game board.
+     * @return the size of an array that can hold any set of squares
+     */
+    private int getSquareCount() {
+        return gameBoard.getWidth() * gameBoard.getHeight();
+    }
+
+    /**
+     * Returns the maximum number of squares on the rows going through a square.
+     * @return the size of an array that can hold the result of {@code getGains}
+     */
+    private int getMaxGains() {
+        return offsets.length * 2 * (numInARowToWin - 1);
+    }
+
+    /**
+     * Changes a square of the game board.
+     * @param square the square index of the square
+     * @param value the new value of the square
+     */
+    private void setSquare(int square, byte value) {
+        Coordinate pos = gameBoard.getCoordinate(square);
+        gameBoard.setSquare(pos.x, pos.y, value);
+    }
+
+    /**
+     * Returns the opponent of the given player.
+     * @param player the human player or the computer player
+     * @return the other player
+     */
+    private static byte getOpponent(byte player) {
+        return player == TicTacToeGame.COMPUTER ? TicTacToeGame.PLAYER : TicTacToeGame.COMPUTER;
+    }
+}
@@ -0,0 +1,60 @@
+package tictactoe;
+
+/**
+ * A {@code ComputerPlayer} that plays forced wins found by a {@code ThreatSearch},
+ * stops the forced wins of the player, and lets another computer player make the other moves.
+ *
+ * <p>Without another computer player, a {@code SmartComputer} is used, so this can be
+ * played on its own or put in front of any other computer player.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class ThreatSpaceComputer extends DelegatingComputer {
+    /**
+     * Searches for the forced wins.
+     */
+    private final ThreatSearch threatSearch;
+
+    /**
+     * Creates a new ThreatSpaceComputer that uses a {@code SmartComputer} for the other moves.
+     */
+    public ThreatSpaceComputer() {
+        this(new SmartComputer());
+    }
+
+    /**
+     * Creates a new ThreatSpaceComputer with the default search limits.
+     * @param computer the computer player used when there is no forced win for either player
+     */
+    public ThreatSpaceComputer(ComputerPlayer computer) {
+        this(new ThreatSearch(), computer);
+    }
+
+    /**
+     * Creates a new ThreatSpaceComputer.
+     * @param threatSearch searches for the forced wins
+     * @param computer the computer player used when there is no forced win for either player
+     */
+    public ThreatSpaceComputer(ThreatSearch threatSearch, ComputerPlayer computer) {
+        super(computer);
+        this.threatSearch = threatSearch;
+    }
+
+    /**
+     * Returns the first move of a forced win, a move that stops the forced win
+     * of the player, or the move of the other computer player.
+     * @param gameBoard the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @return the coordinate of the move
+     */
+    @Override
+    public Coordinate getMove(ImmutableGameBoard gameBoard, int numInARowToWin) {
+        Coordinate move = threatSearch.findWin(gameBoard, numInARowToWin, TicTacToeGame.COMPUTER);
+        if(move == null)
+            move = threatSearch.findDefence(gameBoard, numInARowToWin, TicTacToeGame.COMPUTER);
+        if(move == null)
+            move = computer.getMove(gameBoard, numInARowToWin);
+
+        return move;
+    }
+}
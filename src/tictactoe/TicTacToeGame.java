@@ -1,6 +1,6 @@
 package tictactoe;
 
-import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A game of Tic-Tac-Toe where the size of the game board and
@@ -19,6 +19,11 @@ public class TicTacToeGame {
      */
     public static final int MIN_HEIGHT = 3;
 
+    /**
+     * The maximum number of squares allowed on a game board, so that a square index fits in 16 bits.
+     */
+    public static final int MAX_SQUARES = 0xFFFF;
+
     /**
      * The minimum allowed number of pieces in a row required to win on a small game board.
      */
@@ -54,6 +59,11 @@ public class TicTacToeGame {
      */
     private GameBoard gameBoard;
 
+    /**
+     * The read-only view of the game board given to the computer player and the UIs.
+     */
+    private ImmutableGameBoard gameBoardView;
+
     /**
      * The number of pieces needed in a row to win.
      */
@@ -65,19 +75,26 @@ public class TicTacToeGame {
     private int maxMoves;
 
     /**
-     * The total number of moves that have been played by both players.
+     * The computer player
      */
-    private int playedMoves;
+    private ComputerPlayer computerPlayer;
 
     /**
-     * The computer player
+     * The computer player as a MoveListener, or null if it does not want to be notified of moves.
      */
-    private ComputerPlayer computerPlayer;
+    private MoveListener moveListener;
+
+    /**
+     * The moves played by both players, for undoing and redoing them.
+     * Its ply is the number of moves on the game board.
+     */
+    private MoveLog moveLog;
 
     /**
-     * A stack of MovePairs for undoing moves.
+     * The latest round played with {@code playARoundAsync}, or null.
+     * The computer may still be thinking about its move.
      */
-    private Stack<MovePair> undoStack;
+    private AsyncRound asyncRound;
 
     /**
      * Checks whether the given size is considered a large game board.
@@ -102,36 +119,83 @@ public class TicTacToeGame {
             throw new IllegalArgumentException("Width must be " + MIN_WIDTH + " or greater.");
         if(height < MIN_HEIGHT)
             throw new IllegalArgumentException("Height must be " + MIN_HEIGHT + " or greater.");
+        if((long)width * height > MAX_SQUARES)
+            throw new IllegalArgumentException("The game board cannot have more than " + MAX_SQUARES + " squares.");
         if(numInARowToWin < MIN_IN_A_ROW_TO_WIN_SMALL)
             throw new IllegalArgumentException("The number of game pieces in a row needed to win has to be at least " + MIN_IN_A_ROW_TO_WIN_SMALL +".");
 
-        this.gameBoard = new GameBoard(width, height);
-        this.undoStack = new Stack<MovePair>();
+        this.gameBoard = GameBoard.create(width, height);
+        this.gameBoard.trackCandidateMoves(1);
+        this.gameBoardView = gameBoard.asImmutable();
+        this.moveLog = new MoveLog(width, height, numInARowToWin);
         this.computerPlayer = computer;
         this.numInARowToWin = numInARowToWin;
         this.maxMoves = height * width;
 
+        if(computer instanceof MoveListener)
+            this.moveListener = (MoveListener)computer;
+        notifyGameBoardReset();
+
         if(computerStarts)
             makeComputerMove();
     }
 
+    /**
+     * Creates a new TicTacToeGame from a game record.
+     * 
+     * <p>The moves of the record are played up to its ply, and the moves after it can be redone.
+     * If the last move was made by the player and did not end the game, the computer makes its move,
+     * which drops the moves that could have been redone.</p>
+     * @param record the moves of the game, as returned by {@code getMoveLog}
+     * @param computer the computer player
+     * @throws IllegalArgumentException if the record is not a valid game
+     */
+    public TicTacToeGame(MoveLog record, ComputerPlayer computer) {
+        this(record.getWidth(), record.getHeight(), record.getNumInARowToWin(), computer, false);
+
+        // Every move is checked by playing the whole record, after which the moves after the ply are undone
+        Coordinate previousMove = null;
+        for (int i = 0; i < record.getLength(); i++) {
+            Coordinate move = Coordinate.of(record.getX(i), record.getY(i));
+            byte player = record.getPlayer(i);
+            if(gameBoard.getSquare(move) != EMPTY)
+                throw new IllegalArgumentException("Move " + i + " of the game record is on a square that is already taken.");
+            if(i > 0 && player == record.getPlayer(i - 1))
+                throw new IllegalArgumentException("Move " + i + " of the game record is not the turn of its player.");
+            if(i > 0 && hasWon(record.getPlayer(i - 1), previousMove))
+                throw new IllegalArgumentException("Move " + i + " of the game record is made after the end of the game.");
+
+            gameBoard.setSquare(move, player);
+            notifySquareChanged(move);
+            previousMove = move;
+        }
+
+        moveLog = MoveLog.copyOf(record);
+        while(moveLog.canRedo())
+            moveLog.redo();
+        moveToPly(record.getPly());
+
+        if(isComputersTurn() && getState() == GameState.READY_FOR_NEXT_MOVE)
+            makeComputerMove();
+    }
+
     /**
      * Plays a round of Tic-Tac-Toe with moves by both the human player and the computer.
      * @param playerMove the move made by the human player
-     * @return the current state of the game
+     * @return the current state of the game, or {@code INVALID_PLAYER_MOVE} if the move
+     *         is not on an empty square or the game has already ended
      */
     public GameState playARound(Coordinate playerMove) {
-        if(!trySetPlayerMove(playerMove)) {
+        cancelRound();
+        if(getState() != GameState.READY_FOR_NEXT_MOVE || !trySetPlayerMove(playerMove)) {
             return GameState.INVALID_PLAYER_MOVE;
         }
 
         if(hasWon(PLAYER, playerMove) || isDrawGame()) {
-            addUndo(playerMove, null);
             return isDrawGame() ? GameState.DRAW_GAME : GameState.PLAYER_WON;
         }
 
         Coordinate computerMove = makeComputerMove();
-        addUndo(playerMove, computerMove);
 
         if(hasWon(COMPUTER, computerMove) || isDrawGame()) {
             return isDrawGame() ? GameState.DRAW_GAME : GameState.COMPUTER_WON;
@@ -140,14 +204,88 @@ public class TicTacToeGame {
         return GameState.READY_FOR_NEXT_MOVE;
     }
 
+    /**
+     * Plays a round of Tic-Tac-Toe where the computer thinks about its move in the background.
+     * 
+     * <p>The move of the player is made before this method returns, and the returned future
+     * completes with the state of the game once the computer has made its move on the given
+     * executor. Until then, the game must not be changed, except by calling {@code cancelRound},
+     * {@code undo}, {@code redo}, {@code goToPly}, {@code reset} or a {@code playARound} method,
+     * which all cancel the round first.
+     * The future completes on the thread of the executor, so a user interface should pass
+     * the result on to its own thread.</p>
+     * @param playerMove the move made by the human player
+     * @param executor runs the search of the computer player
+     * @param listener notified of the moves of the round, or null
+     * @return the state of the game after the round, completed at once if the move was
+     *         invalid, the game had already ended or the move ended it, and cancelled if the round is cancelled
+     */
+    public CompletableFuture<GameState> playARoundAsync(Coordinate playerMove, Executor executor, RoundListener listener) {
+        cancelRound();
+        if(getState() != GameState.READY_FOR_NEXT_MOVE || !trySetPlayerMove(playerMove))
+            return CompletableFuture.completedFuture(GameState.INVALID_PLAYER_MOVE);
+
+        if(listener != null)
+            listener.playerMoveMade(getGameBoard(), playerMove);
+
+        if(hasWon(PLAYER, playerMove) || isDrawGame()) {
+            return CompletableFuture.completedFuture(isDrawGame() ? GameState.DRAW_GAME : GameState.PLAYER_WON);
+        }
+
+        AsyncRound round = new AsyncRound(playerMove, listener);
+        asyncRound = round;
+        try {
+            executor.execute(round);
+        } catch (RejectedExecutionException e) {
+            asyncRound = null;
+            takeBackPlayerMove(playerMove);
+            throw e;
+        }
+
+        return round.result;
+    }
+
+    /**
+     * Tests whether the computer is thinking about its move in a round played with {@code playARoundAsync}.
+     * @return true if the computer has not made its move yet
+     */
+    public boolean isComputerThinking() {
+        return asyncRound != null && !asyncRound.result.isDone();
+    }
+
+    /**
+     * Cancels the round played with {@code playARoundAsync} if the computer has not made its move yet.
+     * 
+     * <p>The search of the computer player is interrupted, and the move of the player
+     * is taken back once the search has stopped, so the game is left as it was before
+     * the round. The future of the round is cancelled.</p>
+     * @return true if a round was cancelled
+     */
+    public boolean cancelRound() {
+        AsyncRound round = asyncRound;
+        if(round == null)
+            return false;
+
+        asyncRound = null;
+        boolean cancelled = round.cancel();
+        round.awaitFinished();
+        if(cancelled) {
+            takeBackPlayerMove(round.playerMove);
+            round.result.cancel(false);
+        }
+
+        return cancelled;
+    }
+
     /**
      * Resets the game.
      * @param computerStarts decides whether the computer gets to make the first move
      */
     public void reset(boolean computerStarts) {
-        playedMoves = 0;
-        undoStack.clear();
+        cancelRound();
+        moveLog.clear();
         gameBoard.fillBoard(EMPTY);
+        notifyGameBoardReset();
 
         if(computerStarts)
             makeComputerMove();
@@ -155,59 +293,178 @@ public class TicTacToeGame {
 
     /**
      * Checks if there are any undoable moves.
+     * 
+     * <p>The first move of the computer is not undoable, since the player could not move before it.</p>
      * @return true if a move can be undone
      */
     public boolean canUndo() {
-        return !undoStack.empty();
+        return moveLog.getPly() > getFirstPlayerPly();
     }
 
     /**
      * Undoes the previous moves made by the human and the computer.
+     * 
+     * <p>If the computer is still thinking about its move, the round is cancelled instead,
+     * which takes back the move of the player. Undone moves can be redone until a new move is made.</p>
      * @return returns {@code INVALID_PLAYER_MOVE} if no undo is available
      */
     public GameState undo() {
+        if(cancelRound())
+            return GameState.READY_FOR_NEXT_MOVE;
         if(!canUndo())
             return GameState.INVALID_PLAYER_MOVE;
 
-        MovePair moves = undoStack.pop();
-        if(moves.playerMove != null) {
-            gameBoard.setSquare(moves.playerMove, EMPTY);
-            playedMoves--;
-        }
-        if(moves.computerMove != null) {
-            gameBoard.setSquare(moves.computerMove, EMPTY);
-            playedMoves--;
-        }
-        
+        moveToPly(getLastPlayerMoveIndex());
         return GameState.READY_FOR_NEXT_MOVE;
     }
 
+    /**
+     * Checks if there are any undone moves that can be redone.
+     * @return true if a move can be redone
+     */
+    public boolean canRedo() {
+        return moveLog.canRedo();
+    }
+
+    /**
+     * Redoes the next undone moves made by the human and the computer.
+     * @return the state of the game after the moves, or {@code INVALID_PLAYER_MOVE} if no redo is available
+     */
+    public GameState redo() {
+        cancelRound();
+        if(!moveLog.canRedo())
+            return GameState.INVALID_PLAYER_MOVE;
+
+        // The move of the player is redone together with the answer of the computer
+        int ply = moveLog.getPly() + 1;
+        if(ply < moveLog.getLength() && moveLog.getPlayer(ply) == COMPUTER)
+            ++ply;
+        moveToPly(ply);
+        return getState();
+    }
+
+    /**
+     * Undoes or redoes moves until the given number of moves is on the game board.
+     * 
+     * <p>The player must be the one to move at the given ply, unless it is the end of the log.</p>
+     * @param ply the number of moves, from 0 to {@code getMoveLog().getLength()}
+     * @return the state of the game after the moves
+     * @throws IllegalArgumentException if the ply is out of range or it is the computer's turn at it
+     */
+    public GameState goToPly(int ply) {
+        cancelRound();
+        if(ply < 0 || ply > moveLog.getLength())
+            throw new IllegalArgumentException("Ply " + ply + " is not in the move log.");
+        if(ply < moveLog.getLength() && moveLog.getPlayer(ply) == COMPUTER)
+            throw new IllegalArgumentException("It is the computer's turn at ply " + ply + ".");
+
+        moveToPly(ply);
+        return getState();
+    }
+
+    /**
+     * Returns the current state of the game, as decided by the last move on the game board.
+     * @return {@code READY_FOR_NEXT_MOVE}, {@code PLAYER_WON}, {@code COMPUTER_WON} or {@code DRAW_GAME}
+     */
+    public GameState getState() {
+        int last = moveLog.getPly() - 1;
+        if(last < 0)
+            return GameState.READY_FOR_NEXT_MOVE;
+
+        byte player = moveLog.getPlayer(last);
+        if(hasWon(player, Coordinate.of(moveLog.getX(last), moveLog.getY(last))))
+            return player == PLAYER ? GameState.PLAYER_WON : GameState.COMPUTER_WON;
+        return isDrawGame() ? GameState.DRAW_GAME : GameState.READY_FOR_NEXT_MOVE;
+    }
+
+    /**
+     * Returns a copy of the moves played in this game, which can be written as a game record.
+     * @return a copy of the move log, including the moves that can be redone
+     */
+    public MoveLog getMoveLog() {
+        return MoveLog.copyOf(moveLog);
+    }
+
     /**
      * Returns the current game board as read-only.
      * @return the game board of this game
      */
     public ImmutableGameBoard getGameBoard() {
-        return gameBoard.asImmutable();
+        return gameBoardView;
     }
 
     /**
-     * Returns the last move made by the computer.
+     * Returns the last move made by the human player that can be undone.
+     * @return the last move made by the human player or null if no move has been made
+     */
+    public Coordinate getLastPlayerMove() {
+        if(!canUndo())
+            return null;
+
+        int index = getLastPlayerMoveIndex();
+        return Coordinate.of(moveLog.getX(index), moveLog.getY(index));
+    }
+
+    /**
+     * Returns the move made by the computer after the last move of the human player that can be undone.
      * @return the last move made by the computer or null if no move has been made
      */
     public Coordinate getLastComputerMove() {
-        if(canUndo())
-            return undoStack.peek().computerMove;
-        else
+        if(!canUndo())
+            return null;
+
+        int index = moveLog.getPly() - 1;
+        if(moveLog.getPlayer(index) != COMPUTER)
             return null;
+        return Coordinate.of(moveLog.getX(index), moveLog.getY(index));
     }
 
     /**
-     * Adds a move pair to the undo stack.
-     * @param playerMove the move made by the human player
-     * @param computerMove the move made by the computer player
+     * Returns the number of moves before the first move of the player.
+     * @return 1 if the computer made the first move, 0 otherwise
      */
-    private void addUndo(Coordinate playerMove, Coordinate computerMove) {
-        undoStack.push(new MovePair(playerMove, computerMove));
+    private int getFirstPlayerPly() {
+        return moveLog.getLength() > 0 && moveLog.getPlayer(0) == COMPUTER ? 1 : 0;
+    }
+
+    /**
+     * Returns the index of the last move of the player on the game board.
+     * The moves alternate, so it is either the last or the second to last move.
+     * @return the index in the move log
+     */
+    private int getLastPlayerMoveIndex() {
+        int index = moveLog.getPly() - 1;
+        return moveLog.getPlayer(index) == PLAYER ? index : index - 1;
+    }
+
+    /**
+     * Checks whether the computer is the one to move next.
+     * @return true if the last move was made by the player, or the computer made the first move
+     */
+    private boolean isComputersTurn() {
+        int ply = moveLog.getPly();
+        if(ply == 0)
+            return getFirstPlayerPly() == 1;
+        return moveLog.getPlayer(ply - 1) == PLAYER;
+    }
+
+    /**
+     * Undoes or redoes single moves on the game board until the ply of the move log is reached.
+     * @param ply the number of moves, from 0 to the length of the move log
+     */
+    private void moveToPly(int ply) {
+        while(moveLog.getPly() > ply) {
+            int index = moveLog.undo();
+            Coordinate move = Coordinate.of(moveLog.getX(index), moveLog.getY(index));
+            gameBoard.setSquare(move, EMPTY);
+            notifySquareChanged(move);
+        }
+        while(moveLog.getPly() < ply) {
+            int index = moveLog.redo();
+            Coordinate move = Coordinate.of(moveLog.getX(index), moveLog.getY(index));
+            gameBoard.setSquare(move, moveLog.getPlayer(index));
+            notifySquareChanged(move);
+        }
     }
 
     /**
@@ -215,7 +472,7 @@ public class TicTacToeGame {
      * @return true if the game is a draw
      */
     private boolean isDrawGame() {
-        return playedMoves == maxMoves;
+        return moveLog.getPly() == maxMoves;
     }
 
     /**
@@ -228,7 +485,8 @@ public class TicTacToeGame {
             return false;
 
         gameBoard.setSquare(playerMove, PLAYER);
-        ++playedMoves;
+        moveLog.add(playerMove.x, playerMove.y, PLAYER);
+        notifySquareChanged(playerMove);
         return true;
     }
 
@@ -239,8 +497,18 @@ public class TicTacToeGame {
      * @return true if the given player has won the game
      */
     private boolean hasWon(byte player, Coordinate playedMove) {
-        VictoryChecker victoryChecker = new VictoryChecker(getGameBoard(), player, playedMove, numInARowToWin);
-        return victoryChecker.hasWon();
+        return VictoryChecker.hasWon(gameBoard, player, playedMove, numInARowToWin);
+    }
+
+    /**
+     * Removes the move of the player of a round that was cancelled. It cannot be redone.
+     * @param playerMove the move of the player
+     */
+    private void takeBackPlayerMove(Coordinate playerMove) {
+        gameBoard.setSquare(playerMove, EMPTY);
+        moveLog.undo();
+        moveLog.truncate();
+        notifySquareChanged(playerMove);
     }
 
     /**
@@ -249,11 +517,181 @@ public class TicTacToeGame {
      */
     private Coordinate makeComputerMove() {
         Coordinate computerMove = computerPlayer.getMove(getGameBoard(), numInARowToWin);
+        setComputerMove(computerMove);
+        return computerMove;
+    }
+
+    /**
+     * Sets the move of the computer player on the game board.
+     * @param computerMove the move the computer player made
+     */
+    private void setComputerMove(Coordinate computerMove) {
         if(gameBoard.getSquare(computerMove) != EMPTY)
             throw new IllegalStateException("The computer player returned a position that is already taken.");
             
-        ++playedMoves;
         gameBoard.setSquare(computerMove, COMPUTER);
-        return computerMove;
+        moveLog.add(computerMove.x, computerMove.y, COMPUTER);
+        notifySquareChanged(computerMove);
+    }
+
+    /**
+     * Notifies the computer player that a square of the game board has changed,
+     * if it listens to moves.
+     * @param pos the coordinate of the changed square
+     */
+    private void notifySquareChanged(Coordinate pos) {
+        if(moveListener != null)
+            moveListener.squareChanged(getGameBoard(), pos, numInARowToWin);
+    }
+
+    /**
+     * Notifies the computer player that the game board has been emptied,
+     * if it listens to moves.
+     */
+    private void notifyGameBoardReset() {
+        if(moveListener != null)
+            moveListener.gameBoardReset(getGameBoard(), numInARowToWin);
+    }
+
+    /**
+     * A round played with {@code playARoundAsync}, run on the executor
+     * to make the move of the computer.
+     */
+    private class AsyncRound implements Runnable {
+        /**
+         * The move of the player in this round.
+         */
+        private final Coordinate playerMove;
+
+        /**
+         * Notified of the move of the computer, or null.
+         */
+        private final RoundListener listener;
+
+        /**
+         * Completed with the state of the game after the round.
+         */
+        private final CompletableFuture<GameState> result = new CompletableFuture<GameState>();
+
+        /**
+         * Counted down when the round is no longer run on the executor.
+         */
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        /**
+         * The thread searching for the move of the computer, or null. Guarded by this.
+         */
+        private Thread searchThread;
+
+        /**
+         * Set when the round has been cancelled. Guarded by this.
+         */
+        private boolean cancelled;
+
+        /**
+         * Set when the move of the computer is being made and the round can no longer be cancelled.
+         * Guarded by this.
+         */
+        private boolean moving;
+
+        /**
+         * Creates a new AsyncRound.
+         * @param playerMove the move of the player in this round
+         * @param listener notified of the move of the computer, or null
+         */
+        AsyncRound(Coordinate playerMove, RoundListener listener) {
+            this.playerMove = playerMove;
+            this.listener = listener;
+        }
+
+        /**
+         * Gets the move of the computer and makes it, unless the round is cancelled first.
+         */
+        @Override
+        public void run() {
+            try {
+                if(!startSearch())
+                    return;
+
+                Coordinate computerMove = computerPlayer.getMove(getGameBoard(), numInARowToWin);
+                if(!startMove())
+                    return;
+
+                setComputerMove(computerMove);
+                if(listener != null)
+                    listener.computerMoveMade(getGameBoard(), computerMove);
+
+                if(hasWon(COMPUTER, computerMove) || isDrawGame())
+                    result.complete(isDrawGame() ? GameState.DRAW_GAME : GameState.COMPUTER_WON);
+                else
+                    result.complete(GameState.READY_FOR_NEXT_MOVE);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Cancels the round, unless the move of the computer is already being made.
+         * @return true if the round was cancelled
+         */
+        synchronized boolean cancel() {
+            if(moving)
+                return false;
+
+            cancelled = true;
+            if(searchThread != null)
+                searchThread.interrupt();
+            return true;
+        }
+
+        /**
+         * Waits until the round is no longer run on the executor.
+         *
+         * <p>The search stops soon after it has been interrupted, so an interrupt
+         * does not cut the wait short. It is set again once the round has finished.</p>
+         */
+        void awaitFinished() {
+            boolean interrupted = false;
+            while(true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        /**
+         * Marks the search as started on the current thread.
+         * @return false if the round has been cancelled
+         */
+        private synchronized boolean startSearch() {
+            if(cancelled)
+                return false;
+
+            searchThread = Thread.currentThread();
+            return true;
+        }
+
+        /**
+         * Marks the search as ended and the move as started.
+         * @return false if the round has been cancelled
+         */
+        private synchronized boolean startMove() {
+            searchThread = null;
+            // An interrupt meant for the search must not be left for the next task of the executor
+            Thread.interrupted();
+            if(cancelled)
+                return false;
+
+            moving = true;
+            return true;
+        }
     }
 }
\ No newline at end of file
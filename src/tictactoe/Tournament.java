@@ -0,0 +1,173 @@
+package tictactoe;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays many games between two computer players in parallel.
+ *
+ * <p>The games are divided into batches that are played on a {@code ForkJoinPool}.
+ * Computer players keep state between moves, so each batch creates its own
+ * players and its own {@code SelfPlayGame}, and closes the players at its end.
+ * The players take turns in making the first move.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class Tournament {
+    /**
+     * The number of batches each worker thread of the pool gets on average.
+     * More batches than threads keeps the threads busy when games take different times.
+     */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /**
+     * The width of the game board.
+     */
+    private final int width;
+
+    /**
+     * The height of the game board.
+     */
+    private final int height;
+
+    /**
+     * The number of pieces in a row needed to win.
+     */
+    private final int numInARowToWin;
+
+    /**
+     * Creates the first player.
+     */
+    private final Supplier<? extends ComputerPlayer> first;
+
+    /**
+     * Creates the second player.
+     */
+    private final Supplier<? extends ComputerPlayer> second;
+
+    /**
+     * Creates a new Tournament with the given attributes.
+     * @param width the width of the game board
+     * @param height the height of the game board
+     * @param numInARowToWin the number of pieces in a row needed to win
+     * @param first creates a new instance of the first player
+     * @param second creates a new instance of the second player
+     * @throws IllegalArgumentException if a setting is too small
+     */
+    public Tournament(int width, int height, int numInARowToWin,
+                      Supplier<? extends ComputerPlayer> first, Supplier<? extends ComputerPlayer> second) {
+        // Fails early if the settings are not valid
+        SelfPlayGame.checkSettings(width, height, numInARowToWin);
+
+        this.width = width;
+        this.height = height;
+        this.numInARowToWin = numInARowToWin;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Plays the given number of games on the common {@code ForkJoinPool}.
+     * @param numGames the number of games to play
+     * @return the results of the games
+     */
+    public TournamentResult play(int numGames) {
+        return play(numGames, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plays the given number of games on the given {@code ForkJoinPool}.
+     * @param numGames the number of games to play, must not be negative
+     * @param pool the pool the games are played on
+     * @return the results of the games
+     */
+    public TournamentResult play(int numGames, ForkJoinPool pool) {
+        if(numGames < 0)
+            throw new IllegalArgumentException("The number of games must not be negative.");
+
+        int batchSize = Math.max(1, numGames / (pool.getParallelism() * BATCHES_PER_THREAD));
+
+        long startTime = System.nanoTime();
+        TournamentResult result = pool.invoke(new MatchTask(0, numGames, batchSize));
+        result.setElapsedNanos(System.nanoTime() - startTime);
+
+        return result;
+    }
+
+    /**
+     * Plays a range of games, splitting it in halves until it is small enough.
+     */
+    private class MatchTask extends RecursiveTask<TournamentResult> {
+        /**
+         * The version of the serialized form, which is never used since the tasks are not serialized.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The number of the first game, inclusive.
+         */
+        private final int start;
+
+        /**
+         * The number of the last game, exclusive.
+         */
+        private final int end;
+
+        /**
+         * The maximum number of games played without splitting.
+         */
+        private final int batchSize;
+
+        /**
+         * Creates a new MatchTask.
+         * @param start the number of the first game, inclusive
+         * @param end the number of the last game, exclusive
+         * @param batchSize the maximum number of games played without splitting
+         */
+        MatchTask(int start, int end, int batchSize) {
+            this.start = start;
+            this.end = end;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Plays the games, or splits them between two new tasks.
+         * @return the results of the games
+         */
+        @Override
+        protected TournamentResult compute() {
+            if(end - start <= batchSize)
+                return playBatch();
+
+            int middle = (start + end) >>> 1;
+            MatchTask left = new MatchTask(start, middle, batchSize);
+            left.fork();
+            TournamentResult result = new MatchTask(middle, end, batchSize).compute();
+            result.addAll(left.join());
+
+            return result;
+        }
+
+        /**
+         * Plays the games of this task with new players, and closes them.
+         * @return the results of the games
+         */
+        private TournamentResult playBatch() {
+            TournamentResult result = new TournamentResult();
+            if(start == end)
+                return result;
+
+            try (ComputerPlayer firstPlayer = first.get(); ComputerPlayer secondPlayer = second.get()) {
+                SelfPlayGame game = new SelfPlayGame(width, height, numInARowToWin, firstPlayer, secondPlayer);
+                for (int i = start; i < end; i++) {
+                    // The first player starts the even games
+                    boolean firstStarts = i % 2 == 0;
+                    result.add(firstStarts, game.play(firstStarts));
+                }
+            }
+
+            return result;
+        }
+    }
+}
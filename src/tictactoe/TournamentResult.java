@@ -0,0 +1,190 @@
+package tictactoe;
+
+/**
+ * The number of games won, lost and drawn in a {@code Tournament},
+ * from the point of view of the first player.
+ *
+ * <p>The results are counted separately for the games started by each player,
+ * since the player who starts usually has an advantage.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class TournamentResult {
+    /**
+     * The number of games won by the first player, indexed by the starting player.
+     */
+    private final int[] wins = new int[2];
+
+    /**
+     * The number of drawn games, indexed by the starting player.
+     */
+    private final int[] draws = new int[2];
+
+    /**
+     * The number of games won by the second player, indexed by the starting player.
+     */
+    private final int[] losses = new int[2];
+
+    /**
+     * The time it took to play the games in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Returns the total number of games played.
+     * @return the number of games
+     */
+    public int getGames() {
+        return getWins() + getDraws() + getLosses();
+    }
+
+    /**
+     * Returns the number of games won by the first player.
+     * @return the number of wins
+     */
+    public int getWins() {
+        return wins[0] + wins[1];
+    }
+
+    /**
+     * Returns the number of games won by the first player when the given player started.
+     * @param firstStarted true for the games started by the first player
+     * @return the number of wins
+     */
+    public int getWins(boolean firstStarted) {
+        return wins[getStarter(firstStarted)];
+    }
+
+    /**
+     * Returns the number of drawn games.
+     * @return the number of draws
+     */
+    public int getDraws() {
+        return draws[0] + draws[1];
+    }
+
+    /**
+     * Returns the number of drawn games when the given player started.
+     * @param firstStarted true for the games started by the first player
+     * @return the number of draws
+     */
+    public int getDraws(boolean firstStarted) {
+        return draws[getStarter(firstStarted)];
+    }
+
+    /**
+     * Returns the number of games won by the second player.
+     * @return the number of losses
+     */
+    public int getLosses() {
+        return losses[0] + losses[1];
+    }
+
+    /**
+     * Returns the number of games won by the second player when the given player started.
+     * @param firstStarted true for the games started by the first player
+     * @return the number of losses
+     */
+    public int getLosses(boolean firstStarted) {
+        return losses[getStarter(firstStarted)];
+    }
+
+    /**
+     * Returns the time it took to play the games.
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of games played per second.
+     * @return the games per second, or zero if no time has been recorded
+     */
+    public double getGamesPerSecond() {
+        if(elapsedNanos <= 0)
+            return 0;
+
+        return getGames() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the results as a table.
+     * @return the results as a multi-line string
+     */
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-15s %10s %10s %10s%n", "", "Wins", "Draws", "Losses"));
+        appendRow(table, "First starts", getWins(true), getDraws(true), getLosses(true));
+        appendRow(table, "Second starts", getWins(false), getDraws(false), getLosses(false));
+        appendRow(table, "Total", getWins(), getDraws(), getLosses());
+        table.append(String.format("%d games in %.2f s, %.1f games/s",
+            getGames(), elapsedNanos / 1e9, getGamesPerSecond()));
+
+        return table.toString();
+    }
+
+    /**
+     * Counts the result of a game.
+     * @param firstStarted whether the first player made the first move
+     * @param result the result returned by {@code SelfPlayGame.play}
+     */
+    void add(boolean firstStarted, GameState result) {
+        int starter = getStarter(firstStarted);
+        switch(result) {
+            case COMPUTER_WON:
+                ++wins[starter];
+                break;
+            case PLAYER_WON:
+                ++losses[starter];
+                break;
+            case DRAW_GAME:
+                ++draws[starter];
+                break;
+            default:
+                throw new IllegalArgumentException("Not the result of a game: " + result);
+        }
+    }
+
+    /**
+     * Adds the games counted in the other result to this result.
+     * @param other the result to add
+     */
+    void addAll(TournamentResult other) {
+        for (int i = 0; i < 2; i++) {
+            wins[i] += other.wins[i];
+            draws[i] += other.draws[i];
+            losses[i] += other.losses[i];
+        }
+    }
+
+    /**
+     * Sets the time it took to play the games.
+     * @param elapsedNanos the elapsed time in nanoseconds
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the array index of the starting player.
+     * @param firstStarted true if the first player started
+     * @return 0 for the first player, 1 for the second player
+     */
+    private static int getStarter(boolean firstStarted) {
+        return firstStarted ? 0 : 1;
+    }
+
+    /**
+     * Appends a row of the results table.
+     * @param table the table
+     * @param title the title of the row
+     * @param wins the number of wins
+     * @param draws the number of draws
+     * @param losses the number of losses
+     */
+    private static void appendRow(StringBuilder table, String title, int wins, int draws, int losses) {
+        table.append(String.format("%-15s %10d %10d %10d%n", title, wins, draws, losses));
+    }
+}
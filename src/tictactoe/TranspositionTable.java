@@ -0,0 +1,336 @@
+package tictactoe;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table for storing the results of searched positions.
+ *
+ * <p>The positions are identified by the Zobrist hash of the game board.
+ * Each entry stores the search depth, the score, whether the score is exact
+ * or a bound, and the best move found. An entry is stored in two {@code long}
+ * values, so the table never allocates memory after it has been created.</p>
+ *
+ * <p>The table keeps its contents between searches. Calling {@code newSearch}
+ * marks the existing entries as old, so that they are replaced first.</p>
+ *
+ * <p>The table can be shared by threads searching at the same time without locking.
+ * The key of a slot is stored XORed with its entry, so an entry that was written
+ * by two threads at once, or read while it was being written, no longer matches
+ * its key and is treated as a different position. The counters are not
+ * synchronized, so they are only approximate when the table is shared.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class TranspositionTable {
+    /**
+     * The type of the score stored in an entry.
+     */
+    public enum Bound {
+        /**
+         * The score is exact.
+         */
+        EXACT,
+
+        /**
+         * The score is a lower bound: the real score is this or higher.
+         */
+        LOWER,
+
+        /**
+         * The score is an upper bound: the real score is this or lower.
+         */
+        UPPER
+    }
+
+    /**
+     * Decides whether a new entry replaces the entry already in its slot.
+     */
+    public enum ReplacementScheme {
+        /**
+         * The new entry always replaces the old one.
+         */
+        ALWAYS,
+
+        /**
+         * The old entry is kept if it is from the current search
+         * and it has been searched deeper than the new one.
+         */
+        DEPTH_PREFERRED
+    }
+
+    /**
+     * Returned by {@code probe} when the position is not in the table.
+     */
+    public static final long NOT_FOUND = 0;
+
+    /**
+     * Returned by {@code getMove} when the entry has no best move.
+     */
+    public static final int NO_MOVE = -1;
+
+    /**
+     * The default number of entries.
+     */
+    public static final int DEFAULT_SIZE = 1 << 18;
+
+    /**
+     * The bit position of the search depth in an entry.
+     */
+    private static final int DEPTH_SHIFT = 32;
+
+    /**
+     * The bit position of the bound type in an entry.
+     */
+    private static final int BOUND_SHIFT = 40;
+
+    /**
+     * The bit position of the generation in an entry.
+     */
+    private static final int GENERATION_SHIFT = 42;
+
+    /**
+     * The bit position of the best move in an entry.
+     */
+    private static final int MOVE_SHIFT = 48;
+
+    /**
+     * The largest move that can be stored in an entry.
+     */
+    private static final int MAX_MOVE = 0xFFFE;
+
+    /**
+     * The Bound values, cached for decoding entries.
+     */
+    private static final Bound[] BOUNDS = Bound.values();
+
+    /**
+     * The hashes of the stored positions, each XORed with its entry.
+     */
+    private final long[] keys;
+
+    /**
+     * The stored entries.
+     */
+    private final long[] entries;
+
+    /**
+     * The mask for turning a hash into an index of the table.
+     */
+    private final int indexMask;
+
+    /**
+     * The replacement scheme.
+     */
+    private final ReplacementScheme replacementScheme;
+
+    /**
+     * The generation of the current search, stored in new entries.
+     */
+    private int generation;
+
+    /**
+     * The number of probes that found the position.
+     */
+    private long hits;
+
+    /**
+     * The number of probes that found an empty slot.
+     */
+    private long misses;
+
+    /**
+     * The number of probes that found a different position in the slot.
+     */
+    private long collisions;
+
+    /**
+     * Creates a new TranspositionTable with the default size
+     * and the depth-preferred replacement scheme.
+     */
+    public TranspositionTable() {
+        this(DEFAULT_SIZE, ReplacementScheme.DEPTH_PREFERRED);
+    }
+
+    /**
+     * Creates a new TranspositionTable.
+     * @param size the number of entries, rounded down to a power of two, must be greater than zero
+     * @param replacementScheme decides when an entry is replaced by a new one
+     */
+    public TranspositionTable(int size, ReplacementScheme replacementScheme) {
+        if(size <= 0)
+            throw new IllegalArgumentException("Size must be greater than zero.");
+
+        int capacity = Integer.highestOneBit(size);
+        this.keys = new long[capacity];
+        this.entries = new long[capacity];
+        this.indexMask = capacity - 1;
+        this.replacementScheme = replacementScheme;
+    }
+
+    /**
+     * Looks for the position with the given hash.
+     * @param key the hash of the position
+     * @return the entry of the position, or {@code NOT_FOUND}
+     */
+    public long probe(long key) {
+        int index = getIndex(key);
+        long entry = entries[index];
+
+        if(entry == NOT_FOUND) {
+            ++misses;
+            return NOT_FOUND;
+        }
+        if((keys[index] ^ entry) != key) {
+            ++collisions;
+            return NOT_FOUND;
+        }
+
+        ++hits;
+        return entry;
+    }
+
+    /**
+     * Stores the result of a searched position.
+     * @param key the hash of the position
+     * @param depth the depth the position was searched to, from 0 to 255
+     * @param score the score of the position
+     * @param bound the type of the score
+     * @param move the best move as a square index, or {@code NO_MOVE}
+     */
+    public void store(long key, int depth, int score, Bound bound, int move) {
+        int index = getIndex(key);
+        long oldEntry = entries[index];
+
+        if(replacementScheme == ReplacementScheme.DEPTH_PREFERRED
+            && oldEntry != NOT_FOUND
+            && (keys[index] ^ oldEntry) != key
+            && getGeneration(oldEntry) == generation
+            && getDepth(oldEntry) > depth)
+            return;
+
+        if(move < 0 || move > MAX_MOVE)
+            move = NO_MOVE;
+
+        long entry = (score & 0xFFFFFFFFL)
+            | ((long)Math.min(depth, 255) << DEPTH_SHIFT)
+            // The bound is stored as 1-3, so that a stored entry is never equal to NOT_FOUND
+            | ((long)(bound.ordinal() + 1) << BOUND_SHIFT)
+            | ((long)generation << GENERATION_SHIFT)
+            | ((long)(move + 1) << MOVE_SHIFT);
+
+        keys[index] = key ^ entry;
+        entries[index] = entry;
+    }
+
+    /**
+     * Marks the entries of the earlier searches as old.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    /**
+     * Removes every entry from the table and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, NOT_FOUND);
+        generation = 0;
+        resetCounters();
+    }
+
+    /**
+     * Resets the hit, miss and collision counters.
+     */
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        collisions = 0;
+    }
+
+    /**
+     * Returns the number of entries in the table.
+     * @return the number of entries
+     */
+    public int getSize() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the number of probes that found the position.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of probes that found an empty slot.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of probes that found a different position in the slot.
+     * @return the number of collisions
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
+    /**
+     * Returns the score stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @return the score
+     */
+    public static int getScore(long entry) {
+        return (int)entry;
+    }
+
+    /**
+     * Returns the search depth stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @return the search depth
+     */
+    public static int getDepth(long entry) {
+        return (int)(entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Returns the type of the score stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @return the type of the score
+     */
+    public static Bound getBound(long entry) {
+        return BOUNDS[((int)(entry >>> BOUND_SHIFT) & 0x3) - 1];
+    }
+
+    /**
+     * Returns the best move stored in an entry.
+     * @param entry an entry returned by {@code probe}
+     * @return the best move as a square index, or {@code NO_MOVE}
+     */
+    public static int getMove(long entry) {
+        return (int)(entry >>> MOVE_SHIFT) - 1;
+    }
+
+    /**
+     * Returns the generation stored in an entry.
+     * @param entry an entry stored in the table
+     * @return the generation of the search that stored the entry
+     */
+    private static int getGeneration(long entry) {
+        return (int)(entry >>> GENERATION_SHIFT) & 0x3F;
+    }
+
+    /**
+     * Returns the index of the slot for the given hash.
+     * @param key the hash of a position
+     * @return the index of the slot
+     */
+    private int getIndex(long key) {
+        return (int)(key ^ (key >>> 32)) & indexMask;
+    }
+}
@@ -45,26 +45,25 @@ class VictoryChecker {
      * @return true if the player has won with their last move
      */
     public boolean hasWon() {
-        for (Direction dir : Directions.ALL) {
-            if(isWinningRow(dir))
-                return true;
-        }
-        return false;
+        return hasWon(gameBoard, player, playedMove, numToWin);
     }
 
     /**
-     * Checks if there are enough adjacent pieces
-     * in the given direction required for winning.
-     * @param dir the direction to check
-     * @return true if there are enough pieces in a row required for victory
+     * Checks if a player has won the game with the given move,
+     * without creating a VictoryChecker.
+     * @param gameBoard the game board
+     * @param player the player who made the move
+     * @param playedMove the move made by the player
+     * @param numToWin the number of pieces in a row needed to win
+     * @return true if the player has won with the move
      */
-    private boolean isWinningRow(Direction dir) {
-        // Forwards, start position included
-        int nAdjacent = gameBoard.getNumAdjacent(playedMove, dir, player, true);
-
-        // Backwards, start position excluded
-        nAdjacent += gameBoard.getNumAdjacent(playedMove, dir.reverse(), player, false);
-
-        return nAdjacent >= numToWin;
+    public static boolean hasWon(ImmutableGameBoard gameBoard, byte player, Coordinate playedMove, int numToWin) {
+        for (Direction dir : Directions.ALL) {
+            // Checks if there are enough adjacent pieces
+            // in the direction required for winning
+            if(gameBoard.isRowThrough(playedMove, dir, player, numToWin))
+                return true;
+        }
+        return false;
     }
 }
\ No newline at end of file
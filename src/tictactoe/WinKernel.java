@@ -0,0 +1,31 @@
+package tictactoe;
+
+/**
+ * Checks the rows of many game boards that are stored one {@code long} per board,
+ * with one bit per square.
+ *
+ * <p>The square at (x, y) of a board of width w is bit (y * w + x). For each direction,
+ * a bit of a board is a row start when the square and the following squares in the
+ * direction all have a piece, which is found by shifting the board right by multiples of
+ * the shift of the direction and combining the results with AND. The window of a square
+ * has a bit set for every start of a row of the needed length that goes through the square
+ * and stays on the game board, so the move has won when a row start falls inside the window
+ * of its square in any direction.</p>
+ *
+ * @author Tapio Malmberg
+ */
+interface WinKernel {
+    /**
+     * Checks for each board whether a row of pieces goes through the given square.
+     * @param pieces the pieces of the player on each board
+     * @param squares the bit index of the square on each board
+     * @param count the number of boards to check, from the start of the arrays
+     * @param windows the windows, indexed by (direction * numSquares + square)
+     * @param numSquares the number of squares on a board
+     * @param shifts the shift of each direction
+     * @param numToWin the number of pieces in a row needed to win
+     * @param results set to true for the boards that have a row through the square, and false for the others
+     */
+    void hasWon(long[] pieces, int[] squares, int count, long[] windows, int numSquares,
+                int[] shifts, int numToWin, boolean[] results);
+}
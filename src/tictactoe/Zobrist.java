@@ -0,0 +1,48 @@
+package tictactoe;
+
+/**
+ * Calculates the Zobrist keys used for hashing game boards.
+ *
+ * <p>Each combination of a square and a piece has its own pseudo-random key.
+ * The hash of a game board is the XOR of the keys of all the pieces on it,
+ * so it can be updated with a single XOR whenever a square changes.</p>
+ *
+ * <p>The keys are calculated from the coordinate and the piece instead of
+ * being stored in a table, so the same position has the same hash on
+ * every game board, regardless of its size.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class Zobrist {
+    /**
+     * The key XORed into the hash when the computer is the player to move.
+     */
+    public static final long COMPUTER_TO_MOVE = getKey(-1, -1, TicTacToeGame.COMPUTER);
+
+    /**
+     * Returns the key for the given piece at the given (x, y) coordinate.
+     * @param x the x value of the coordinate
+     * @param y the y value of the coordinate
+     * @param type the content of the square
+     * @return the key, or zero for an empty square
+     */
+    public static long getKey(int x, int y, byte type) {
+        if(type == TicTacToeGame.EMPTY)
+            return 0;
+
+        long seed = ((long)y << 40) ^ ((long)x << 16) ^ type;
+        return mix(seed);
+    }
+
+    /**
+     * Scrambles the bits of the given value (the SplitMix64 finalizer).
+     * @param value the value to scramble
+     * @return a pseudo-random value that depends on every bit of {@code value}
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,54 @@
+package tictactoe.console;
+
+import tictactoe.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Compares the moves of archived games with the moves of a computer player
+ * and prints the agreement rates.
+ *
+ * @author Tapio Malmberg
+ */
+public class Analyze {
+    /**
+     * The usage instructions printed when the arguments are not valid.
+     */
+    private static final String USAGE =
+        "Usage: java tictactoe.console.Analyze <game records> <results> <player> [threads]\n"
+        + "The player is random, smart, threat, search[:time limit in ms[:threads]] or mcts[:time limit in ms].";
+
+    /**
+     * The size of the buffer of the game records in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Main program entry point.
+     * @param args the file of game records, the file the results of each game are written to,
+     *             the computer player and optionally the number of threads, by default one per core
+     * @throws IOException if reading the game records or writing the results fails
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 3 || args.length > 4) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        GameAnalyzer analyzer;
+        try {
+            int numThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            analyzer = new GameAnalyzer(SelfPlay.parsePlayer(args[2]), numThreads);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+
+        try (InputStream records = new BufferedInputStream(Files.newInputStream(Paths.get(args[0])), BUFFER_SIZE);
+             Writer results = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            System.out.println(analyzer.analyze(records, results));
+        }
+    }
+}
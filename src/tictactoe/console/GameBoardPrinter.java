@@ -1,5 +1,6 @@
 package tictactoe.console;
 
+import java.io.PrintStream;
 import tictactoe.*;
 
 /**
@@ -7,112 +8,268 @@ import tictactoe.*;
  *
  * <p>Can print game boards up to the size of 99x99.</p>
  *
+ * <p>Each game board is first written into a buffer that is reused between prints,
+ * and then printed with a single write. In the diff mode, the screen is cleared and the
+ * game board is printed at the top of it once. After that, only the squares that have
+ * changed are printed, by moving the cursor onto them, and the text below the game board
+ * is cleared. This only works as long as the text printed between two game boards fits
+ * on the screen, so the diff mode is optional.</p>
+ *
  * @author Tapio Malmberg
  */
 class GameBoardPrinter {
     /**
      * The symbols for empty, human player and computer player.
      */
-    private static final String[] SYMBOLS = { " ", "X", "O" };
+    private static final char[] SYMBOLS = { ' ', 'X', 'O' };
+
+    /**
+     * The escape character that starts the ANSI codes.
+     */
+    private static final char ESCAPE = 27;
+
+    /**
+     * The ANSI codes for the colors of empty, human player and computer player:
+     * white, green and red. The game board itself is white.
+     */
+    private static final String[] COLORS = { ESCAPE + "[37m", ESCAPE + "[32m", ESCAPE + "[31m" };
+
+    /**
+     * The ANSI codes for clearing the screen and moving the cursor to its top left corner.
+     */
+    private static final String CLEAR_SCREEN = ESCAPE + "[H" + ESCAPE + "[2J";
+
+    /**
+     * The ANSI code for clearing the screen after the cursor.
+     */
+    private static final String CLEAR_BELOW = ESCAPE + "[J";
+
+    /**
+     * The screen line of the first row of squares, counted from 1.
+     */
+    private static final int FIRST_ROW_LINE = 4;
+
+    /**
+     * The screen column of the first column of squares, counted from 1.
+     */
+    private static final int FIRST_SQUARE_COLUMN = 4;
+
+    /**
+     * The line separator of the platform, as printed by {@code println}.
+     */
+    private static final String NEWLINE = System.lineSeparator();
+
+    /**
+     * The stream the game boards are printed to.
+     */
+    private final PrintStream out;
+
+    /**
+     * Set when only the changed squares are printed.
+     */
+    private final boolean diffMode;
+
+    /**
+     * The buffer the game board is written into before printing it.
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * The color of the text written into the buffer so far, as an index of {@code COLORS}.
+     */
+    private int color;
+
+    /**
+     * The squares on the screen in the diff mode, row by row, or null if nothing has been printed yet.
+     */
+    private byte[] printedSquares;
+
+    /**
+     * The width of the game board on the screen in the diff mode.
+     */
+    private int printedWidth;
+
+    /**
+     * Creates a new GameBoardPrinter.
+     * @param out the stream the game boards are printed to
+     * @param diffMode true if only the changed squares are printed after the first game board
+     */
+    public GameBoardPrinter(PrintStream out, boolean diffMode) {
+        this.out = out;
+        this.diffMode = diffMode;
+    }
 
     /**
      * Prints a game board to the console.
      * @param gameBoard the game board to print
      */
-    public static void print(ImmutableGameBoard gameBoard) {
+    public void print(ImmutableGameBoard gameBoard) {
+        buffer.setLength(0);
+        buffer.append(COLORS[TicTacToeGame.EMPTY]);
+        color = TicTacToeGame.EMPTY;
+
+        if(!diffMode) {
+            appendGameBoard(gameBoard);
+        } else if(printedSquares == null || printedWidth != gameBoard.getWidth()
+            || printedSquares.length != gameBoard.getWidth() * gameBoard.getHeight()) {
+            buffer.append(CLEAR_SCREEN);
+            appendGameBoard(gameBoard);
+            rememberSquares(gameBoard);
+        } else {
+            appendChangedSquares(gameBoard);
+        }
+
+        out.append(buffer);
+        out.flush();
+    }
+
+    /**
+     * Writes the whole game board into the buffer.
+     * @param gameBoard the game board
+     */
+    private void appendGameBoard(ImmutableGameBoard gameBoard) {
         int width = gameBoard.getWidth();
-        printXCoordinates(width);
+        appendXCoordinates(width);
 
         for (int y = 0; y < gameBoard.getHeight(); y++) {
-            printPadding();
-            printLine(width * 2 + 1);
-            printYCoordinate(y);
-            printRow(y, gameBoard);
+            appendPadding();
+            appendLine(width * 2 + 1);
+            appendYCoordinate(y);
+            appendRow(y, gameBoard);
         }
-        printPadding();
-        printLine(width * 2 + 1);
+        appendPadding();
+        appendLine(width * 2 + 1);
     }
 
     /**
-     * Prints the X coordinates at the top of the game board.
+     * Writes the squares that have changed since the previous print into the buffer,
+     * and clears the text below the game board.
+     * @param gameBoard the game board
+     */
+    private void appendChangedSquares(ImmutableGameBoard gameBoard) {
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < printedWidth; x++) {
+                byte square = gameBoard.getSquare(x, y);
+                if(printedSquares[y * printedWidth + x] != square) {
+                    appendCursorMove(FIRST_ROW_LINE + y * 2, FIRST_SQUARE_COLUMN + x * 2);
+                    appendTicTac(square);
+                    printedSquares[y * printedWidth + x] = square;
+                }
+            }
+        }
+
+        // Continue below the game board, where the previous prompts are cleared
+        appendCursorMove(FIRST_ROW_LINE + gameBoard.getHeight() * 2, 1);
+        buffer.append(CLEAR_BELOW);
+    }
+
+    /**
+     * Remembers the squares of the game board printed in the diff mode.
+     * @param gameBoard the game board
+     */
+    private void rememberSquares(ImmutableGameBoard gameBoard) {
+        printedWidth = gameBoard.getWidth();
+        printedSquares = new byte[printedWidth * gameBoard.getHeight()];
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < printedWidth; x++)
+                printedSquares[y * printedWidth + x] = gameBoard.getSquare(x, y);
+        }
+    }
+
+    /**
+     * Writes the ANSI code for moving the cursor into the buffer.
+     * @param line the screen line, counted from 1
+     * @param column the screen column, counted from 1
+     */
+    private void appendCursorMove(int line, int column) {
+        buffer.append(ESCAPE).append('[').append(line).append(';').append(column).append('H');
+    }
+
+    /**
+     * Writes the X coordinates at the top of the game board into the buffer.
      * @param width the width of the game board
      */
-    private static void printXCoordinates(int width) {
+    private void appendXCoordinates(int width) {
         // First line: tenths
-        printPadding();
+        appendPadding();
         for (int x = 1; x <= width; x++) {
             int n = x / 10;
             // Do not print zeroes for the tenths
-            String text = " " + (n == 0 ? " " : Integer.toString(n));
-            System.out.print(text);
+            buffer.append(' ').append(n == 0 ? ' ' : (char)('0' + n));
         }
-        System.out.println();
+        buffer.append(NEWLINE);
 
         // Second line: ones
-        printPadding();
+        appendPadding();
         for (int x = 1; x <= width; x++) {
-            int n = x % 10;
-            System.out.print(" " + n);
+            buffer.append(' ').append((char)('0' + x % 10));
         }
-        System.out.println();
+        buffer.append(NEWLINE);
     }
 
     /**
-     * Prints a Y coordinate at the left side of the game board.
+     * Writes a Y coordinate at the left side of the game board into the buffer.
      * @param y the y value to print
      */
-    private static void printYCoordinate(int y) {
-        System.out.print(y + 1);
+    private void appendYCoordinate(int y) {
+        buffer.append(y + 1);
         if (y < 9)
-            System.out.print(" ");
+            buffer.append(' ');
     }
 
     /**
-     * Prints a row of the game board.
+     * Writes a row of the game board into the buffer.
      * @param y the y coordinate of the row
      * @param gameBoard the game board
      */
-    private static void printRow(int y, ImmutableGameBoard gameBoard) {
+    private void appendRow(int y, ImmutableGameBoard gameBoard) {
         for (int x = 0; x < gameBoard.getWidth(); x++) {
-            System.out.print("|");
-            printTicTac(gameBoard.getSquare(x, y));
+            buffer.append('|');
+            appendTicTac(gameBoard.getSquare(x, y));
         }
-        System.out.println("|");
+        buffer.append('|').append(NEWLINE);
     }
 
     /**
-     * Prints a symbol depending on the content of the square.
-     * 
-     * <p>Green color is used for the player, red for the computer.</p>
+     * Writes a symbol depending on the content of the square into the buffer.
+     *
+     * <p>Green color is used for the player, red for the computer. The color is
+     * only changed when it differs from the previous one, and it is always white
+     * again after the symbol.</p>
      * @param squareValue the value at the square on the game board
      */
-    private static void printTicTac(byte squareValue) {
-        // [31m = red
-        // [32m = green
-        // [37m = white
-        String colorWhite = (char) 27 + "[37m";
-        String colorStr = (char) 27 + (squareValue == TicTacToeGame.PLAYER ? "[32m" : "[31m");
-        if (squareValue == TicTacToeGame.EMPTY)
-            colorStr = colorWhite;
+    private void appendTicTac(byte squareValue) {
+        setColor(squareValue);
+        buffer.append(SYMBOLS[squareValue]);
+        setColor(TicTacToeGame.EMPTY);
+    }
 
-        System.out.print(colorStr + SYMBOLS[squareValue] + colorWhite);
+    /**
+     * Writes the ANSI code of a color into the buffer, unless the color is already in use.
+     * @param squareValue the value of the square whose color is used
+     */
+    private void setColor(int squareValue) {
+        if(color != squareValue) {
+            buffer.append(COLORS[squareValue]);
+            color = squareValue;
+        }
     }
 
     /**
-     * Prints a line that separates the rows on the game board.
+     * Writes a line that separates the rows on the game board into the buffer.
      * @param width the width of the line to print
      */
-    private static void printLine(int width) {
+    private void appendLine(int width) {
         for (int i = 0; i < width; i++) {
-            System.out.print("-");
+            buffer.append('-');
         }
-        System.out.println();
+        buffer.append(NEWLINE);
     }
 
     /**
-     * Prints the padding for the left margin that contains the Y coordinates.
+     * Writes the padding for the left margin that contains the Y coordinates into the buffer.
      */
-    private static void printPadding() {
-        System.out.print("  ");
+    private void appendPadding() {
+        buffer.append("  ");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package tictactoe.console;
+
+import tictactoe.*;
+import java.util.function.Supplier;
+
+/**
+ * Plays a tournament between two computer players in the console
+ * and prints the results.
+ *
+ * @author Tapio Malmberg
+ */
+public class SelfPlay {
+    /**
+     * The usage instructions printed when the arguments are not valid.
+     */
+    private static final String USAGE =
+        "Usage: java tictactoe.console.SelfPlay <width> <height> <in a row to win> <games> <first> <second>\n"
+        + "The players are random, smart, threat, search[:time limit in ms[:threads]] or mcts[:time limit in ms].";
+
+    /**
+     * Main program entry point.
+     * @param args the game board size, the number of pieces in a row needed to win,
+     *             the number of games and the two players
+     */
+    public static void main(String[] args) {
+        if(args.length != 6) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        try {
+            int width = Integer.parseInt(args[0]);
+            int height = Integer.parseInt(args[1]);
+            int numInARowToWin = Integer.parseInt(args[2]);
+            int numGames = Integer.parseInt(args[3]);
+
+            Tournament tournament = new Tournament(width, height, numInARowToWin,
+                parsePlayer(args[4]), parsePlayer(args[5]));
+            System.out.println(args[4] + " vs " + args[5] + ", wins counted for " + args[4]);
+            System.out.println(tournament.play(numGames));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+        }
+    }
+
+    /**
+     * Returns a supplier of the computer player with the given name.
+     * @param name random, smart, threat, search or mcts, the last two optionally followed by a colon and a time limit,
+     *             and search also by a colon and the number of threads
+     * @return creates new instances of the computer player
+     * @throws IllegalArgumentException if the name is not known
+     */
+    static Supplier<ComputerPlayer> parsePlayer(String name) {
+        String[] parts = name.split(":", 3);
+        switch(parts[0]) {
+            case "random":
+                return RandomComputer::new;
+            case "smart":
+                return SmartComputer::new;
+            case "threat":
+                return ThreatSpaceComputer::new;
+            case "search":
+                long timeLimit = parts.length > 1 ? Long.parseLong(parts[1]) : AlphaBetaComputer.DEFAULT_TIME_LIMIT;
+                int numThreads = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+                return () -> new AlphaBetaComputer(timeLimit, AlphaBetaComputer.DEFAULT_MAX_MOVES,
+                    new TranspositionTable(), numThreads);
+            case "mcts":
+                // The games are already played in parallel, so each player searches with one thread
+                long mctsTimeLimit = parts.length > 1 ? Long.parseLong(parts[1]) : MonteCarloComputer.DEFAULT_TIME_LIMIT;
+                return () -> new MonteCarloComputer(1, mctsTimeLimit, Long.MAX_VALUE);
+            default:
+                throw new IllegalArgumentException("Unknown player: " + name);
+        }
+    }
+}
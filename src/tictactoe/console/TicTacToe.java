@@ -29,11 +29,26 @@ public class TicTacToe {
      */
     private static Scanner input = new Scanner(System.in);
 
+    /**
+     * The command line option for printing only the changed squares of the game board.
+     */
+    private static final String DIFF_OPTION = "--diff";
+
+    /**
+     * Prints the game board.
+     */
+    private static GameBoardPrinter printer;
+
     /**
      * The Tic-Tac-Toe game.
      */
     private static TicTacToeGame game;
 
+    /**
+     * The computer player of the game.
+     */
+    private static ComputerPlayer computer;
+
     /**
      * The current state of the game.
      */
@@ -41,12 +56,16 @@ public class TicTacToe {
 
     /**
      * Main program entry point.
-     * @param args not used
+     * @param args {@code --diff} to print only the changed squares of the game board
+     *             after the first time, which is faster over slow connections
      */
     public static void main(String[] args) {
+        boolean diffMode = args.length > 0 && args[0].equals(DIFF_OPTION);
+        printer = new GameBoardPrinter(System.out, diffMode);
         printInstructions();
         createGame();
         playUntilUserQuits();
+        computer.close();
     }
 
     /**
@@ -64,13 +83,16 @@ public class TicTacToe {
     }
 
     /**
-     * Creates the TicTacToeGame by asking the user for its settings.
+     * Creates the TicTacToeGame by asking the user for its settings,
+     * and closes the computer player of the previous game.
      */
     private static void createGame() {
         int width = getNumberInRange("Set game board width", TicTacToeGame.MIN_WIDTH, MAX_WIDTH);
         int height = getNumberInRange("Set game board height", TicTacToeGame.MIN_HEIGHT, MAX_HEIGHT);
         int numInARowToWin = getValidNumInARowToWin(width, height);
-        ComputerPlayer computer = getComputerDifficulty();
+        if(computer != null)
+            computer.close();
+        computer = getComputerDifficulty();
         game = new TicTacToeGame(width, height, numInARowToWin, computer, doesComputerMakeFirstMove());
     }
 
@@ -113,10 +135,37 @@ public class TicTacToe {
      * @return a ComputerPlayer with the difficulty the user selected
      */
     private static ComputerPlayer getComputerDifficulty() {
-        String options = "1. Random, 2. Smart";
+        String options = "1. Random, 2. Smart, 3. Search, 4. Monte Carlo, 5. Threats";
         System.out.print("Select computer difficulty (" + options + "): ");
-        int choice = Utils.readInt(1, 2, NUMBER_PARSE_ERROR, options);
-        return choice == 1 ? new RandomComputer() : new SmartComputer();
+        int choice = Utils.readInt(1, 5, NUMBER_PARSE_ERROR, options);
+        switch (choice) {
+            case 1:
+                return new RandomComputer();
+            case 2:
+                return new SmartComputer();
+            case 3:
+                // Only one game is played, so the search can use every core
+                return getPondering(new AlphaBetaComputer(AlphaBetaComputer.DEFAULT_TIME_LIMIT,
+                    AlphaBetaComputer.DEFAULT_MAX_MOVES, new TranspositionTable(), Runtime.getRuntime().availableProcessors()));
+            case 4:
+                return getPondering(new MonteCarloComputer());
+            default:
+                return new ThreatSpaceComputer();
+        }
+    }
+
+    /**
+     * Asks the user whether the computer may think during the user's turn.
+     * @param computer a computer player that searches for its moves
+     * @return the computer player, wrapped in a {@code PonderingComputer} if the user agreed
+     */
+    private static ComputerPlayer getPondering(ComputerPlayer computer) {
+        System.out.print("Let the computer think during your turn [y]/n? ");
+        String answer = input.nextLine().trim();
+        if (answer.length() > 0 && Character.toLowerCase(answer.charAt(0)) == 'n')
+            return computer;
+
+        return new PonderingComputer(computer);
     }
 
     /**
@@ -182,13 +231,13 @@ public class TicTacToe {
      */
     private static void playAGame() {
         do {
-            GameBoardPrinter.print(game.getGameBoard());
+            printer.print(game.getGameBoard());
             getPlayerMoveOrCommand();
         } while (gameState == GameState.READY_FOR_NEXT_MOVE);
 
         // Print the game board at the end of a game unless the user quit
         if (gameState != GameState.USER_QUIT)
-            GameBoardPrinter.print(game.getGameBoard());
+            printer.print(game.getGameBoard());
     }
 
     /**
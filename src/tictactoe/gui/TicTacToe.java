@@ -3,6 +3,8 @@ package tictactoe.gui;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.*;
 import tictactoe.*;
 
 /**
@@ -26,6 +28,11 @@ public class TicTacToe extends JFrame {
      */
     private JButton undoBtn;
 
+    /**
+     * The Redo button.
+     */
+    private JButton redoBtn;
+
     /**
      * The TextField for the game board width.
      */
@@ -46,6 +53,30 @@ public class TicTacToe extends JFrame {
      */
     private JLabel messageLabel;
 
+    /**
+     * Shown at the bottom of the window while the computer is thinking.
+     */
+    private JProgressBar thinkingBar;
+
+    /**
+     * Searches for the moves of the computer, so that the user interface stays responsive.
+     */
+    private final ExecutorService computerExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "tictactoe-computer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The round whose computer move is being waited for, or null.
+     */
+    private CompletableFuture<GameState> pendingRound;
+
+    /**
+     * The move of the user in the round whose computer move is being waited for.
+     */
+    private Coordinate pendingMove;
+
     /**
      * The Tic-Tac-Toe game.
      */
@@ -81,6 +112,11 @@ public class TicTacToe extends JFrame {
 
     /**
      * Panel that displays the game board and listens to user clicks.
+     *
+     * <p>The grid and the pieces are drawn into an image, which is redrawn only when
+     * the panel is resized or a new game is started. A move or an undo redraws just
+     * the changed squares in the image and repaints them, so painting takes the same
+     * time on every game board size.</p>
      */
     private class GameBoardPanel extends JPanel {
         /**
@@ -88,6 +124,11 @@ public class TicTacToe extends JFrame {
          */
         private final Color SHADOW_COLOR = new Color(222, 207, 164);
 
+        /**
+         * The background, the grid and the pieces, or null if they must be drawn again.
+         */
+        private BufferedImage boardImage;
+
         /**
          * A MouseAdapter for detecting where the user clicked.
          */
@@ -100,16 +141,11 @@ public class TicTacToe extends JFrame {
              */
             @Override
             public void mouseReleased(MouseEvent e) {
-                if(!isGameOver()) {
+                if(!isGameOver() && pendingRound == null) {
                     int squareX = (int)(e.getX() / getSquareWidth());
                     int squareY = (int)(e.getY() / getSquareHeight());
 
-                    gameState = game.playARound(new Coordinate(squareX, squareY));
-                    if(gameState != GameState.INVALID_PLAYER_MOVE) {
-                        setComputerMoveMessage();
-                        undoBtn.setEnabled(true);
-                        repaint();
-                    }
+                    playARound(new Coordinate(squareX, squareY));
                 }
             }
         }
@@ -133,14 +169,16 @@ public class TicTacToe extends JFrame {
         }
 
         /**
-         * Draws the game board, the game pieces and a possible game over message.
+         * Draws the game board image and a possible game over message.
          * @param g the graphics context
          */
         @Override
         public void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            drawGrid(g);
-            drawPieces(g, game.getGameBoard());
+            if(boardImage == null || boardImage.getWidth() != getWidth() || boardImage.getHeight() != getHeight())
+                drawBoardImage();
+
+            // Only the part inside the clip, usually a few squares, is actually copied
+            g.drawImage(boardImage, 0, 0, null);
 
             if(isGameOver()) {
                 drawGameOverMessage(g);
@@ -148,44 +186,131 @@ public class TicTacToe extends JFrame {
         }
 
         /**
-         * Draws the game board grid.
-         * @param g the graphics context
+         * Draws the whole game board again before the panel is next painted,
+         * and repaints the panel.
+         */
+        public void redrawBoard() {
+            boardImage = null;
+            repaint();
+        }
+
+        /**
+         * Redraws the given squares in the game board image and repaints them.
+         * @param squares the squares that have changed, null values are ignored
+         */
+        public void squaresChanged(Coordinate... squares) {
+            for (Coordinate square : squares) {
+                if(square == null)
+                    continue;
+
+                Rectangle bounds = getSquareBounds(square.x, square.y);
+                if(boardImage != null) {
+                    Graphics2D g = boardImage.createGraphics();
+                    g.setClip(bounds);
+                    drawBoard(g);
+                    g.dispose();
+                }
+                repaint(bounds);
+            }
+        }
+
+        /**
+         * Draws the whole game board into a new image of the size of the panel.
+         */
+        private void drawBoardImage() {
+            int width = Math.max(getWidth(), 1);
+            int height = Math.max(getHeight(), 1);
+            // A compatible image can be kept in video memory by Java 2D
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            boardImage = configuration != null
+                ? configuration.createCompatibleImage(width, height)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+            Graphics2D g = boardImage.createGraphics();
+            g.setClip(0, 0, width, height);
+            drawBoard(g);
+            g.dispose();
+        }
+
+        /**
+         * Draws the background, the grid and the pieces inside the clip.
+         * @param g the graphics context, with its clip set
+         */
+        private void drawBoard(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            drawGrid(g);
+            drawPieces(g, game.getGameBoard());
+        }
+
+        /**
+         * Returns the area of the panel covered by a square, including the grid lines around it.
+         * @param boardX the x value of the square on the game board
+         * @param boardY the y value of the square on the game board
+         * @return the bounds of the square
+         */
+        private Rectangle getSquareBounds(int boardX, int boardY) {
+            int left = (int)Math.floor(boardX * getSquareWidth());
+            int top = (int)Math.floor(boardY * getSquareHeight());
+            int right = (int)Math.ceil((boardX + 1) * getSquareWidth());
+            int bottom = (int)Math.ceil((boardY + 1) * getSquareHeight());
+            return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+        }
+
+        /**
+         * Draws the grid lines inside the clip.
+         * @param g the graphics context, with its clip set
          */
         private void drawGrid(Graphics g) {
             double squareWidth = getSquareWidth();
             double squareHeight = getSquareHeight();
-            double x = squareWidth;
-            double y = squareHeight;
+            Rectangle clip = g.getClipBounds();
 
             g.setColor(Color.DARK_GRAY);
 
             // Draw the vertical lines
-            while (x < getWidth()) {
+            int firstColumn = Math.max(1, (int)(clip.x / squareWidth));
+            int lastColumn = (int)Math.ceil((clip.x + clip.width) / squareWidth);
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                double x = column * squareWidth;
+                if(x >= getWidth())
+                    break;
                 int lineX = (int)Math.round(x);
-                g.drawLine(lineX, 0, lineX, getHeight());
-                x += squareWidth;
+                g.drawLine(lineX, clip.y, lineX, clip.y + clip.height);
             }
 
             // Draw the horizontal lines
-            while (y < getHeight()) {
+            int firstRow = Math.max(1, (int)(clip.y / squareHeight));
+            int lastRow = (int)Math.ceil((clip.y + clip.height) / squareHeight);
+            for (int row = firstRow; row <= lastRow; row++) {
+                double y = row * squareHeight;
+                if(y >= getHeight())
+                    break;
                 int lineY = (int)Math.round(y);
-                g.drawLine(0, lineY, getWidth(), lineY);
-                y += squareHeight;
+                g.drawLine(clip.x, lineY, clip.x + clip.width, lineY);
             }
         }
 
         /**
-         * Draws the game pieces of the player and the computer.
-         * @param g the graphics context
+         * Draws the game pieces of the player and the computer inside the clip.
+         * @param g the graphics context, with its clip set
          * @param gameBoard the game board
          */
         private void drawPieces(Graphics g, ImmutableGameBoard gameBoard) {
             double squareWidth = getSquareWidth();
             double squareHeight = getSquareHeight();
             int margin = (int)Math.min(squareWidth, squareHeight) / 20;
+            Rectangle clip = g.getClipBounds();
+
+            // The squares next to the clip are included, because rounding can move a piece over the edge
+            int firstX = Math.max(0, (int)(clip.x / squareWidth) - 1);
+            int lastX = Math.min(gameWidth - 1, (int)((clip.x + clip.width) / squareWidth) + 1);
+            int firstY = Math.max(0, (int)(clip.y / squareHeight) - 1);
+            int lastY = Math.min(gameHeight - 1, (int)((clip.y + clip.height) / squareHeight) + 1);
 
-            for (int boardX = 0; boardX < gameWidth; boardX++) {
-                for (int boardY = 0; boardY < gameHeight; boardY++) {
+            for (int boardX = firstX; boardX <= lastX; boardX++) {
+                for (int boardY = firstY; boardY <= lastY; boardY++) {
                     byte content = gameBoard.getSquare(boardX, boardY);
                     if(content != TicTacToeGame.EMPTY) {
                         int x = (int)Math.round(boardX * squareWidth + margin);
@@ -265,6 +390,10 @@ public class TicTacToe extends JFrame {
         undoBtn.setEnabled(false);
         undoBtn.addActionListener(this::undoClicked);
 
+        redoBtn = new JButton("Redo");
+        redoBtn.setEnabled(false);
+        redoBtn.addActionListener(this::redoClicked);
+
         widthTextField = new JTextField(Integer.toString(gameWidth), 3);
         heightTextField = new JTextField(Integer.toString(gameHeight), 3);
         numToWinTextField = new JTextField(Integer.toString(numInARowToWin), 3);
@@ -285,12 +414,20 @@ public class TicTacToe extends JFrame {
         controlsPanel.add(numToWinTextField);
         controlsPanel.add(new JLabel("in a row wins."));
         controlsPanel.add(undoBtn);
+        controlsPanel.add(redoBtn);
 
         gamePanel = new GameBoardPanel();
         messageLabel = new JLabel(" ");
+        thinkingBar = new JProgressBar();
+        thinkingBar.setIndeterminate(true);
+        thinkingBar.setVisible(false);
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(messageLabel, BorderLayout.CENTER);
+        statusPanel.add(thinkingBar, BorderLayout.EAST);
 
         add(controlsPanel, BorderLayout.NORTH);
-        add(messageLabel, BorderLayout.SOUTH);
+        add(statusPanel, BorderLayout.SOUTH);
         add(gamePanel, BorderLayout.CENTER);
 
         createGame();
@@ -346,13 +483,105 @@ public class TicTacToe extends JFrame {
 
     /**
      * Event handler for the undo button click.
+     * 
+     * <p>While the computer is thinking, the move of the user is taken back instead.</p>
      * @param e the event
      */
     private void undoClicked(ActionEvent e) {
-        if(game.canUndo()) {
-            gameState = game.undo();
-            undoBtn.setEnabled(game.canUndo());
+        boolean thinking = pendingRound != null;
+        if(!thinking && !game.canUndo())
+            return;
+
+        // Either the pending move of the user or the moves of the previous round are taken back
+        boolean wasGameOver = gamePanel.isGameOver();
+        Coordinate playerMove = thinking ? pendingMove : game.getLastPlayerMove();
+        Coordinate computerMove = game.getLastComputerMove();
+
+        gameState = game.undo();
+        setThinking(null);
+        if(thinking)
+            setMessage("Your move was taken back.");
+        undoBtn.setEnabled(game.canUndo());
+        redoBtn.setEnabled(game.canRedo());
+
+        gamePanel.squaresChanged(playerMove, computerMove);
+        // The game over message covers the whole panel
+        if(wasGameOver)
             gamePanel.repaint();
+    }
+
+    /**
+     * Event handler for the redo button click.
+     * @param e the event
+     */
+    private void redoClicked(ActionEvent e) {
+        if(!game.canRedo())
+            return;
+
+        gameState = game.redo();
+        setComputerMoveMessage();
+        undoBtn.setEnabled(game.canUndo());
+        redoBtn.setEnabled(game.canRedo());
+
+        gamePanel.squaresChanged(game.getLastPlayerMove(), game.getLastComputerMove());
+        // The game over message covers the whole panel
+        if(gamePanel.isGameOver())
+            gamePanel.repaint();
+    }
+
+    /**
+     * Makes the move of the user and lets the computer think about its move in the background.
+     * @param move the move of the user
+     */
+    private void playARound(Coordinate move) {
+        CompletableFuture<GameState> round = game.playARoundAsync(move, computerExecutor, null);
+        if(round.isDone()) {
+            roundFinished(move, round.join());
+            return;
+        }
+
+        pendingMove = move;
+        setThinking(round);
+        gamePanel.squaresChanged(move);
+        // The round completes on the computer thread, but Swing components must only be used on this one
+        round.whenComplete((state, error) -> SwingUtilities.invokeLater(() -> {
+            if(round == pendingRound) {
+                setThinking(null);
+                roundFinished(move, round.join());
+            }
+        }));
+    }
+
+    /**
+     * Shows the result of a round.
+     * @param playerMove the move of the user
+     * @param state the state of the game after the round
+     */
+    private void roundFinished(Coordinate playerMove, GameState state) {
+        gameState = state;
+        if(gameState != GameState.INVALID_PLAYER_MOVE) {
+            setComputerMoveMessage();
+            undoBtn.setEnabled(true);
+            // A new move drops the moves that could have been redone
+            redoBtn.setEnabled(false);
+            gamePanel.squaresChanged(playerMove, game.getLastComputerMove());
+            // The game over message covers the whole panel
+            if(gamePanel.isGameOver())
+                gamePanel.repaint();
+        }
+    }
+
+    /**
+     * Shows or hides the thinking indicator.
+     * @param round the round whose computer move is being waited for, or null if there is none
+     */
+    private void setThinking(CompletableFuture<GameState> round) {
+        pendingRound = round;
+        thinkingBar.setVisible(round != null);
+        if(round != null) {
+            setMessage("The computer is thinking...");
+            undoBtn.setEnabled(true);
+            redoBtn.setEnabled(false);
         }
     }
 
@@ -360,10 +589,13 @@ public class TicTacToe extends JFrame {
      * Initializes a new game.
      */
     private void newGame() {
+        game.cancelRound();
+        setThinking(null);
         validateGameSettings();
         createGame();
         undoBtn.setEnabled(false);
-        gamePanel.repaint();
+        redoBtn.setEnabled(false);
+        gamePanel.redrawBoard();
     }
 
     /**
@@ -0,0 +1,342 @@
+package tictactoe.server;
+
+import tictactoe.SnapshotFile;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A TCP server where many clients can play Tic-Tac-Toe against computer players at the same time.
+ *
+ * <p>Each connection is a {@code GameSession} with its own game, served by its own thread,
+ * and the commands are sent as lines of text as described in {@code Protocol}.
+ * The number of sessions is limited, and so is the size of their game boards,
+ * so the memory used by the server is bounded. Sessions that receive no commands
+ * within the idle timeout are closed.</p>
+ *
+ * <p>The games can be saved in a {@code SnapshotFile}, one slot per session, after every
+ * command that changes them. When the connection of a session is lost, or the server
+ * is stopped and started again, the client can resume the session with its number
+ * and token within the idle timeout.</p>
+ *
+ * @author Tapio Malmberg
+ */
+public class GameServer implements Closeable {
+    /**
+     * The default port of the server.
+     */
+    public static final int DEFAULT_PORT = 7878;
+
+    /**
+     * The default maximum number of sessions at the same time.
+     */
+    public static final int DEFAULT_MAX_SESSIONS = 4096;
+
+    /**
+     * The default time in milliseconds after which an idle session is closed.
+     */
+    public static final int DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    /**
+     * The default time limit for a move of a searching computer player in milliseconds.
+     */
+    public static final long DEFAULT_SEARCH_TIME_LIMIT = 200;
+
+    /**
+     * The size of a slot of the snapshot file in bytes, which fits the game of any session.
+     */
+    public static final int SNAPSHOT_SLOT_SIZE = GameSession.SNAPSHOT_SLOT_SIZE;
+
+    /**
+     * The stack size requested for the session threads. A session does not need
+     * a deep stack, and a small one lets the server have more threads.
+     */
+    private static final long SESSION_STACK_SIZE = 256 * 1024;
+
+    /**
+     * Accepts the connections.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Runs the sessions, one thread per session.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The permits for new sessions.
+     */
+    private final Semaphore sessionPermits;
+
+    /**
+     * The connections of the open sessions, closed when the server is closed.
+     */
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The time in milliseconds after which an idle session is closed.
+     */
+    private final int idleTimeout;
+
+    /**
+     * The time limit for a move of a searching computer player in milliseconds.
+     */
+    private final long searchTimeLimit;
+
+    /**
+     * The slots of the snapshot file the games are saved in, or null if the games are not saved.
+     */
+    private final SessionSlots slots;
+
+    /**
+     * Creates a new GameServer with the default settings.
+     * @param port the port to listen to, or 0 for any free port
+     * @throws IOException if the port cannot be listened to
+     */
+    public GameServer(int port) throws IOException {
+        this(port, DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_TIMEOUT, DEFAULT_SEARCH_TIME_LIMIT);
+    }
+
+    /**
+     * Creates a new GameServer.
+     * @param port the port to listen to, or 0 for any free port
+     * @param maxSessions the maximum number of sessions at the same time, must be greater than zero
+     * @param idleTimeout the time in milliseconds after which an idle session is closed, must be greater than zero
+     * @param searchTimeLimit the time limit for a move of a searching computer player in milliseconds,
+     *                        must be greater than zero
+     * @throws IOException if the port cannot be listened to
+     */
+    public GameServer(int port, int maxSessions, int idleTimeout, long searchTimeLimit) throws IOException {
+        this(port, maxSessions, idleTimeout, searchTimeLimit, null);
+    }
+
+    /**
+     * Creates a new GameServer that saves the games in a snapshot file.
+     *
+     * <p>The games already in the file can be resumed within the idle timeout.
+     * The file should have at least {@code maxSessions} slots of {@code SNAPSHOT_SLOT_SIZE} bytes,
+     * as opened by {@code openSnapshotFile}, since a connection is refused when no slot is free.
+     * The server does not close the file.</p>
+     * @param port the port to listen to, or 0 for any free port
+     * @param maxSessions the maximum number of sessions at the same time, must be greater than zero
+     * @param idleTimeout the time in milliseconds after which an idle session is closed, must be greater than zero
+     * @param searchTimeLimit the time limit for a move of a searching computer player in milliseconds,
+     *                        must be greater than zero
+     * @param snapshots the file the games are saved in, or null if the games are not saved
+     * @throws IllegalArgumentException if the slots of the snapshot file are smaller than {@code SNAPSHOT_SLOT_SIZE}
+     * @throws IOException if the port cannot be listened to
+     */
+    public GameServer(int port, int maxSessions, int idleTimeout, long searchTimeLimit, SnapshotFile snapshots) throws IOException {
+        if(maxSessions <= 0)
+            throw new IllegalArgumentException("The maximum number of sessions must be greater than zero.");
+        if(snapshots != null && snapshots.getSlotSize() < SNAPSHOT_SLOT_SIZE)
+            throw new IllegalArgumentException("The slots of the snapshot file must be at least " + SNAPSHOT_SLOT_SIZE + " bytes.");
+        if(idleTimeout <= 0)
+            throw new IllegalArgumentException("The idle timeout must be greater than zero.");
+        if(searchTimeLimit <= 0)
+            throw new IllegalArgumentException("The time limit must be greater than zero.");
+
+        this.serverSocket = new ServerSocket(port);
+        this.executor = Executors.newCachedThreadPool(createThreadFactory());
+        this.sessionPermits = new Semaphore(maxSessions);
+        this.idleTimeout = idleTimeout;
+        this.searchTimeLimit = searchTimeLimit;
+        this.slots = snapshots != null ? new SessionSlots(snapshots, idleTimeout) : null;
+    }
+
+    /**
+     * Memory-maps a snapshot file with one slot of {@code SNAPSHOT_SLOT_SIZE} bytes per session,
+     * creating it if it does not exist.
+     * @param file the path of the file
+     * @param maxSessions the maximum number of sessions of the server
+     * @return the snapshot file, which the caller closes after the server
+     * @throws IOException if the file cannot be opened or it has different slots
+     */
+    public static SnapshotFile openSnapshotFile(Path file, int maxSessions) throws IOException {
+        return SnapshotFile.open(file, maxSessions, SNAPSHOT_SLOT_SIZE);
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     *
+     * <p>Connections that exceed the maximum number of sessions
+     * are answered with {@code BUSY} and closed.</p>
+     * @throws IOException if accepting a connection fails while the server is open
+     */
+    public void serve() throws IOException {
+        while(!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if(serverSocket.isClosed())
+                    return;
+                throw e;
+            }
+
+            if(!sessionPermits.tryAcquire()) {
+                refuse(socket);
+                continue;
+            }
+
+            int slot = -1;
+            if(slots != null && (slot = slots.acquire()) < 0) {
+                sessionPermits.release();
+                refuse(socket);
+                continue;
+            }
+
+            try {
+                socket.setSoTimeout(idleTimeout);
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                executor.execute(new GameSession(this, socket, slot));
+            } catch (IOException | RejectedExecutionException e) {
+                if(slot >= 0)
+                    slots.release(slot);
+                sessionClosed(socket);
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Starts accepting connections in a new thread.
+     * @return the thread that accepts the connections
+     */
+    public Thread start() {
+        Thread thread = new Thread(() -> {
+            try {
+                serve();
+            } catch (IOException e) {
+                System.err.println("The game server stopped: " + e.getMessage());
+            }
+        }, "tictactoe-server");
+        thread.start();
+
+        return thread;
+    }
+
+    /**
+     * Stops accepting connections and closes every open session.
+     * @throws IOException if closing the server socket fails
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdown();
+        for (Socket socket : openSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The session ends anyway
+            }
+        }
+    }
+
+    /**
+     * Returns the port the server listens to.
+     * @return the local port of the server
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of open sessions.
+     * @return the number of sessions
+     */
+    public int getSessionCount() {
+        return openSockets.size();
+    }
+
+    /**
+     * Returns the number of saved sessions that have not been resumed.
+     * @return the number of sessions that can be resumed, or zero if the games are not saved
+     */
+    public int getResumableSessionCount() {
+        return slots != null ? slots.getNumParked() : 0;
+    }
+
+    /**
+     * Returns the slots of the snapshot file.
+     * @return the slots, or null if the games are not saved
+     */
+    SessionSlots getSlots() {
+        return slots;
+    }
+
+    /**
+     * Returns the time limit for a move of a searching computer player.
+     * @return the time limit in milliseconds
+     */
+    long getSearchTimeLimit() {
+        return searchTimeLimit;
+    }
+
+    /**
+     * Called by a session when it has ended.
+     * @param socket the connection of the session
+     */
+    void sessionClosed(Socket socket) {
+        if(openSockets.remove(socket))
+            sessionPermits.release();
+    }
+
+    /**
+     * Tells the client that the server is busy and closes the connection.
+     * @param socket the connection to refuse
+     */
+    private static void refuse(Socket socket) {
+        try (Socket refused = socket) {
+            OutputStream out = refused.getOutputStream();
+            out.write((Protocol.BUSY + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        } catch (IOException e) {
+            // The client has gone already
+        }
+    }
+
+    /**
+     * Creates the factory of the session threads.
+     *
+     * <p>Java 17 has no virtual threads, so the sessions are run on daemon
+     * platform threads with a small stack.</p>
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(null, task, "tictactoe-session-" + threadNumber.incrementAndGet(), SESSION_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Main program entry point.
+     * @param args the port, optionally followed by the maximum number of sessions,
+     *             the idle timeout in seconds and the snapshot file the games are saved in
+     * @throws IOException if the server cannot be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SESSIONS;
+        int idleTimeout = args.length > 2 ? Integer.parseInt(args[2]) * 1000 : DEFAULT_IDLE_TIMEOUT;
+        // The operating system writes the mapped file even if the server is killed, so it is never closed
+        SnapshotFile snapshots = args.length > 3
+            ? openSnapshotFile(Paths.get(args[3]), maxSessions)
+            : null;
+
+        GameServer server = new GameServer(port, maxSessions, idleTimeout, DEFAULT_SEARCH_TIME_LIMIT, snapshots);
+        if(snapshots != null)
+            System.out.println(server.getResumableSessionCount() + " saved sessions can be resumed.");
+        System.out.println("Listening on port " + server.getPort() + ".");
+        server.serve();
+    }
+}
@@ -0,0 +1,438 @@
+package tictactoe.server;
+
+import tictactoe.*;
+import java.io.*;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * A connection to the {@code GameServer}, where one client plays
+ * Tic-Tac-Toe against a computer player.
+ *
+ * <p>The commands of the client are read and answered one line at a time,
+ * as described in {@code Protocol}. If the server saves the games, the session
+ * has a slot in the snapshot file, and the number of the slot is the number of
+ * the session. The session is resumed with its number and the random token of its
+ * slot. The game is saved after every command that can change it.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class GameSession implements Runnable {
+    /**
+     * The maximum width allowed for the game board.
+     */
+    public static final int MAX_WIDTH = 80;
+
+    /**
+     * The maximum height allowed for the game board.
+     */
+    public static final int MAX_HEIGHT = 30;
+
+    /**
+     * The maximum length of a command line. Longer lines end the session.
+     */
+    private static final int MAX_LINE_LENGTH = 64;
+
+    /**
+     * The number of entries in the transposition table of a searching computer player.
+     * Kept small, because every session has its own table.
+     */
+    private static final int TRANSPOSITION_TABLE_SIZE = 1 << 12;
+
+    /**
+     * The number of bytes reserved for the name of the computer player in a snapshot.
+     */
+    private static final int MAX_COMPUTER_NAME_LENGTH = 16;
+
+    /**
+     * The size of a slot in the snapshot file, which fits every game of the largest game board.
+     */
+    public static final int SNAPSHOT_SLOT_SIZE = SnapshotFile.SLOT_HEADER_SIZE + 1 + SessionSlots.LABEL_PREFIX_LENGTH
+        + MAX_COMPUTER_NAME_LENGTH + MoveLog.getMaxRecordSize(MAX_WIDTH, MAX_HEIGHT);
+
+    /**
+     * The server that accepted the connection.
+     */
+    private final GameServer server;
+
+    /**
+     * The connection to the client.
+     */
+    private final Socket socket;
+
+    /**
+     * The slots of the snapshot file, or null if the games are not saved.
+     */
+    private final SessionSlots slots;
+
+    /**
+     * The slot of the snapshot file the game is saved in, or -1 if the games are not saved.
+     */
+    private int slot;
+
+    /**
+     * The game, or null if no game has been started.
+     */
+    private TicTacToeGame game;
+
+    /**
+     * The name of the computer player of the game, saved with the game.
+     */
+    private String computerName;
+
+    /**
+     * Set when the session ends in a way that does not let the client resume it.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new GameSession.
+     * @param server the server that accepted the connection
+     * @param socket the connection to the client
+     * @param slot the slot of the snapshot file the game is saved in, or -1 if the games are not saved
+     */
+    GameSession(GameServer server, Socket socket, int slot) {
+        this.server = server;
+        this.socket = socket;
+        this.slots = server.getSlots();
+        this.slot = slot;
+    }
+
+    /**
+     * Answers the commands of the client until the client quits,
+     * the connection is lost or the session has been idle for too long.
+     */
+    @Override
+    public void run() {
+        try (Socket socket = this.socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+
+            try {
+                String line;
+                while((line = readLine(in)) != null) {
+                    String reply = processCommand(line);
+                    if(reply.equals(Protocol.BYE))
+                        finished = true;
+                    writeLine(out, reply);
+                    if(finished)
+                        break;
+                }
+            } catch (SocketTimeoutException e) {
+                finished = true;
+                writeLine(out, Protocol.TIMEOUT);
+            } catch (ProtocolException e) {
+                writeLine(out, Protocol.ERROR + " " + e.getMessage());
+            }
+        } catch (IOException e) {
+            // The connection was lost, nothing to do but to end the session
+        } finally {
+            releaseSlot();
+            server.sessionClosed(socket);
+        }
+    }
+
+    /**
+     * Frees the slot of the session, or parks it if the client can still resume the session.
+     */
+    private void releaseSlot() {
+        if(slot < 0)
+            return;
+
+        // A lost connection or a stopped server is not the choice of the client
+        if(game != null && !finished)
+            slots.park(slot);
+        else
+            slots.release(slot);
+    }
+
+    /**
+     * Executes a command and returns the reply.
+     * @param line the command line sent by the client
+     * @return the reply line
+     */
+    private String processCommand(String line) {
+        String[] words = line.trim().split(" +");
+        String command = words[0].toUpperCase(Locale.ROOT);
+
+        try {
+            if(command.equals(Protocol.QUIT))
+                return Protocol.BYE;
+            if(command.equals(Protocol.NEW))
+                return saved(newGame(words));
+            if(command.equals(Protocol.SESSION))
+                return getSessionReply();
+            if(command.equals(Protocol.RESUME))
+                return resume(words);
+            if(game == null)
+                return Protocol.ERROR + " No game has been started.";
+
+            switch(command) {
+                case Protocol.MOVE:
+                    checkArguments(words, 2);
+                    Coordinate move = Coordinate.of(Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+                    if(game.getState() != GameState.READY_FOR_NEXT_MOVE)
+                        return Protocol.ERROR + " The game has ended.";
+                    return saved(getStateReply(game.playARound(move)));
+                case Protocol.UNDO:
+                    if(!game.canUndo())
+                        return Protocol.ERROR + " Nothing to undo.";
+                    return saved(getStateReply(game.undo()));
+                case Protocol.REDO:
+                    if(!game.canRedo())
+                        return Protocol.ERROR + " Nothing to redo.";
+                    return saved(getStateReply(game.redo()));
+                case Protocol.RESET:
+                    checkArguments(words, 1);
+                    game.reset(parseBoolean(words[1]));
+                    return saved(getStateReply(GameState.READY_FOR_NEXT_MOVE));
+                case Protocol.BOARD:
+                    return getBoardReply();
+                default:
+                    return Protocol.ERROR + " Unknown command.";
+            }
+        } catch (NumberFormatException e) {
+            return Protocol.ERROR + " Expected a number.";
+        } catch (IllegalArgumentException e) {
+            return Protocol.ERROR + " " + e.getMessage();
+        }
+    }
+
+    /**
+     * Starts a new game with the settings given in a {@code NEW} command.
+     * @param words the words of the command
+     * @return the reply line
+     * @throws IllegalArgumentException if the settings are not valid
+     */
+    private String newGame(String[] words) {
+        checkArguments(words, 5);
+        int width = parseInRange(words[1], "Width", TicTacToeGame.MIN_WIDTH, MAX_WIDTH);
+        int height = parseInRange(words[2], "Height", TicTacToeGame.MIN_HEIGHT, MAX_HEIGHT);
+        int minInARow = TicTacToeGame.isLargeGameBoard(width, height)
+            ? TicTacToeGame.MIN_IN_A_ROW_TO_WIN_LARGE
+            : TicTacToeGame.MIN_IN_A_ROW_TO_WIN_SMALL;
+        int numInARowToWin = parseInRange(words[3], "In a row", minInARow, Math.max(width, height));
+        ComputerPlayer computer = createComputer(words[4]);
+        boolean computerStarts = parseBoolean(words[5]);
+
+        game = new TicTacToeGame(width, height, numInARowToWin, computer, computerStarts);
+        computerName = words[4].toLowerCase(Locale.ROOT);
+        return getStateReply(GameState.READY_FOR_NEXT_MOVE);
+    }
+
+    /**
+     * Returns the {@code SESSION} reply.
+     * @return the number and the token of the session, or an error if the games are not saved
+     */
+    private String getSessionReply() {
+        if(slot < 0)
+            return Protocol.ERROR + " Sessions are not saved.";
+        return Protocol.SESSION + " " + slot + " " + SessionSlots.formatToken(slots.getToken(slot));
+    }
+
+    /**
+     * Continues the game of a session whose connection was lost, as given in a {@code RESUME} command.
+     * The game of this session is discarded.
+     * @param words the words of the command
+     * @return the reply line
+     * @throws IllegalArgumentException if the arguments are not valid
+     */
+    private String resume(String[] words) {
+        checkArguments(words, 2);
+        if(slot < 0)
+            return Protocol.ERROR + " Sessions are not saved.";
+
+        int resumed = Integer.parseInt(words[1]);
+        if(!slots.claim(resumed, SessionSlots.parseToken(words[2])))
+            return Protocol.ERROR + " No session " + resumed + " with that token to resume.";
+
+        TicTacToeGame resumedGame;
+        String resumedComputer;
+        try {
+            SnapshotFile.Snapshot snapshot = slots.load(resumed);
+            resumedComputer = SessionSlots.getComputerName(snapshot);
+            resumedGame = new TicTacToeGame(snapshot.getMoveLog(), createComputer(resumedComputer));
+        } catch (IOException | IllegalArgumentException e) {
+            // The saved game is kept, so that it is not lost to a bug in restoring it
+            slots.unclaim(resumed);
+            System.err.println("Session " + resumed + " could not be restored: " + e.getMessage());
+            return Protocol.ERROR + " Session " + resumed + " could not be restored.";
+        }
+
+        slots.release(slot);
+        slot = resumed;
+        game = resumedGame;
+        computerName = resumedComputer;
+        return saved(getStateReply(game.getState()));
+    }
+
+    /**
+     * Saves the game into the slot of the session, if the games are saved.
+     * @param reply the reply to the command that changed the game
+     * @return the reply
+     */
+    private String saved(String reply) {
+        if(slot >= 0)
+            slots.save(slot, computerName, game);
+        return reply;
+    }
+
+    /**
+     * Creates the computer player with the given name.
+     * @param name random, smart or search
+     * @return a new computer player
+     * @throws IllegalArgumentException if the name is not known
+     */
+    private ComputerPlayer createComputer(String name) {
+        switch(name.toLowerCase(Locale.ROOT)) {
+            case "random":
+                return new RandomComputer();
+            case "smart":
+                return new SmartComputer();
+            case "search":
+                return new AlphaBetaComputer(server.getSearchTimeLimit(), AlphaBetaComputer.DEFAULT_MAX_MOVES,
+                    new TranspositionTable(TRANSPOSITION_TABLE_SIZE, TranspositionTable.ReplacementScheme.DEPTH_PREFERRED));
+            default:
+                throw new IllegalArgumentException("Unknown computer: " + name);
+        }
+    }
+
+    /**
+     * Returns the {@code STATE} reply for the given state of the game.
+     * @param state the state of the game
+     * @return the state and the latest move of the computer, if it made one
+     */
+    private String getStateReply(GameState state) {
+        Coordinate computerMove = state == GameState.PLAYER_WON ? null : getLastComputerMove();
+        if(computerMove == null)
+            return Protocol.STATE + " " + state;
+
+        return Protocol.STATE + " " + state + " " + computerMove.x + " " + computerMove.y;
+    }
+
+    /**
+     * Returns the latest move of the computer.
+     *
+     * <p>The first move of the game is not in the undo history, so if the
+     * computer made it, it is the only piece of the computer on the game board.</p>
+     * @return the latest move of the computer, or null if it has not made a move
+     */
+    private Coordinate getLastComputerMove() {
+        if(game.canUndo())
+            return game.getLastComputerMove();
+
+        ImmutableGameBoard gameBoard = game.getGameBoard();
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if(gameBoard.getSquare(x, y) == TicTacToeGame.COMPUTER)
+                    return Coordinate.of(x, y);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the {@code BOARD} reply.
+     * @return the size and the rows of the game board
+     */
+    private String getBoardReply() {
+        ImmutableGameBoard gameBoard = game.getGameBoard();
+        StringBuilder reply = new StringBuilder(Protocol.BOARD);
+        reply.append(' ').append(gameBoard.getWidth()).append(' ').append(gameBoard.getHeight()).append(' ');
+
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            if(y > 0)
+                reply.append('/');
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                switch(gameBoard.getSquare(x, y)) {
+                    case TicTacToeGame.PLAYER:
+                        reply.append('X');
+                        break;
+                    case TicTacToeGame.COMPUTER:
+                        reply.append('O');
+                        break;
+                    default:
+                        reply.append('.');
+                }
+            }
+        }
+
+        return reply.toString();
+    }
+
+    /**
+     * Checks that a command has the given number of arguments.
+     * @param words the words of the command
+     * @param numArguments the number of arguments after the command
+     * @throws IllegalArgumentException if the number of arguments is wrong
+     */
+    private static void checkArguments(String[] words, int numArguments) {
+        if(words.length != numArguments + 1)
+            throw new IllegalArgumentException("Expected " + numArguments + " arguments.");
+    }
+
+    /**
+     * Parses an integer that must be within the given range.
+     * @param word the word to parse
+     * @param name the name of the value, used in the error message
+     * @param min the inclusive minimum value
+     * @param max the inclusive maximum value
+     * @return the parsed integer
+     * @throws IllegalArgumentException if the word is not an integer in the range
+     */
+    private static int parseInRange(String word, String name, int min, int max) {
+        int value = Integer.parseInt(word);
+        if(value < min || value > max)
+            throw new IllegalArgumentException(name + " must be in the range " + min + "-" + max + ".");
+
+        return value;
+    }
+
+    /**
+     * Parses 1 as true and 0 as false.
+     * @param word the word to parse
+     * @return the parsed value
+     * @throws IllegalArgumentException if the word is not 0 or 1
+     */
+    private static boolean parseBoolean(String word) {
+        return parseInRange(word, "The first player", 0, 1) == 1;
+    }
+
+    /**
+     * Reads a line of ASCII text, without the line terminator.
+     * @param in the stream to read from
+     * @return the line, or null if the stream has ended
+     * @throws ProtocolException if the line is longer than {@code MAX_LINE_LENGTH}
+     * @throws IOException if reading fails
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while((c = in.read()) != '\n') {
+            if(c == -1)
+                return line.length() == 0 ? null : line.toString();
+            if(line.length() == MAX_LINE_LENGTH)
+                throw new ProtocolException("Line too long.");
+            if(c != '\r')
+                line.append((char)c);
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * Writes a line and sends it to the client.
+     * @param out the writer to write to
+     * @param line the line to write, without the line terminator
+     * @throws IOException if writing fails
+     */
+    private static void writeLine(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+}
@@ -0,0 +1,102 @@
+package tictactoe.server;
+
+/**
+ * Contains the commands and replies of the line-based protocol of the {@code GameServer}.
+ *
+ * <p>Each command and reply is a single line of words separated by spaces.
+ * Coordinates are zero-based, and every command gets exactly one reply line.</p>
+ *
+ * <pre>
+ * NEW width height inARow computer first   computer: random, smart or search
+ *                                          first: 1 if the computer starts, 0 otherwise
+ * MOVE x y                                 plays a round
+ * UNDO                                     undoes the previous round
+ * REDO                                     redoes the next undone round
+ * RESET first                              starts a new game with the same settings
+ * BOARD                                    returns the game board
+ * SESSION                                  returns the number and the token of the session
+ * RESUME session token                     continues a saved session whose connection was lost
+ * QUIT                                     ends the session
+ * </pre>
+ *
+ * <p>{@code NEW}, {@code MOVE}, {@code UNDO}, {@code REDO}, {@code RESET} and {@code RESUME} are answered with
+ * {@code STATE}, followed by a {@code GameState} and the latest move of the computer,
+ * if it made one. {@code BOARD} is answered with the width, the height and the rows
+ * of the game board separated by slashes, where {@code .} is an empty square,
+ * {@code X} is a piece of the player and {@code O} is a piece of the computer.
+ * {@code SESSION} is answered with {@code SESSION}, the number and the token, if the server saves the games.
+ * The token is 16 hexadecimal digits, and only a client that knows it can resume the session.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class Protocol {
+    /**
+     * The command for starting a new game.
+     */
+    public static final String NEW = "NEW";
+
+    /**
+     * The command for making a move.
+     */
+    public static final String MOVE = "MOVE";
+
+    /**
+     * The command for undoing the previous round.
+     */
+    public static final String UNDO = "UNDO";
+
+    /**
+     * The command for redoing the next undone round.
+     */
+    public static final String REDO = "REDO";
+
+    /**
+     * The command for resetting the game.
+     */
+    public static final String RESET = "RESET";
+
+    /**
+     * The command for getting the game board.
+     */
+    public static final String BOARD = "BOARD";
+
+    /**
+     * The command for getting the number and the token of the session.
+     */
+    public static final String SESSION = "SESSION";
+
+    /**
+     * The command for continuing a saved session.
+     */
+    public static final String RESUME = "RESUME";
+
+    /**
+     * The command for ending the session.
+     */
+    public static final String QUIT = "QUIT";
+
+    /**
+     * The reply that contains the state of the game.
+     */
+    public static final String STATE = "STATE";
+
+    /**
+     * The reply to {@code QUIT}.
+     */
+    public static final String BYE = "BYE";
+
+    /**
+     * The reply to an invalid command, followed by a message.
+     */
+    public static final String ERROR = "ERROR";
+
+    /**
+     * Sent when the session is closed because it has been idle for too long.
+     */
+    public static final String TIMEOUT = "TIMEOUT";
+
+    /**
+     * Sent when a connection is refused because the server has too many sessions.
+     */
+    public static final String BUSY = "BUSY";
+}
@@ -0,0 +1,268 @@
+package tictactoe.server;
+
+import tictactoe.*;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of which slots of a {@code SnapshotFile} are used by the sessions of a {@code GameServer}.
+ *
+ * <p>A slot is either free, used by an open session, or parked. A parked slot has the
+ * game of a session whose connection was lost, or of a session that was open when the
+ * server stopped, and it waits for a client to resume the session. Parked slots that
+ * have not been resumed within the park time are freed when the free slots run out.</p>
+ *
+ * <p>Each session gets a random token with its slot, and a parked slot can only be claimed
+ * with its token, so that a client cannot take over the games of others by guessing the
+ * small slot numbers. The token is saved in the label of the snapshot, before the name
+ * of the computer player.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class SessionSlots {
+    /**
+     * The length of a token in the label of a snapshot, in hexadecimal digits.
+     */
+    static final int TOKEN_LENGTH = 16;
+
+    /**
+     * The length of the token and the space after it in the label of a snapshot.
+     */
+    static final int LABEL_PREFIX_LENGTH = TOKEN_LENGTH + 1;
+
+    /**
+     * The file the games are saved in.
+     */
+    private final SnapshotFile file;
+
+    /**
+     * Generates the tokens.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The time a parked slot waits for its session to be resumed, in nanoseconds.
+     */
+    private final long parkNanos;
+
+    /**
+     * The free slots, used as a stack. Guarded by this.
+     */
+    private final int[] freeSlots;
+
+    /**
+     * The number of free slots. Guarded by this.
+     */
+    private int numFree;
+
+    /**
+     * Set for the parked slots. Guarded by this.
+     */
+    private final boolean[] parked;
+
+    /**
+     * The time until which each parked slot waits, as given by {@code System.nanoTime}. Guarded by this.
+     */
+    private final long[] parkedUntil;
+
+    /**
+     * The token of each used or parked slot. Guarded by this.
+     */
+    private final long[] tokens;
+
+    /**
+     * Creates a new SessionSlots and parks every slot that has a valid snapshot.
+     * Corrupted slots and slots saved without a token are emptied.
+     * @param file the file the games are saved in
+     * @param parkTime the time a parked slot waits for its session to be resumed, in milliseconds
+     */
+    SessionSlots(SnapshotFile file, long parkTime) {
+        this.file = file;
+        this.parkNanos = TimeUnit.MILLISECONDS.toNanos(parkTime);
+        this.freeSlots = new int[file.getNumSlots()];
+        this.parked = new boolean[file.getNumSlots()];
+        this.parkedUntil = new long[file.getNumSlots()];
+        this.tokens = new long[file.getNumSlots()];
+
+        // The slots are pushed in reverse, so the first slots are used first
+        for (int slot = file.getNumSlots() - 1; slot >= 0; slot--) {
+            SnapshotFile.Snapshot snapshot;
+            try {
+                snapshot = file.load(slot);
+                if(snapshot != null)
+                    tokens[slot] = readToken(snapshot.getLabel());
+            } catch (IOException e) {
+                file.clear(slot);
+                snapshot = null;
+            }
+
+            if(snapshot != null)
+                park(slot);
+            else
+                freeSlots[numFree++] = slot;
+        }
+    }
+
+    /**
+     * Takes a free slot for a new session and gives it a new token.
+     * @return the slot, or -1 if every slot is in use
+     */
+    synchronized int acquire() {
+        if(numFree == 0)
+            freeExpired();
+        if(numFree == 0)
+            return -1;
+
+        int slot = freeSlots[--numFree];
+        tokens[slot] = random.nextLong();
+        return slot;
+    }
+
+    /**
+     * Returns the token that is needed to resume the session of a slot.
+     * @param slot the slot of the session
+     * @return the token
+     */
+    synchronized long getToken(int slot) {
+        return tokens[slot];
+    }
+
+    /**
+     * Takes a parked slot for the session that resumes it.
+     * @param slot the slot
+     * @param token the token of the slot
+     * @return false if the slot is not parked or the token is wrong
+     */
+    synchronized boolean claim(int slot, long token) {
+        if(slot < 0 || slot >= parked.length || !parked[slot] || tokens[slot] != token)
+            return false;
+
+        parked[slot] = false;
+        return true;
+    }
+
+    /**
+     * Parks a claimed slot again when its game could not be restored, keeping its game
+     * and the time until which it waits.
+     * @param slot the slot
+     */
+    synchronized void unclaim(int slot) {
+        parked[slot] = true;
+    }
+
+    /**
+     * Parks the slot of a session, keeping its game.
+     * @param slot the slot
+     */
+    synchronized void park(int slot) {
+        parked[slot] = true;
+        parkedUntil[slot] = System.nanoTime() + parkNanos;
+    }
+
+    /**
+     * Empties the slot of a session and frees it.
+     * @param slot the slot
+     */
+    synchronized void release(int slot) {
+        file.clear(slot);
+        freeSlots[numFree++] = slot;
+    }
+
+    /**
+     * Returns the number of parked slots.
+     * @return the number of sessions that can be resumed
+     */
+    synchronized int getNumParked() {
+        int count = 0;
+        for (boolean p : parked) {
+            if(p)
+                ++count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Saves the game of a session into its slot.
+     * @param slot the slot of the session
+     * @param computer the name of the computer player
+     * @param game the game
+     */
+    void save(int slot, String computer, TicTacToeGame game) {
+        file.save(slot, formatToken(getToken(slot)) + " " + computer, game.getMoveLog());
+    }
+
+    /**
+     * Loads the game of a claimed slot.
+     * @param slot the slot
+     * @return the snapshot of the game
+     * @throws IOException if the slot is empty or corrupted
+     */
+    SnapshotFile.Snapshot load(int slot) throws IOException {
+        SnapshotFile.Snapshot snapshot = file.load(slot);
+        if(snapshot == null)
+            throw new IOException("Snapshot slot " + slot + " is empty.");
+
+        return snapshot;
+    }
+
+    /**
+     * Returns the name of the computer player saved in a snapshot.
+     * @param snapshot a snapshot saved by {@code save}
+     * @return the name of the computer player
+     */
+    static String getComputerName(SnapshotFile.Snapshot snapshot) {
+        return snapshot.getLabel().substring(LABEL_PREFIX_LENGTH);
+    }
+
+    /**
+     * Formats a token as it is given to the client.
+     * @param token the token
+     * @return the token in hexadecimal, {@code TOKEN_LENGTH} digits
+     */
+    static String formatToken(long token) {
+        return String.format("%016x", token);
+    }
+
+    /**
+     * Parses a token given by the client.
+     * @param word the token in hexadecimal
+     * @return the token
+     * @throws NumberFormatException if the word is not a token
+     */
+    static long parseToken(String word) {
+        if(word.length() != TOKEN_LENGTH)
+            throw new NumberFormatException("The token must have " + TOKEN_LENGTH + " digits.");
+        return Long.parseUnsignedLong(word, 16);
+    }
+
+    /**
+     * Reads the token from the label of a snapshot.
+     * @param label the label of the snapshot
+     * @return the token
+     * @throws IOException if the label does not start with a token
+     */
+    private static long readToken(String label) throws IOException {
+        try {
+            if(label.length() < LABEL_PREFIX_LENGTH || label.charAt(TOKEN_LENGTH) != ' ')
+                throw new NumberFormatException();
+            return parseToken(label.substring(0, TOKEN_LENGTH));
+        } catch (NumberFormatException e) {
+            throw new IOException("The snapshot has no token.", e);
+        }
+    }
+
+    /**
+     * Frees the parked slots whose sessions have not been resumed in time.
+     */
+    private void freeExpired() {
+        long now = System.nanoTime();
+        for (int slot = 0; slot < parked.length; slot++) {
+            if(parked[slot] && now - parkedUntil[slot] > 0) {
+                parked[slot] = false;
+                release(slot);
+            }
+        }
+    }
+}
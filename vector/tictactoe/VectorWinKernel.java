@@ -0,0 +1,66 @@
+package tictactoe;
+
+import jdk.incubator.vector.*;
+
+/**
+ * Checks the rows of many game boards with the Vector API, as many boards at a time
+ * as there are {@code long} lanes in the preferred vector species.
+ *
+ * <p>This class is only compiled by {@code ./make.sh vector} and {@code ./make.sh bench},
+ * and only loaded when the JVM runs with {@code --add-modules jdk.incubator.vector}.</p>
+ *
+ * @author Tapio Malmberg
+ */
+class VectorWinKernel implements WinKernel {
+    /**
+     * The vector species used for the boards.
+     */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * Creates a new VectorWinKernel.
+     * @throws IllegalStateException if the preferred species has only one lane
+     */
+    public VectorWinKernel() {
+        if(SPECIES.length() < 2)
+            throw new IllegalStateException("The preferred vector species has only one lane.");
+    }
+
+    /**
+     * Checks for each board whether a row of pieces goes through the given square.
+     * @param pieces the pieces of the player on each board
+     * @param squares the bit index of the square on each board
+     * @param count the number of boards to check, from the start of the arrays
+     * @param windows the windows, indexed by (direction * numSquares + square)
+     * @param numSquares the number of squares on a board
+     * @param shifts the shift of each direction
+     * @param numToWin the number of pieces in a row needed to win
+     * @param results set to true for the boards that have a row through the square, and false for the others
+     */
+    @Override
+    public void hasWon(long[] pieces, int[] squares, int count, long[] windows, int numSquares,
+                       int[] shifts, int numToWin, boolean[] results) {
+        int vectorCount = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < vectorCount; i += SPECIES.length()) {
+            LongVector board = LongVector.fromArray(SPECIES, pieces, i);
+            LongVector won = LongVector.zero(SPECIES);
+            for (int d = 0; d < shifts.length; d++) {
+                // Doubles the length of the rows that start at each bit until it reaches numToWin
+                LongVector rowStarts = board;
+                for (int length = 1; length < numToWin; ) {
+                    int step = Math.min(length, numToWin - length);
+                    rowStarts = rowStarts.and(rowStarts.lanewise(VectorOperators.LSHR, step * shifts[d]));
+                    length += step;
+                }
+                LongVector window = LongVector.fromArray(SPECIES, windows, d * numSquares, squares, i);
+                won = won.or(rowStarts.and(window));
+            }
+            won.compare(VectorOperators.NE, 0).intoArray(results, i);
+        }
+
+        // The boards after the last full vector
+        for (; i < count; i++)
+            results[i] = ScalarWinKernel.hasWon(pieces[i], squares[i], windows, numSquares, shifts, numToWin);
+    }
+}